@@ -34,7 +34,9 @@ import de.danoeh.antennapod.adapter.FeedItemlistDescriptionAdapter;
 import de.danoeh.antennapod.core.event.DownloadEvent;
 import de.danoeh.antennapod.core.service.download.DownloadService;
 import de.danoeh.antennapod.core.service.download.DownloadRequestCreator;
+import de.danoeh.antennapod.core.service.download.handler.FeedParserTask;
 import de.danoeh.antennapod.core.feed.FeedUrlNotFoundException;
+import de.danoeh.antennapod.core.feed.PreviewFeedCache;
 import de.danoeh.antennapod.discovery.CombinedSearcher;
 import de.danoeh.antennapod.discovery.PodcastSearchResult;
 import de.danoeh.antennapod.event.FeedListUpdateEvent;
@@ -49,12 +51,14 @@ import de.danoeh.antennapod.core.service.download.Downloader;
 import de.danoeh.antennapod.core.service.download.HttpDownloader;
 import de.danoeh.antennapod.core.service.playback.PlaybackService;
 import de.danoeh.antennapod.core.storage.DBReader;
+import de.danoeh.antennapod.core.storage.DBTasks;
 import de.danoeh.antennapod.core.storage.DBWriter;
 import de.danoeh.antennapod.core.util.FileNameGenerator;
 import de.danoeh.antennapod.parser.feed.FeedHandler;
 import de.danoeh.antennapod.parser.feed.FeedHandlerResult;
 import de.danoeh.antennapod.core.util.DownloadError;
 import de.danoeh.antennapod.core.util.IntentUtils;
+import de.danoeh.antennapod.core.util.InvalidFeedException;
 import de.danoeh.antennapod.core.util.StorageUtils;
 import de.danoeh.antennapod.core.util.URLChecker;
 import de.danoeh.antennapod.core.util.syndication.FeedDiscoverer;
@@ -64,6 +68,7 @@ import de.danoeh.antennapod.dialog.AuthenticationDialog;
 import de.danoeh.antennapod.discovery.PodcastSearcherRegistry;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedPreferences;
+import de.danoeh.antennapod.model.feed.VolumeAdaptionSetting;
 import de.danoeh.antennapod.model.playback.RemoteMedia;
 import de.danoeh.antennapod.parser.feed.UnsupportedFeedtypeException;
 import io.reactivex.Maybe;
@@ -116,6 +121,7 @@ public class OnlineFeedViewActivity extends AppCompatActivity {
     private Disposable download;
     private Disposable parser;
     private Disposable updater;
+    private Disposable subscriber;
 
     private OnlinefeedviewActivityBinding viewBinding;
 
@@ -210,6 +216,10 @@ public class OnlineFeedViewActivity extends AppCompatActivity {
         if(parser != null) {
             parser.dispose();
         }
+        // The subscriber is not disposed: interrupting it could stop the subscription half-way
+        if (isFinishing() && !didPressSubscribe && feed != null) {
+            PreviewFeedCache.remove(feed.getDownload_url());
+        }
     }
 
     @Override
@@ -388,11 +398,19 @@ public class OnlineFeedViewActivity extends AppCompatActivity {
     private FeedHandlerResult doParseFeed() throws Exception {
         FeedHandler handler = new FeedHandler();
         try {
-            return handler.parseFeed(feed);
+            FeedHandlerResult result = handler.parseFeed(feed);
+            // Subscribing reuses the preview and only asks the server whether the feed changed since
+            feed.setLastUpdate(downloader.getDownloadRequest().getLastModified());
+            feed.setEtag(downloader.getDownloadRequest().getEtag());
+            PreviewFeedCache.put(feed.getDownload_url(), result);
+            return result;
         } catch (UnsupportedFeedtypeException e) {
             Log.d(TAG, "Unsupported feed type detected");
             if ("html".equalsIgnoreCase(e.getRootElement())) {
-                boolean dialogShown = showFeedDiscoveryDialog(new File(feed.getFile_url()), feed.getDownload_url());
+                String contentType = downloader.getDownloadRequest().getArguments()
+                        .getString(DownloadRequest.REQUEST_ARG_CONTENT_TYPE);
+                boolean dialogShown = showFeedDiscoveryDialog(new File(feed.getFile_url()), feed.getDownload_url(),
+                        contentType);
                 if (dialogShown) {
                     return null; // Should not display an error message
                 } else {
@@ -473,6 +491,10 @@ public class OnlineFeedViewActivity extends AppCompatActivity {
         if (feedInFeedlist(feed)) {
             openFeed();
         } else {
+            FeedHandlerResult preview = PreviewFeedCache.take(selectedDownloadUrl);
+            if (preview != null && subscribeFromPreview(preview.feed)) {
+                return;
+            }
             Feed f = new Feed(selectedDownloadUrl, null, feed.getTitle());
             f.setPreferences(feed.getPreferences());
             this.feed = f;
@@ -482,6 +504,48 @@ public class OnlineFeedViewActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Stores the feed that was parsed for the preview right away. The feed is then refreshed with a
+     * conditional request, which usually ends with "not modified" and does not transfer the feed again.
+     *
+     * @return false if the preview does not pass the checks of a regular refresh. The feed has to be
+     *         subscribed to the usual way then, which reports the problem in the download log.
+     */
+    private boolean subscribeFromPreview(Feed previewFeed) {
+        try {
+            FeedParserTask.prepareParsedFeed(previewFeed, false);
+        } catch (InvalidFeedException e) {
+            Log.d(TAG, "Preview cannot be subscribed to directly: " + e.getMessage());
+            return false;
+        }
+        previewFeed.setId(0);
+        previewFeed.setFile_url(null);
+        previewFeed.setDownloaded(true);
+        previewFeed.setPreferences(new FeedPreferences(0, true, FeedPreferences.AutoDeleteAction.GLOBAL,
+                VolumeAdaptionSetting.OFF, username, password));
+        this.feed = previewFeed;
+        didPressSubscribe = true;
+        viewBinding.subscribeButton.setEnabled(false);
+        viewBinding.subscribeButton.setText(R.string.subscribing_label);
+
+        // Only uses the application context, so the feed is stored and refreshed even if the activity is closed
+        Context context = getApplicationContext();
+        subscriber = Observable.fromCallable(() -> {
+            Feed savedFeed = DBTasks.updateFeed(context, previewFeed, false);
+            DownloadService.download(context, false, DownloadRequestCreator.create(savedFeed).build());
+            return savedFeed;
+        })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(savedFeed -> { },
+                        error -> {
+                            Log.e(TAG, Log.getStackTraceString(error));
+                            didPressSubscribe = false;
+                            handleUpdatedFeedStatus(feed);
+                        });
+        return true;
+    }
+
     private void stopPreview() {
         PlaybackPreferences.writeNoMediaPlaying();
         IntentUtils.sendLocalBroadcast(this, PlaybackService.ACTION_SHUTDOWN_PLAYBACK_SERVICE);
@@ -615,10 +679,7 @@ public class OnlineFeedViewActivity extends AppCompatActivity {
 
     private void handleUpdatedFeedStatus(Feed feed) {
         if (feed != null) {
-            if (DownloadService.isDownloadingFile(feed.getDownload_url())) {
-                viewBinding.subscribeButton.setEnabled(false);
-                viewBinding.subscribeButton.setText(R.string.subscribing_label);
-            } else if (feedInFeedlist(feed)) {
+            if (feedInFeedlist(feed)) {
                 viewBinding.subscribeButton.setEnabled(true);
                 viewBinding.subscribeButton.setText(R.string.open_podcast);
                 if (didPressSubscribe) {
@@ -638,6 +699,10 @@ public class OnlineFeedViewActivity extends AppCompatActivity {
                     }
                     openFeed();
                 }
+            } else if (DownloadService.isDownloadingFile(feed.getDownload_url())
+                    || (subscriber != null && !subscriber.isDisposed())) {
+                viewBinding.subscribeButton.setEnabled(false);
+                viewBinding.subscribeButton.setText(R.string.subscribing_label);
             } else {
                 viewBinding.subscribeButton.setEnabled(true);
                 viewBinding.subscribeButton.setText(R.string.subscribe_label);
@@ -709,11 +774,11 @@ public class OnlineFeedViewActivity extends AppCompatActivity {
      *
      * @return true if a FeedDiscoveryDialog is shown, false otherwise (e.g., due to no feed found).
      */
-    private boolean showFeedDiscoveryDialog(File feedFile, String baseUrl) {
+    private boolean showFeedDiscoveryDialog(File feedFile, String baseUrl, String contentType) {
         FeedDiscoverer fd = new FeedDiscoverer();
         final Map<String, String> urlsMap;
         try {
-            urlsMap = fd.findLinks(feedFile, baseUrl);
+            urlsMap = fd.findLinks(feedFile, baseUrl, contentType);
             if (urlsMap == null || urlsMap.isEmpty()) {
                 return false;
             }
@@ -27,11 +27,9 @@ import de.danoeh.antennapod.R;
 import de.danoeh.antennapod.core.export.opml.OpmlElement;
 import de.danoeh.antennapod.core.export.opml.OpmlReader;
 import de.danoeh.antennapod.core.preferences.UserPreferences;
-
 import de.danoeh.antennapod.core.service.download.DownloadService;
-import de.danoeh.antennapod.core.service.download.DownloadRequestCreator;
+import de.danoeh.antennapod.core.storage.DBWriter;
 import de.danoeh.antennapod.databinding.OpmlSelectionBinding;
-import de.danoeh.antennapod.model.feed.Feed;
 import io.reactivex.Completable;
 import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
@@ -90,14 +88,15 @@ public class OpmlImportActivity extends AppCompatActivity {
             viewBinding.progressBar.setVisibility(View.VISIBLE);
             Completable.fromAction(() -> {
                 SparseBooleanArray checked = viewBinding.feedlist.getCheckedItemPositions();
+                List<OpmlElement> selected = new ArrayList<>();
                 for (int i = 0; i < checked.size(); i++) {
-                    if (!checked.valueAt(i)) {
-                        continue;
+                    if (checked.valueAt(i)) {
+                        selected.add(readElements.get(checked.keyAt(i)));
                     }
-                    OpmlElement element = readElements.get(checked.keyAt(i));
-                    Feed feed = new Feed(element.getXmlUrl(), null, element.getText());
-                    DownloadService.download(this, false, DownloadRequestCreator.create(feed).build());
                 }
+                // Stored first, so that the import continues if the app is killed
+                DBWriter.addPendingImports(selected).get();
+                DownloadService.importFeeds(this);
             })
                     .subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
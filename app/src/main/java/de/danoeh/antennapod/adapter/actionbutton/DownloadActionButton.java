@@ -60,7 +60,7 @@ public class DownloadActionButton extends ItemActionButton {
     }
 
     private boolean shouldNotDownload(@NonNull FeedMedia media) {
-        boolean isDownloading = DownloadService.isDownloadingFile(media.getDownload_url());
+        boolean isDownloading = DownloadService.isDownloadingMedia(media.getId());
         return isDownloading || media.isDownloaded();
     }
 }
@@ -39,7 +39,7 @@ public abstract class ItemActionButton {
             return new MarkAsPlayedActionButton(item);
         }
 
-        final boolean isDownloadingMedia = DownloadService.isDownloadingFile(media.getDownload_url());
+        final boolean isDownloadingMedia = DownloadService.isDownloadingMedia(media.getId());
         if (FeedItemUtil.isCurrentlyPlaying(media)) {
             return new PauseActionButton(item);
         } else if (item.getFeed().isLocalFeed()) {
@@ -2,65 +2,66 @@ package de.danoeh.antennapod.asynctask;
 
 import android.content.Context;
 import android.net.Uri;
+import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.documentfile.provider.DocumentFile;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
 
+import de.danoeh.antennapod.core.export.DocumentExporter;
+import de.danoeh.antennapod.core.export.ExportProgressListener;
 import de.danoeh.antennapod.core.export.ExportWriter;
-import de.danoeh.antennapod.core.storage.DBReader;
 import io.reactivex.Observable;
 
 /**
  * Writes an OPML file into the user selected export directory in the background.
+ * The file is compressed if the user chose a name that ends with ".gz".
  */
 public class DocumentFileExportWorker {
+    private static final String TAG = "DocumentFileExportWork";
 
     private final @NonNull ExportWriter exportWriter;
     private @NonNull Context context;
     private @NonNull Uri outputFileUri;
+    private final @NonNull ExportProgressListener progressListener;
 
-    public DocumentFileExportWorker(@NonNull ExportWriter exportWriter, @NonNull Context context, @NonNull Uri outputFileUri) {
+    public DocumentFileExportWorker(@NonNull ExportWriter exportWriter, @NonNull Context context,
+                                    @NonNull Uri outputFileUri, @NonNull ExportProgressListener progressListener) {
         this.exportWriter = exportWriter;
         this.context = context;
         this.outputFileUri = outputFileUri;
+        this.progressListener = progressListener;
     }
 
+    /**
+     * The export is cancelled when the subscription is disposed.
+     */
     public Observable<DocumentFile> exportObservable() {
         DocumentFile output = DocumentFile.fromSingleUri(context, outputFileUri);
         return Observable.create(subscriber -> {
-            OutputStream outputStream = null;
-            OutputStreamWriter writer = null;
             try {
                 Uri uri = output.getUri();
-                outputStream = context.getContentResolver().openOutputStream(uri);
+                OutputStream outputStream = context.getContentResolver().openOutputStream(uri);
                 if (outputStream == null) {
                     throw new IOException();
                 }
-                writer = new OutputStreamWriter(outputStream, Charset.forName("UTF-8"));
-                exportWriter.writeDocument(DBReader.getFeedList(), writer, context);
+                String name = output.getName();
+                boolean compress = name != null && name.endsWith("." + DocumentExporter.GZIP_EXTENSION);
+                new DocumentExporter(exportWriter, compress).export(outputStream, context, (exported, total) -> {
+                    if (subscriber.isDisposed()) {
+                        throw new InterruptedIOException("Export cancelled");
+                    }
+                    progressListener.onProgress(exported, total);
+                });
                 subscriber.onNext(output);
+                subscriber.onComplete();
             } catch (IOException e) {
-                subscriber.onError(e);
-            } finally {
-                if (writer != null) {
-                    try {
-                        writer.close();
-                    } catch (IOException e) {
-                        subscriber.onError(e);
-                    }
+                if (e instanceof InterruptedIOException && !output.delete()) {
+                    Log.w(TAG, "Failed to delete cancelled export");
                 }
-                if (outputStream != null) {
-                    try {
-                        outputStream.close();
-                    } catch (IOException e) {
-                        subscriber.onError(e);
-                    }
-                }
-                subscriber.onComplete();
+                subscriber.tryOnError(e);
             }
         });
     }
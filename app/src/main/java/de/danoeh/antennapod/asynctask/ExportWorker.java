@@ -7,12 +7,12 @@ import android.util.Log;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
+import java.io.InterruptedIOException;
 
+import de.danoeh.antennapod.core.export.DocumentExporter;
+import de.danoeh.antennapod.core.export.ExportProgressListener;
 import de.danoeh.antennapod.core.export.ExportWriter;
 import de.danoeh.antennapod.core.preferences.UserPreferences;
-import de.danoeh.antennapod.core.storage.DBReader;
 import io.reactivex.Observable;
 
 /**
@@ -24,43 +24,48 @@ public class ExportWorker {
     private static final String TAG = "ExportWorker";
     private static final String DEFAULT_OUTPUT_NAME = "antennapod-feeds";
 
-    private final @NonNull ExportWriter exportWriter;
+    private final @NonNull DocumentExporter exporter;
     private final @NonNull File output;
     private final Context context;
+    private final @NonNull ExportProgressListener progressListener;
 
-    public ExportWorker(@NonNull ExportWriter exportWriter, Context context) {
-        this(exportWriter, new File(UserPreferences.getDataFolder(EXPORT_DIR),
-                DEFAULT_OUTPUT_NAME + "." + exportWriter.fileExtension()), context);
+    public ExportWorker(@NonNull ExportWriter exportWriter, Context context,
+                        @NonNull ExportProgressListener progressListener) {
+        this(new DocumentExporter(exportWriter, false), context, progressListener);
     }
 
-    private ExportWorker(@NonNull ExportWriter exportWriter, @NonNull File output, Context context) {
-        this.exportWriter = exportWriter;
-        this.output = output;
+    private ExportWorker(@NonNull DocumentExporter exporter, Context context,
+                         @NonNull ExportProgressListener progressListener) {
+        this.exporter = exporter;
+        this.output = new File(UserPreferences.getDataFolder(EXPORT_DIR),
+                DEFAULT_OUTPUT_NAME + "." + exporter.fileExtension());
         this.context = context;
+        this.progressListener = progressListener;
     }
 
+    /**
+     * The export is cancelled when the subscription is disposed.
+     */
     public Observable<File> exportObservable() {
         if (output.exists()) {
             boolean success = output.delete();
             Log.w(TAG, "Overwriting previously exported file: " + success);
         }
         return Observable.create(subscriber -> {
-            OutputStreamWriter writer = null;
             try {
-                writer = new OutputStreamWriter(new FileOutputStream(output), Charset.forName("UTF-8"));
-                exportWriter.writeDocument(DBReader.getFeedList(), writer, context);
+                exporter.export(new FileOutputStream(output), context, (exported, total) -> {
+                    if (subscriber.isDisposed()) {
+                        throw new InterruptedIOException("Export cancelled");
+                    }
+                    progressListener.onProgress(exported, total);
+                });
                 subscriber.onNext(output);
+                subscriber.onComplete();
             } catch (IOException e) {
-                subscriber.onError(e);
-            } finally {
-                if (writer != null) {
-                    try {
-                        writer.close();
-                    } catch (IOException e) {
-                        subscriber.onError(e);
-                    }
+                if (!output.delete()) {
+                    Log.w(TAG, "Failed to delete incomplete export");
                 }
-                subscriber.onComplete();
+                subscriber.tryOnError(e);
             }
         });
     }
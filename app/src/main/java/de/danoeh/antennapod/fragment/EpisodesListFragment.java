@@ -41,6 +41,7 @@ import de.danoeh.antennapod.R;
 import de.danoeh.antennapod.activity.MainActivity;
 import de.danoeh.antennapod.core.dialog.ConfirmationDialog;
 import de.danoeh.antennapod.core.event.DownloadEvent;
+import de.danoeh.antennapod.core.event.DownloadEventThrottle;
 import de.danoeh.antennapod.core.event.DownloaderUpdate;
 import de.danoeh.antennapod.event.FeedItemEvent;
 import de.danoeh.antennapod.model.feed.FeedItem;
@@ -107,6 +108,7 @@ public abstract class EpisodesListFragment extends Fragment {
     public void onStop() {
         super.onStop();
         EventBus.getDefault().unregister(this);
+        downloadEventThrottle.cancel();
         if (disposable != null) {
             disposable.dispose();
         }
@@ -343,15 +345,21 @@ public abstract class EpisodesListFragment extends Fragment {
         return true;
     }
 
+    private final DownloadEventThrottle downloadEventThrottle = new DownloadEventThrottle(this::onDownloadUpdate);
+
     @Subscribe(sticky = true, threadMode = ThreadMode.MAIN)
     public void onEventMainThread(DownloadEvent event) {
         Log.d(TAG, "onEventMainThread() called with: " + "event = [" + event + "]");
+        downloadEventThrottle.onEvent(event);
+    }
+
+    private void onDownloadUpdate(DownloadEvent event) {
         DownloaderUpdate update = event.update;
         if (event.hasChangedFeedUpdateStatus(isUpdatingFeeds)) {
             ((PagedToolbarFragment) getParentFragment()).invalidateOptionsMenuIfActive(this);
         }
-        if (update.mediaIds.length > 0) {
-            for (long mediaId : update.mediaIds) {
+        if (update.changedMediaIds.length > 0) {
+            for (long mediaId : update.changedMediaIds) {
                 int pos = FeedItemUtil.indexOfItemWithMediaId(episodes, mediaId);
                 if (pos >= 0) {
                     listAdapter.notifyItemChangedCompat(pos);
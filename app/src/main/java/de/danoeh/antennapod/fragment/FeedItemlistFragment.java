@@ -39,6 +39,7 @@ import de.danoeh.antennapod.R;
 import de.danoeh.antennapod.activity.MainActivity;
 import de.danoeh.antennapod.adapter.EpisodeItemListAdapter;
 import de.danoeh.antennapod.core.event.DownloadEvent;
+import de.danoeh.antennapod.core.event.DownloadEventThrottle;
 import de.danoeh.antennapod.core.event.DownloaderUpdate;
 import de.danoeh.antennapod.core.feed.FeedEvent;
 import de.danoeh.antennapod.core.glide.ApGlideSettings;
@@ -257,6 +258,7 @@ public class FeedItemlistFragment extends Fragment implements AdapterView.OnItem
         super.onDestroyView();
 
         EventBus.getDefault().unregister(this);
+        downloadEventThrottle.cancel();
         if (disposable != null) {
             disposable.dispose();
         }
@@ -371,15 +373,21 @@ public class FeedItemlistFragment extends Fragment implements AdapterView.OnItem
         }
     }
 
+    private final DownloadEventThrottle downloadEventThrottle = new DownloadEventThrottle(this::onDownloadUpdate);
+
     @Subscribe(sticky = true, threadMode = ThreadMode.MAIN)
     public void onEventMainThread(DownloadEvent event) {
         Log.d(TAG, "onEventMainThread() called with: " + "event = [" + event + "]");
+        downloadEventThrottle.onEvent(event);
+    }
+
+    private void onDownloadUpdate(DownloadEvent event) {
         DownloaderUpdate update = event.update;
         if (event.hasChangedFeedUpdateStatus(isUpdatingFeed)) {
             updateSyncProgressBarVisibility();
         }
-        if (adapter != null && update.mediaIds.length > 0 && feed != null) {
-            for (long mediaId : update.mediaIds) {
+        if (adapter != null && update.changedMediaIds.length > 0 && feed != null) {
+            for (long mediaId : update.changedMediaIds) {
                 int pos = FeedItemUtil.indexOfItemWithMediaId(feed.getItems(), mediaId);
                 if (pos >= 0) {
                     adapter.notifyItemChangedCompat(pos);
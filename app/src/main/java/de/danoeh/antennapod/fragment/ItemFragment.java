@@ -336,7 +336,7 @@ public class ItemFragment extends Fragment {
             } else {
                 actionButton1 = new StreamActionButton(item);
             }
-            if (DownloadService.isDownloadingFile(media.getDownload_url())) {
+            if (DownloadService.isDownloadingMedia(media.getId())) {
                 actionButton2 = new CancelDownloadActionButton(item);
             } else if (!media.isDownloaded()) {
                 actionButton2 = new DownloadActionButton(item);
@@ -386,7 +386,7 @@ public class ItemFragment extends Fragment {
             return;
         }
         long mediaId = item.getMedia().getId();
-        if (ArrayUtils.contains(update.mediaIds, mediaId)) {
+        if (ArrayUtils.contains(update.changedMediaIds, mediaId)) {
             if (itemsLoaded && getActivity() != null) {
                 updateButtons();
             }
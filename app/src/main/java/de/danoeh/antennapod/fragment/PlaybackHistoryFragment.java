@@ -16,6 +16,7 @@ import de.danoeh.antennapod.R;
 import de.danoeh.antennapod.activity.MainActivity;
 import de.danoeh.antennapod.adapter.EpisodeItemListAdapter;
 import de.danoeh.antennapod.core.event.DownloadEvent;
+import de.danoeh.antennapod.core.event.DownloadEventThrottle;
 import de.danoeh.antennapod.core.event.DownloaderUpdate;
 import de.danoeh.antennapod.event.FeedItemEvent;
 import de.danoeh.antennapod.event.playback.PlaybackHistoryEvent;
@@ -99,6 +100,7 @@ public class PlaybackHistoryFragment extends Fragment implements Toolbar.OnMenuI
     public void onStop() {
         super.onStop();
         EventBus.getDefault().unregister(this);
+        downloadEventThrottle.cancel();
         if (disposable != null) {
             disposable.dispose();
         }
@@ -130,12 +132,18 @@ public class PlaybackHistoryFragment extends Fragment implements Toolbar.OnMenuI
         }
     }
 
+    private final DownloadEventThrottle downloadEventThrottle = new DownloadEventThrottle(this::onDownloadUpdate);
+
     @Subscribe(sticky = true, threadMode = ThreadMode.MAIN)
     public void onEventMainThread(DownloadEvent event) {
         Log.d(TAG, "onEventMainThread() called with: " + "event = [" + event + "]");
+        downloadEventThrottle.onEvent(event);
+    }
+
+    private void onDownloadUpdate(DownloadEvent event) {
         DownloaderUpdate update = event.update;
-        if (adapter != null && update.mediaIds.length > 0) {
-            for (long mediaId : update.mediaIds) {
+        if (adapter != null && update.changedMediaIds.length > 0) {
+            for (long mediaId : update.changedMediaIds) {
                 int pos = FeedItemUtil.indexOfItemWithMediaId(playbackHistory, mediaId);
                 if (pos >= 0) {
                     adapter.notifyItemChangedCompat(pos);
@@ -33,6 +33,7 @@ import de.danoeh.antennapod.adapter.EpisodeItemListAdapter;
 import de.danoeh.antennapod.adapter.QueueRecyclerAdapter;
 import de.danoeh.antennapod.core.dialog.ConfirmationDialog;
 import de.danoeh.antennapod.core.event.DownloadEvent;
+import de.danoeh.antennapod.core.event.DownloadEventThrottle;
 import de.danoeh.antennapod.core.event.DownloaderUpdate;
 import de.danoeh.antennapod.event.FeedItemEvent;
 import de.danoeh.antennapod.event.playback.PlaybackPositionEvent;
@@ -124,6 +125,7 @@ public class QueueFragment extends Fragment implements Toolbar.OnMenuItemClickLi
     public void onStop() {
         super.onStop();
         EventBus.getDefault().unregister(this);
+        downloadEventThrottle.cancel();
         if (disposable != null) {
             disposable.dispose();
         }
@@ -186,15 +188,21 @@ public class QueueFragment extends Fragment implements Toolbar.OnMenuItemClickLi
         }
     }
 
+    private final DownloadEventThrottle downloadEventThrottle = new DownloadEventThrottle(this::onDownloadUpdate);
+
     @Subscribe(sticky = true, threadMode = ThreadMode.MAIN)
     public void onEventMainThread(DownloadEvent event) {
         Log.d(TAG, "onEventMainThread() called with DownloadEvent");
+        downloadEventThrottle.onEvent(event);
+    }
+
+    private void onDownloadUpdate(DownloadEvent event) {
         DownloaderUpdate update = event.update;
         if (event.hasChangedFeedUpdateStatus(isUpdatingFeeds)) {
             refreshToolbarState();
         }
-        if (recyclerAdapter != null && update.mediaIds.length > 0) {
-            for (long mediaId : update.mediaIds) {
+        if (recyclerAdapter != null && update.changedMediaIds.length > 0) {
+            for (long mediaId : update.changedMediaIds) {
                 int pos = FeedItemUtil.indexOfItemWithMediaId(queue, mediaId);
                 if (pos >= 0) {
                     recyclerAdapter.notifyItemChangedCompat(pos);
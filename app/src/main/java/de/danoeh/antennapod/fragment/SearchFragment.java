@@ -28,6 +28,7 @@ import de.danoeh.antennapod.activity.MainActivity;
 import de.danoeh.antennapod.adapter.EpisodeItemListAdapter;
 import de.danoeh.antennapod.adapter.FeedSearchResultAdapter;
 import de.danoeh.antennapod.core.event.DownloadEvent;
+import de.danoeh.antennapod.core.event.DownloadEventThrottle;
 import de.danoeh.antennapod.core.event.DownloaderUpdate;
 import de.danoeh.antennapod.event.FeedItemEvent;
 import de.danoeh.antennapod.event.playback.PlaybackPositionEvent;
@@ -179,6 +180,7 @@ public class SearchFragment extends Fragment {
     public void onDestroyView() {
         super.onDestroyView();
         EventBus.getDefault().unregister(this);
+        downloadEventThrottle.cancel();
     }
 
     private void setupToolbar(Toolbar toolbar) {
@@ -264,12 +266,18 @@ public class SearchFragment extends Fragment {
         }
     }
 
+    private final DownloadEventThrottle downloadEventThrottle = new DownloadEventThrottle(this::onDownloadUpdate);
+
     @Subscribe(sticky = true, threadMode = ThreadMode.MAIN)
     public void onEventMainThread(DownloadEvent event) {
         Log.d(TAG, "onEventMainThread() called with: " + "event = [" + event + "]");
+        downloadEventThrottle.onEvent(event);
+    }
+
+    private void onDownloadUpdate(DownloadEvent event) {
         DownloaderUpdate update = event.update;
-        if (adapter != null && update.mediaIds.length > 0) {
-            for (long mediaId : update.mediaIds) {
+        if (adapter != null && update.changedMediaIds.length > 0) {
+            for (long mediaId : update.changedMediaIds) {
                 int pos = FeedItemUtil.indexOfItemWithMediaId(results, mediaId);
                 if (pos >= 0) {
                     adapter.notifyItemChangedCompat(pos);
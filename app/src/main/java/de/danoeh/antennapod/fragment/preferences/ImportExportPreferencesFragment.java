@@ -4,9 +4,12 @@ import android.app.Activity;
 import android.app.ProgressDialog;
 import android.content.ActivityNotFoundException;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.activity.result.ActivityResult;
@@ -27,6 +30,7 @@ import de.danoeh.antennapod.activity.OpmlImportActivity;
 import de.danoeh.antennapod.activity.PreferenceActivity;
 import de.danoeh.antennapod.asynctask.DocumentFileExportWorker;
 import de.danoeh.antennapod.asynctask.ExportWorker;
+import de.danoeh.antennapod.core.export.ExportProgressListener;
 import de.danoeh.antennapod.core.export.ExportWriter;
 import de.danoeh.antennapod.core.export.favorites.FavoritesWriter;
 import de.danoeh.antennapod.core.export.html.HtmlWriter;
@@ -56,7 +60,7 @@ public class ImportExportPreferencesFragment extends PreferenceFragmentCompat {
     private static final String DEFAULT_HTML_OUTPUT_NAME = "antennapod-feeds-%s.html";
     private static final String CONTENT_TYPE_HTML = "text/html";
     private static final String DEFAULT_FAVORITES_OUTPUT_NAME = "antennapod-favorites-%s.html";
-    private static final String DATABASE_EXPORT_FILENAME = "AntennaPodBackup-%s.db";
+    private static final String DATABASE_EXPORT_FILENAME = "AntennaPodBackup-%s.db.gz";
     private final ActivityResultLauncher<Intent> chooseOpmlExportPathLauncher =
             registerForActivityResult(new StartActivityForResult(), this::chooseOpmlExportPathResult);
     private final ActivityResultLauncher<Intent> chooseHtmlExportPathLauncher =
@@ -139,27 +143,54 @@ public class ImportExportPreferencesFragment extends PreferenceFragmentCompat {
 
     private void exportWithWriter(ExportWriter exportWriter, Uri uri, Export exportType) {
         Context context = getActivity();
-        progressDialog.show();
+        ProgressDialog exportProgressDialog = createExportProgressDialog();
+        exportProgressDialog.show();
+        Handler handler = new Handler(Looper.getMainLooper());
+        ExportProgressListener progressListener = (exported, total) -> handler.post(() ->
+                exportProgressDialog.setProgress(total > 0 ? (int) (100L * exported / total) : 100));
         if (uri == null) {
-            Observable<File> observable = new ExportWorker(exportWriter, getContext()).exportObservable();
+            Observable<File> observable = new ExportWorker(exportWriter, getContext(), progressListener)
+                    .exportObservable();
             disposable = observable.subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(output -> {
                         Uri fileUri = FileProvider.getUriForFile(context.getApplicationContext(),
                                 context.getString(R.string.provider_authority), output);
                         showExportSuccessDialog(output.toString(), fileUri, exportType);
-                    }, this::showExportErrorDialog, progressDialog::dismiss);
+                    }, error -> {
+                        exportProgressDialog.dismiss();
+                        showExportErrorDialog(error);
+                    }, exportProgressDialog::dismiss);
         } else {
-            DocumentFileExportWorker worker = new DocumentFileExportWorker(exportWriter, context, uri);
+            DocumentFileExportWorker worker = new DocumentFileExportWorker(exportWriter, context, uri,
+                    progressListener);
             disposable = worker.exportObservable()
                     .subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(output ->
                             showExportSuccessDialog(output.getUri().toString(), output.getUri(), exportType),
-                            this::showExportErrorDialog, progressDialog::dismiss);
+                            error -> {
+                                exportProgressDialog.dismiss();
+                                showExportErrorDialog(error);
+                            }, exportProgressDialog::dismiss);
         }
     }
 
+    private ProgressDialog createExportProgressDialog() {
+        ProgressDialog dialog = new ProgressDialog(getContext());
+        dialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        dialog.setMessage(getString(R.string.please_wait));
+        dialog.setMax(100);
+        dialog.setCancelable(false);
+        dialog.setButton(DialogInterface.BUTTON_NEGATIVE, getString(R.string.cancel_label), (d, which) -> {
+            if (disposable != null) {
+                disposable.dispose();
+            }
+            d.dismiss();
+        });
+        return dialog;
+    }
+
     private void exportDatabase() {
         backupDatabaseLauncher.launch(dateStampFilename(DATABASE_EXPORT_FILENAME));
     }
@@ -306,7 +337,7 @@ public class ImportExportPreferencesFragment extends PreferenceFragmentCompat {
         public Intent createIntent(@NonNull final Context context, @NonNull final String input) {
             return super.createIntent(context, input)
                     .addCategory(Intent.CATEGORY_OPENABLE)
-                    .setType("application/x-sqlite3");
+                    .setType("application/gzip");
         }
     }
 
@@ -47,6 +47,7 @@ public class NetworkPreferencesFragment extends PreferenceFragmentCompat
         super.onResume();
         setUpdateIntervalText();
         setParallelDownloadsText(UserPreferences.getParallelDownloads());
+        setBandwidthLimitTexts();
     }
 
     private void setupNetworkScreen() {
@@ -108,14 +109,33 @@ public class NetworkPreferencesFragment extends PreferenceFragmentCompat
 
     private void setParallelDownloadsText(int downloads) {
         final Resources res = getActivity().getResources();
-        String s = res.getString(R.string.parallel_downloads, downloads);
+        String s = res.getString(R.string.pref_parallel_downloads_sum) + "\n"
+                + res.getString(R.string.parallel_downloads, downloads);
         findPreference(UserPreferences.PREF_PARALLEL_DOWNLOADS).setSummary(s);
     }
 
+    private void setBandwidthLimitTexts() {
+        setBandwidthLimitText(UserPreferences.PREF_FEED_BANDWIDTH_LIMIT, UserPreferences.getFeedBandwidthLimit());
+        setBandwidthLimitText(UserPreferences.PREF_MEDIA_BANDWIDTH_LIMIT, UserPreferences.getMediaBandwidthLimit());
+        setBandwidthLimitText(UserPreferences.PREF_PER_DOWNLOAD_BANDWIDTH_LIMIT,
+                UserPreferences.getPerDownloadBandwidthLimit());
+    }
+
+    private void setBandwidthLimitText(String key, long bytesPerSecond) {
+        String s = bytesPerSecond > 0
+                ? getString(R.string.bandwidth_limit, (int) (bytesPerSecond / 1024))
+                : getString(R.string.bandwidth_unlimited);
+        findPreference(key).setSummary(s);
+    }
+
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
         if (UserPreferences.PREF_UPDATE_INTERVAL.equals(key)) {
             setUpdateIntervalText();
+        } else if (UserPreferences.PREF_FEED_BANDWIDTH_LIMIT.equals(key)
+                || UserPreferences.PREF_MEDIA_BANDWIDTH_LIMIT.equals(key)
+                || UserPreferences.PREF_PER_DOWNLOAD_BANDWIDTH_LIMIT.equals(key)) {
+            setBandwidthLimitTexts();
         }
     }
 }
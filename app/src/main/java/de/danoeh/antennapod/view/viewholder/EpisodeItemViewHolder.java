@@ -145,8 +145,9 @@ public class EpisodeItemViewHolder extends RecyclerView.ViewHolder {
             itemView.setBackgroundResource(ThemeUtils.getDrawableFromAttr(activity, R.attr.selectableItemBackground));
         }
 
-        if (DownloadService.isDownloadingFile(media.getDownload_url())) {
-            final DownloadRequest downloadRequest = DownloadService.findRequest(media.getDownload_url());
+        final DownloadRequest downloadRequest = DownloadService.isDownloadingMedia(media.getId())
+                ? DownloadService.findMediaRequest(media.getId()) : null;
+        if (downloadRequest != null) {
             float percent = 0.01f * downloadRequest.getProgressPercent();
             secondaryActionProgress.setPercentage(Math.max(percent, 0.01f), item);
         } else if (media.isDownloaded()) {
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import de.danoeh.antennapod.core.service.download.Downloader;
+import de.danoeh.antennapod.core.util.LongList;
 
 public class DownloadEvent {
 
@@ -15,12 +16,37 @@ public class DownloadEvent {
         this.update = downloader;
     }
 
+    /**
+     * Creates an event that reports all downloads as changed.
+     */
     public static DownloadEvent refresh(List<Downloader> list) {
         list = new ArrayList<>(list);
         DownloaderUpdate update = new DownloaderUpdate(list);
         return new DownloadEvent(update);
     }
 
+    /**
+     * Creates an event that only reports the given media as changed.
+     */
+    public static DownloadEvent update(List<Downloader> list, long[] changedMediaIds) {
+        list = new ArrayList<>(list);
+        DownloaderUpdate update = new DownloaderUpdate(list, changedMediaIds);
+        return new DownloadEvent(update);
+    }
+
+    /**
+     * Combines this event with a newer one, for subscribers that skipped the older event.
+     */
+    DownloadEvent mergeWith(DownloadEvent newer) {
+        LongList changedMediaIds = LongList.of(update.changedMediaIds);
+        for (long mediaId : newer.update.changedMediaIds) {
+            if (!changedMediaIds.contains(mediaId)) {
+                changedMediaIds.add(mediaId);
+            }
+        }
+        return new DownloadEvent(new DownloaderUpdate(newer.update.downloaders, changedMediaIds.toArray()));
+    }
+
     @NonNull
     @Override
     public String toString() {
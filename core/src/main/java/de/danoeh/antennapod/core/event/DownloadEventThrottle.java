@@ -0,0 +1,64 @@
+package de.danoeh.antennapod.core.event;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+
+/**
+ * Limits how often a subscriber handles {@link DownloadEvent}s. Events that arrive too early are combined
+ * and handed over when the interval passed, so no changed download is lost. Must be used on the main thread.
+ */
+public class DownloadEventThrottle {
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    public interface Callback {
+        void onDownloadEvent(@NonNull DownloadEvent event);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Callback callback;
+    private final long intervalMillis;
+    private final Runnable deliverPending = this::deliverPending;
+    private DownloadEvent pending;
+    private long lastDelivery = 0;
+
+    public DownloadEventThrottle(@NonNull Callback callback) {
+        this(DEFAULT_INTERVAL_MILLIS, callback);
+    }
+
+    public DownloadEventThrottle(long intervalMillis, @NonNull Callback callback) {
+        this.intervalMillis = intervalMillis;
+        this.callback = callback;
+    }
+
+    public void onEvent(@NonNull DownloadEvent event) {
+        boolean scheduled = pending != null;
+        pending = pending == null ? event : pending.mergeWith(event);
+        long wait = lastDelivery + intervalMillis - SystemClock.elapsedRealtime();
+        if (lastDelivery == 0 || wait <= 0) {
+            handler.removeCallbacks(deliverPending);
+            deliverPending();
+        } else if (!scheduled) {
+            handler.postDelayed(deliverPending, wait);
+        }
+    }
+
+    /**
+     * Drops events that were not handed over yet. Call when the subscriber unregisters.
+     */
+    public void cancel() {
+        handler.removeCallbacks(deliverPending);
+        pending = null;
+        lastDelivery = 0;
+    }
+
+    private void deliverPending() {
+        DownloadEvent event = pending;
+        pending = null;
+        if (event != null) {
+            lastDelivery = SystemClock.elapsedRealtime();
+            callback.onDownloadEvent(event);
+        }
+    }
+}
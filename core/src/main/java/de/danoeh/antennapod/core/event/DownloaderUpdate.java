@@ -28,7 +28,17 @@ public class DownloaderUpdate {
      */
     public final long[] mediaIds;
 
+    /**
+     * IDs of feed media whose download was started, made progress or finished since the last event.
+     * Lists only have to update the rows of these media.
+     */
+    public final long[] changedMediaIds;
+
     DownloaderUpdate(@NonNull List<Downloader> downloaders) {
+        this(downloaders, null);
+    }
+
+    DownloaderUpdate(@NonNull List<Downloader> downloaders, long[] changedMediaIds) {
         this.downloaders = downloaders;
         LongList feedIds1 = new LongList();
         LongList mediaIds1 = new LongList();
@@ -44,6 +54,7 @@ public class DownloaderUpdate {
 
         this.feedIds = feedIds1.toArray();
         this.mediaIds = mediaIds1.toArray();
+        this.changedMediaIds = changedMediaIds != null ? changedMediaIds : this.mediaIds;
     }
 
     @NonNull
@@ -53,6 +64,7 @@ public class DownloaderUpdate {
                 "downloaders=" + downloaders +
                 ", feedIds=" + Arrays.toString(feedIds) +
                 ", mediaIds=" + Arrays.toString(mediaIds) +
+                ", changedMediaIds=" + Arrays.toString(changedMediaIds) +
                 '}';
     }
 }
@@ -0,0 +1,93 @@
+package de.danoeh.antennapod.core.export;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the document of an {@link ExportWriter} to a stream. The writers read the database while writing,
+ * so the memory that is needed does not depend on the size of the library. The output is buffered and
+ * optionally compressed with gzip.
+ */
+public class DocumentExporter {
+    private static final String TAG = "DocumentExporter";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    public static final String GZIP_EXTENSION = "gz";
+
+    private final ExportWriter exportWriter;
+    private final boolean compress;
+
+    public DocumentExporter(@NonNull ExportWriter exportWriter, boolean compress) {
+        this.exportWriter = exportWriter;
+        this.compress = compress;
+    }
+
+    /**
+     * @return The file name extension of the exported documents.
+     */
+    public String fileExtension() {
+        return compress ? exportWriter.fileExtension() + "." + GZIP_EXTENSION : exportWriter.fileExtension();
+    }
+
+    /**
+     * Writes the document and closes the stream.
+     *
+     * @param progressListener Is notified at most once per percent of the document. It can cancel the export
+     *                         by throwing an {@link InterruptedIOException}.
+     */
+    public void export(@NonNull OutputStream outputStream, @NonNull Context context,
+                       @NonNull ExportProgressListener progressListener) throws IOException {
+        OutputStream output = outputStream;
+        try {
+            if (compress) {
+                output = new GZIPOutputStream(output, BUFFER_SIZE);
+            }
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(output, Charset.forName("UTF-8")), BUFFER_SIZE);
+            exportWriter.writeDocument(writer, context, new ThrottledProgressListener(progressListener));
+            writer.close(); // Flushes the buffer and writes the end of the gzip stream
+            Log.d(TAG, "Exported document");
+        } finally {
+            try {
+                output.close();
+            } catch (IOException e) {
+                Log.d(TAG, "Failed to close the output stream: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Forwards the progress only when the percentage changes, but still lets the listener cancel the
+     * export regularly. Large libraries have hundreds of thousands of rows.
+     */
+    private static class ThrottledProgressListener implements ExportProgressListener {
+        private static final int MAX_UNCHECKED = 100;
+
+        private final ExportProgressListener listener;
+        private int lastPercent = -1;
+        private int unchecked = 0;
+
+        ThrottledProgressListener(ExportProgressListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onProgress(int exported, int total) throws InterruptedIOException {
+            int percent = total > 0 ? (int) (100L * exported / total) : 100;
+            if (percent != lastPercent || ++unchecked >= MAX_UNCHECKED) {
+                lastPercent = percent;
+                unchecked = 0;
+                listener.onProgress(exported, total);
+            }
+        }
+    }
+}
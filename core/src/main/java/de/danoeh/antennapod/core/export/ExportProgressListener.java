@@ -0,0 +1,17 @@
+package de.danoeh.antennapod.core.export;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Is notified while a document is exported. The export can be cancelled by throwing an exception.
+ */
+public interface ExportProgressListener {
+    ExportProgressListener NONE = (exported, total) -> { };
+
+    /**
+     * @param exported The number of elements that were written
+     * @param total The number of elements of the document
+     * @throws InterruptedIOException To cancel the export
+     */
+    void onProgress(int exported, int total) throws InterruptedIOException;
+}
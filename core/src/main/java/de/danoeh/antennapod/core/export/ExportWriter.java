@@ -17,13 +17,14 @@ package de.danoeh.antennapod.core.export;
 import android.content.Context;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.List;
-
-import de.danoeh.antennapod.model.feed.Feed;
 
+/**
+ * Writes a document with data from the database. The data is read while it is written, so that the
+ * export of large libraries does not need to load everything into memory first.
+ */
 public interface ExportWriter {
 
-    void writeDocument(List<Feed> feeds, Writer writer, Context context)
+    void writeDocument(Writer writer, Context context, ExportProgressListener progressListener)
             throws IllegalArgumentException, IllegalStateException, IOException;
 
     String fileExtension();
@@ -8,12 +8,8 @@ import org.apache.commons.io.IOUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
+import de.danoeh.antennapod.core.export.ExportProgressListener;
 import de.danoeh.antennapod.core.export.ExportWriter;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedItem;
@@ -23,14 +19,12 @@ import de.danoeh.antennapod.core.storage.DBReader;
 public class FavoritesWriter implements ExportWriter {
     private static final String TAG = "FavoritesWriter";
 
-    private static final int PAGE_LIMIT = 100;
-
     private static final String FAVORITE_TEMPLATE = "html-export-favorites-item-template.html";
     private static final String FEED_TEMPLATE = "html-export-feed-template.html";
     private static final String UTF_8 = "UTF-8";
 
     @Override
-    public void writeDocument(List<Feed> feeds, Writer writer, Context context)
+    public void writeDocument(Writer writer, Context context, ExportProgressListener progressListener)
             throws IllegalArgumentException, IllegalStateException, IOException {
         Log.d(TAG, "Starting to write document");
 
@@ -45,68 +39,59 @@ public class FavoritesWriter implements ExportWriter {
         InputStream feedTemplateStream = context.getAssets().open(FEED_TEMPLATE);
         String feedTemplate = IOUtils.toString(feedTemplateStream, UTF_8);
 
-        Map<Long, List<FeedItem>> favoriteByFeed = getFeedMap(getFavorites());
-
         writer.append(templateParts[0]);
 
-        for (Long feedId : favoriteByFeed.keySet()) {
-            List<FeedItem> favorites = favoriteByFeed.get(feedId);
-            writer.append("<li><div>\n");
-            writeFeed(writer, favorites.get(0).getFeed(), feedTemplate);
-
-            writer.append("<ul>\n");
-            for (FeedItem item : favorites) {
-                writeFavoriteItem(writer, item, favTemplate);
-            }
-            writer.append("</ul></div></li>\n");
-        }
+        FavoritesConsumer consumer = new FavoritesConsumer(writer, feedTemplate, favTemplate, progressListener);
+        DBReader.forEachFavoriteItem(consumer);
+        consumer.finish();
 
         writer.append(templateParts[1]);
 
         Log.d(TAG, "Finished writing document");
     }
 
-    private List<FeedItem> getFavorites() {
-        int page = 0;
-
-        List<FeedItem> favoritesList = new ArrayList<>();
-        List<FeedItem> favoritesPage;
-        do {
-            favoritesPage = DBReader.getFavoriteItemsList(page * PAGE_LIMIT, PAGE_LIMIT);
-            favoritesList.addAll(favoritesPage);
-            ++page;
-        } while (!favoritesPage.isEmpty() && favoritesPage.size() == PAGE_LIMIT);
-
-        // sort in descending order
-        Collections.sort(favoritesList, (lhs, rhs) -> rhs.getPubDate().compareTo(lhs.getPubDate()));
-
-        return favoritesList;
-    }
-
     /**
-     * Group favorite episodes by feed, sorting them by publishing date in descending order.
-     *
-     * @param favoritesList {@code List} of all favorite episodes.
-     * @return A {@code Map} favorite episodes, keyed by feed ID.
+     * Writes the favorites, which are grouped by feed, and starts a new list whenever the feed changes.
      */
-    private Map<Long, List<FeedItem>> getFeedMap(List<FeedItem> favoritesList) {
-        Map<Long, List<FeedItem>> feedMap = new TreeMap<>();
-
-        for (FeedItem item : favoritesList) {
-            List<FeedItem> feedEpisodes = feedMap.get(item.getFeedId());
+    private static class FavoritesConsumer implements DBReader.RowConsumer<FeedItem> {
+        private final Writer writer;
+        private final String feedTemplate;
+        private final String favTemplate;
+        private final ExportProgressListener progressListener;
+        private Feed currentFeed = null;
+
+        FavoritesConsumer(Writer writer, String feedTemplate, String favTemplate,
+                          ExportProgressListener progressListener) {
+            this.writer = writer;
+            this.feedTemplate = feedTemplate;
+            this.favTemplate = favTemplate;
+            this.progressListener = progressListener;
+        }
 
-            if (feedEpisodes == null) {
-                feedEpisodes = new ArrayList<>();
-                feedMap.put(item.getFeedId(), feedEpisodes);
+        @Override
+        public void accept(FeedItem item, int position, int count) throws IOException {
+            Feed feed = item.getFeed();
+            if (feed != null) {
+                if (currentFeed == null || currentFeed.getId() != feed.getId()) {
+                    finish();
+                    currentFeed = feed;
+                    writer.append("<li><div>\n");
+                    writeFeed(writer, feed, feedTemplate);
+                    writer.append("<ul>\n");
+                }
+                writeFavoriteItem(writer, item, favTemplate);
             }
-
-            feedEpisodes.add(item);
+            progressListener.onProgress(position + 1, count);
         }
 
-        return feedMap;
+        void finish() throws IOException {
+            if (currentFeed != null) {
+                writer.append("</ul></div></li>\n");
+            }
+        }
     }
 
-    private void writeFeed(Writer writer, Feed feed, String feedTemplate) throws IOException {
+    private static void writeFeed(Writer writer, Feed feed, String feedTemplate) throws IOException {
         String feedInfo = feedTemplate
                 .replace("{FEED_IMG}", feed.getImageUrl())
                 .replace("{FEED_TITLE}", feed.getTitle())
@@ -116,7 +101,7 @@ public class FavoritesWriter implements ExportWriter {
         writer.append(feedInfo);
     }
 
-    private void writeFavoriteItem(Writer writer, FeedItem item, String favoriteTemplate) throws IOException {
+    private static void writeFavoriteItem(Writer writer, FeedItem item, String favoriteTemplate) throws IOException {
         String favItem = favoriteTemplate.replace("{FAV_TITLE}", item.getTitle().trim());
         if (item.getLink() != null) {
             favItem = favItem.replace("{FAV_WEBSITE}", item.getLink());
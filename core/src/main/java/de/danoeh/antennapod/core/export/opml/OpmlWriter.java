@@ -4,13 +4,14 @@ import android.content.Context;
 import android.util.Log;
 import android.util.Xml;
 
+import de.danoeh.antennapod.core.export.ExportProgressListener;
+import de.danoeh.antennapod.core.storage.DBReader;
 import de.danoeh.antennapod.core.util.DateFormatter;
 import org.xmlpull.v1.XmlSerializer;
 
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Date;
-import java.util.List;
 
 import de.danoeh.antennapod.core.export.ExportWriter;
 import de.danoeh.antennapod.model.feed.Feed;
@@ -24,11 +25,10 @@ public class OpmlWriter implements ExportWriter {
     private static final String OPML_TITLE = "AntennaPod Subscriptions";
 
     /**
-     * Takes a list of feeds and a writer and writes those into an OPML
-     * document.
+     * Writes all feeds of the database into an OPML document.
      */
     @Override
-    public void writeDocument(List<Feed> feeds, Writer writer, Context context)
+    public void writeDocument(Writer writer, Context context, ExportProgressListener progressListener)
             throws IllegalArgumentException, IllegalStateException, IOException {
         Log.d(TAG, "Starting to write document");
         XmlSerializer xs = Xml.newSerializer();
@@ -49,25 +49,30 @@ public class OpmlWriter implements ExportWriter {
         xs.endTag(null, OpmlSymbols.HEAD);
 
         xs.startTag(null, OpmlSymbols.BODY);
-        for (Feed feed : feeds) {
-            xs.startTag(null, OpmlSymbols.OUTLINE);
-            xs.attribute(null, OpmlSymbols.TEXT, feed.getTitle());
-            xs.attribute(null, OpmlSymbols.TITLE, feed.getTitle());
-            if (feed.getType() != null) {
-                xs.attribute(null, OpmlSymbols.TYPE, feed.getType());
-            }
-            xs.attribute(null, OpmlSymbols.XMLURL, feed.getDownload_url());
-            if (feed.getLink() != null) {
-                xs.attribute(null, OpmlSymbols.HTMLURL, feed.getLink());
-            }
-            xs.endTag(null, OpmlSymbols.OUTLINE);
-        }
+        DBReader.forEachFeed((feed, position, count) -> {
+            writeOutline(xs, feed);
+            progressListener.onProgress(position + 1, count);
+        });
         xs.endTag(null, OpmlSymbols.BODY);
         xs.endTag(null, OpmlSymbols.OPML);
         xs.endDocument();
         Log.d(TAG, "Finished writing document");
     }
 
+    private static void writeOutline(XmlSerializer xs, Feed feed) throws IOException {
+        xs.startTag(null, OpmlSymbols.OUTLINE);
+        xs.attribute(null, OpmlSymbols.TEXT, feed.getTitle());
+        xs.attribute(null, OpmlSymbols.TITLE, feed.getTitle());
+        if (feed.getType() != null) {
+            xs.attribute(null, OpmlSymbols.TYPE, feed.getType());
+        }
+        xs.attribute(null, OpmlSymbols.XMLURL, feed.getDownload_url());
+        if (feed.getLink() != null) {
+            xs.attribute(null, OpmlSymbols.HTMLURL, feed.getLink());
+        }
+        xs.endTag(null, OpmlSymbols.OUTLINE);
+    }
+
     public String fileExtension() {
         return "opml";
     }
@@ -0,0 +1,71 @@
+package de.danoeh.antennapod.core.feed;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import de.danoeh.antennapod.parser.feed.FeedHandlerResult;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps feeds that were parsed for a preview for a short time, so that subscribing right after the preview
+ * does not need to download and parse the feed again. The cached feed contains the ETag and Last-Modified
+ * values of the preview download, so the subscription can be revalidated with a conditional request.
+ */
+public class PreviewFeedCache {
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    static final int MAX_ENTRIES = 2;
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private PreviewFeedCache() {
+    }
+
+    public static void put(@NonNull String url, @NonNull FeedHandlerResult result) {
+        put(url, result, System.currentTimeMillis());
+    }
+
+    static synchronized void put(@NonNull String url, @NonNull FeedHandlerResult result, long now) {
+        entries.remove(url);
+        entries.put(url, new Entry(result, now));
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > MAX_ENTRIES && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes the preview of the given URL from the cache and returns it.
+     * @return The parsed feed, or null if there is no preview or it is too old to be used.
+     */
+    @Nullable
+    public static FeedHandlerResult take(@NonNull String url) {
+        return take(url, System.currentTimeMillis());
+    }
+
+    @Nullable
+    static synchronized FeedHandlerResult take(@NonNull String url, long now) {
+        Entry entry = entries.remove(url);
+        if (entry == null || now - entry.time > MAX_AGE_MILLIS || now < entry.time) {
+            return null;
+        }
+        return entry.result;
+    }
+
+    public static synchronized void remove(@NonNull String url) {
+        entries.remove(url);
+    }
+
+    private static class Entry {
+        final FeedHandlerResult result;
+        final long time;
+
+        Entry(FeedHandlerResult result, long time) {
+            this.result = result;
+            this.time = time;
+        }
+    }
+}
@@ -98,6 +98,11 @@ public class UserPreferences {
     private static final String PREF_MOBILE_UPDATE = "prefMobileUpdateTypes";
     public static final String PREF_EPISODE_CLEANUP = "prefEpisodeCleanup";
     public static final String PREF_PARALLEL_DOWNLOADS = "prefParallelDownloads";
+    private static final String PREF_FEED_DELTA = "prefFeedDelta";
+    public static final String PREF_FEED_BANDWIDTH_LIMIT = "prefFeedBandwidthLimit";
+    public static final String PREF_MEDIA_BANDWIDTH_LIMIT = "prefMediaBandwidthLimit";
+    public static final String PREF_PER_DOWNLOAD_BANDWIDTH_LIMIT = "prefPerDownloadBandwidthLimit";
+    public static final String PREF_PRIORITIZE_STREAMING = "prefPrioritizeStreaming";
     public static final String PREF_EPISODE_CACHE_SIZE = "prefEpisodeCacheSize";
     public static final String PREF_ENABLE_AUTODL = "prefEnableAutoDl";
     public static final String PREF_ENABLE_AUTODL_ON_BATTERY = "prefEnableAutoDownloadOnBattery";
@@ -556,6 +561,45 @@ public class UserPreferences {
         return Integer.parseInt(prefs.getString(PREF_PARALLEL_DOWNLOADS, "4"));
     }
 
+    /**
+     * Returns true if feeds should be requested as RFC 3229 deltas from servers that support it.
+     */
+    public static boolean isFeedDeltaEnabled() {
+        return prefs.getBoolean(PREF_FEED_DELTA, false);
+    }
+
+    /**
+     * Returns the maximum number of bytes per second that all feed downloads together may use, or 0.
+     */
+    public static long getFeedBandwidthLimit() {
+        return getBandwidthLimit(PREF_FEED_BANDWIDTH_LIMIT);
+    }
+
+    /**
+     * Returns the maximum number of bytes per second that all media downloads together may use, or 0.
+     */
+    public static long getMediaBandwidthLimit() {
+        return getBandwidthLimit(PREF_MEDIA_BANDWIDTH_LIMIT);
+    }
+
+    /**
+     * Returns the maximum number of bytes per second that a single download may use, or 0.
+     */
+    public static long getPerDownloadBandwidthLimit() {
+        return getBandwidthLimit(PREF_PER_DOWNLOAD_BANDWIDTH_LIMIT);
+    }
+
+    private static long getBandwidthLimit(String key) {
+        return Long.parseLong(prefs.getString(key, "0")) * 1024;
+    }
+
+    /**
+     * Returns true if background downloads should be slowed down while streaming.
+     */
+    public static boolean isStreamingPrioritized() {
+        return prefs.getBoolean(PREF_PRIORITIZE_STREAMING, true);
+    }
+
     public static int getEpisodeCacheSizeUnlimited() {
         return context.getResources().getInteger(R.integer.episode_cache_size_unlimited);
     }
@@ -0,0 +1,127 @@
+package de.danoeh.antennapod.core.service;
+
+import androidx.annotation.NonNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dns;
+
+/**
+ * Remembers the results of DNS lookups. Android caches lookups only for a few seconds, so a refresh of
+ * many feeds from the same hosts would otherwise resolve the same names over and over. Failed lookups
+ * are remembered for a shorter time, so that feeds on a host that does not exist anymore fail fast.
+ * Callers that need a host that is being resolved wait for that lookup instead of starting another one.
+ * The cache should be cleared when the network changes.
+ */
+public class CachingDns implements Dns {
+    static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long NEGATIVE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int MAX_ENTRIES = 256;
+
+    private final Dns delegate;
+    private final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    /** Lookups that are running, callers that need the same host wait for them instead of starting another */
+    private final Map<String, FutureTask<List<InetAddress>>> inFlight = new HashMap<>();
+
+    public CachingDns(@NonNull Dns delegate) {
+        this.delegate = delegate;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        return lookup(hostname, System.currentTimeMillis());
+    }
+
+    List<InetAddress> lookup(String hostname, long now) throws UnknownHostException {
+        FutureTask<List<InetAddress>> lookup;
+        boolean isOwnLookup = false;
+        synchronized (cache) {
+            Entry entry = cache.get(hostname);
+            if (entry != null && now < entry.expires) {
+                if (entry.addresses == null) {
+                    throw new UnknownHostException("Unable to resolve host \"" + hostname + "\" (cached)");
+                }
+                return entry.addresses;
+            }
+            // Feed refreshes, segmented downloads and imports often resolve the same host at once
+            lookup = inFlight.get(hostname);
+            if (lookup == null) {
+                lookup = new FutureTask<>(() -> delegate.lookup(hostname));
+                inFlight.put(hostname, lookup);
+                isOwnLookup = true;
+            }
+        }
+        if (isOwnLookup) {
+            lookup.run();
+            Entry entry;
+            try {
+                entry = new Entry(lookup.get(), now + TTL_MILLIS);
+            } catch (ExecutionException | InterruptedException e) {
+                entry = e.getCause() instanceof UnknownHostException
+                        ? new Entry(null, now + NEGATIVE_TTL_MILLIS) : null;
+            }
+            synchronized (cache) {
+                if (inFlight.get(hostname) == lookup) { // Otherwise, the cache was cleared in the meantime
+                    inFlight.remove(hostname);
+                    if (entry != null) {
+                        cache.put(hostname, entry);
+                    }
+                }
+            }
+        }
+        return getResult(lookup, hostname);
+    }
+
+    private static List<InetAddress> getResult(FutureTask<List<InetAddress>> lookup, String hostname)
+            throws UnknownHostException {
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnknownHostException("Interrupted while resolving host \"" + hostname + "\"");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UnknownHostException) {
+                throw (UnknownHostException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            UnknownHostException exception = new UnknownHostException("Unable to resolve host \"" + hostname + "\"");
+            exception.initCause(cause);
+            throw exception;
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            inFlight.clear();
+        }
+    }
+
+    private static class Entry {
+        final List<InetAddress> addresses;
+        final long expires;
+
+        Entry(List<InetAddress> addresses, long expires) {
+            this.addresses = addresses;
+            this.expires = expires;
+        }
+    }
+}
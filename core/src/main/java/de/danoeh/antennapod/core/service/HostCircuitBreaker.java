@@ -0,0 +1,136 @@
+package de.danoeh.antennapod.core.service;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import de.danoeh.antennapod.core.service.download.DownloadRequest;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Stops sending download requests to hosts that are unreachable. After a few failures in a row, the
+ * circuit of the host opens and automatic downloads fail immediately instead of waiting for the connect
+ * timeout. When the cooldown expired, the circuit is half-open: a single request is let through to find
+ * out if the host is back. If it fails, the cooldown doubles. Downloads started by the user always try.
+ */
+public class HostCircuitBreaker implements Interceptor {
+    private static final String TAG = "HostCircuitBreaker";
+    static final int FAILURE_THRESHOLD = 3;
+    static final long INITIAL_COOLDOWN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long MAX_COOLDOWN_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Map<String, Circuit> circuits = new HashMap<>();
+
+    @Override
+    @NonNull
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!(request.tag() instanceof DownloadRequest)) {
+            return chain.proceed(request);
+        }
+        String host = request.url().host();
+        boolean initiatedByUser = ((DownloadRequest) request.tag()).isInitiatedByUser();
+        if (!allowRequest(host, initiatedByUser, System.currentTimeMillis())) {
+            throw new CircuitOpenException(host);
+        }
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            if (isHostFailure(e)) {
+                onFailure(host, System.currentTimeMillis());
+            } else {
+                onAborted(host);
+            }
+            throw e;
+        }
+        if (response.code() >= HttpURLConnection.HTTP_INTERNAL_ERROR && response.header("Retry-After") == null) {
+            onFailure(host, System.currentTimeMillis());
+        } else {
+            onSuccess(host);
+        }
+        return response;
+    }
+
+    boolean allowRequest(String host, boolean initiatedByUser, long now) {
+        synchronized (circuits) {
+            Circuit circuit = circuits.get(host);
+            if (circuit == null || circuit.failures < FAILURE_THRESHOLD || initiatedByUser) {
+                return true; // Closed
+            }
+            if (now < circuit.openUntil || circuit.trialRunning) {
+                return false; // Open, or half-open and the trial request is still running
+            }
+            circuit.trialRunning = true;
+            return true;
+        }
+    }
+
+    void onSuccess(String host) {
+        synchronized (circuits) {
+            circuits.remove(host);
+        }
+    }
+
+    void onFailure(String host, long now) {
+        synchronized (circuits) {
+            Circuit circuit = circuits.get(host);
+            if (circuit == null) {
+                circuit = new Circuit();
+                circuits.put(host, circuit);
+            }
+            circuit.failures++;
+            circuit.trialRunning = false;
+            if (circuit.failures >= FAILURE_THRESHOLD) {
+                circuit.cooldown = circuit.cooldown == 0
+                        ? INITIAL_COOLDOWN_MILLIS : Math.min(MAX_COOLDOWN_MILLIS, 2 * circuit.cooldown);
+                circuit.openUntil = now + circuit.cooldown;
+                Log.d(TAG, "Circuit of " + host + " open for " + circuit.cooldown + "ms");
+            }
+        }
+    }
+
+    /**
+     * The request did not tell anything about the host, for example because it was cancelled.
+     */
+    private void onAborted(String host) {
+        synchronized (circuits) {
+            Circuit circuit = circuits.get(host);
+            if (circuit != null) {
+                circuit.trialRunning = false;
+            }
+        }
+    }
+
+    private static boolean isHostFailure(IOException e) {
+        return e instanceof UnknownHostException || e instanceof ConnectException
+                || e instanceof NoRouteToHostException || e instanceof SocketTimeoutException;
+    }
+
+    private static class Circuit {
+        int failures = 0;
+        long cooldown = 0;
+        long openUntil = 0;
+        boolean trialRunning = false;
+    }
+
+    /**
+     * Thrown instead of contacting a host whose circuit is open.
+     */
+    public static class CircuitOpenException extends IOException {
+        CircuitOpenException(String host) {
+            super("Not contacting " + host + " because the last requests failed");
+        }
+    }
+}
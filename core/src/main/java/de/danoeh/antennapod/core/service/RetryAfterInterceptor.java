@@ -0,0 +1,111 @@
+package de.danoeh.antennapod.core.service;
+
+import android.text.TextUtils;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import de.danoeh.antennapod.core.service.download.DownloadRequest;
+import de.danoeh.antennapod.parser.feed.util.DateUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Handles "429 Too Many Requests" and "503 Service Unavailable" responses. The host is not contacted
+ * again before the time given in the Retry-After header, and short waits are retried transparently.
+ * <p/>
+ * Only GET requests of downloads are handled. They run on download threads and can be repeated safely,
+ * other requests (for example from the UI or sync) get the response unchanged.
+ */
+public class RetryAfterInterceptor implements Interceptor {
+    private static final String TAG = "RetryAfterInterceptor";
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final long MAX_WAIT_MILLIS = 3000;
+    private static final long MAX_RETRY_AFTER_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+    private static final int MAX_RETRIES = 2;
+
+    private final ConcurrentHashMap<String, Long> notBefore = new ConcurrentHashMap<>();
+
+    @Override
+    @NonNull
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method()) || !(request.tag() instanceof DownloadRequest)) {
+            return chain.proceed(request);
+        }
+        String host = request.url().host();
+        int retries = 0;
+        while (true) {
+            waitForHost(host);
+            Response response = chain.proceed(request);
+            if (response.code() != HTTP_TOO_MANY_REQUESTS
+                    && (response.code() != HttpURLConnection.HTTP_UNAVAILABLE
+                        || response.header("Retry-After") == null)) {
+                return response;
+            }
+            long delay = parseRetryAfter(response.header("Retry-After"), System.currentTimeMillis());
+            if (delay < 0) {
+                delay = DEFAULT_RETRY_AFTER_MILLIS << retries;
+            }
+            Log.d(TAG, "Host " + host + " asked to wait " + delay + "ms (" + response.code() + ")");
+            notBefore.put(host, System.currentTimeMillis() + delay);
+            if (retries >= MAX_RETRIES || delay > MAX_WAIT_MILLIS) {
+                return response;
+            }
+            response.close();
+            retries++;
+        }
+    }
+
+    private void waitForHost(String host) throws IOException {
+        Long until = notBefore.get(host);
+        if (until == null) {
+            return;
+        }
+        long wait = until - System.currentTimeMillis();
+        if (wait <= 0) {
+            notBefore.remove(host, until);
+            return;
+        }
+        if (wait > MAX_WAIT_MILLIS) {
+            // Let the server answer, it reports the failure better than we could
+            return;
+        }
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting for " + host);
+        }
+    }
+
+    /**
+     * Parses a Retry-After header, which is either a number of seconds or an HTTP date.
+     *
+     * @return The delay in milliseconds or -1 if the header is missing or invalid.
+     */
+    public static long parseRetryAfter(@Nullable String header, long now) {
+        if (TextUtils.isEmpty(header)) {
+            return -1;
+        }
+        header = header.trim();
+        try {
+            long seconds = Math.min(Long.parseLong(header), MAX_RETRY_AFTER_SECONDS);
+            return Math.max(0, seconds * 1000);
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parse(header);
+            if (date == null) {
+                return -1;
+            }
+            return Math.max(0, date.getTime() - now);
+        }
+    }
+}
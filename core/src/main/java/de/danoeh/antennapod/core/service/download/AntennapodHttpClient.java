@@ -5,11 +5,16 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import de.danoeh.antennapod.core.preferences.UserPreferences;
 import de.danoeh.antennapod.core.service.BasicAuthorizationInterceptor;
+import de.danoeh.antennapod.core.service.CachingDns;
+import de.danoeh.antennapod.core.service.HostCircuitBreaker;
+import de.danoeh.antennapod.core.service.RetryAfterInterceptor;
 import de.danoeh.antennapod.core.service.UserAgentInterceptor;
 import de.danoeh.antennapod.core.storage.DBWriter;
 import de.danoeh.antennapod.net.ssl.SslClientSetup;
 import okhttp3.Cache;
+import okhttp3.ConnectionPool;
 import okhttp3.Credentials;
+import okhttp3.Dns;
 import okhttp3.HttpUrl;
 import okhttp3.JavaNetCookieJar;
 import okhttp3.OkHttpClient;
@@ -33,7 +38,17 @@ public class AntennapodHttpClient {
     private static final int CONNECTION_TIMEOUT = 10000;
     private static final int READ_TIMEOUT = 30000;
     private static final int MAX_CONNECTIONS = 8;
+    private static final int MIN_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long CACHE_SIZE = 20L * 1000000; // 20MB
     private static File cacheDirectory;
+    private static Cache cache;
+    private static final HostCircuitBreaker hostCircuitBreaker = new HostCircuitBreaker();
+    private static final RetryAfterInterceptor retryAfterInterceptor = new RetryAfterInterceptor();
+    private static final BandwidthLimiter bandwidthLimiter = new BandwidthLimiter();
+    private static final CachingDns dns = new CachingDns(Dns.SYSTEM);
+    private static ConnectionPool connectionPool;
+    private static int connectionPoolSize;
 
     private static volatile OkHttpClient httpClient = null;
 
@@ -55,6 +70,51 @@ public class AntennapodHttpClient {
         httpClient = newBuilder().build();
     }
 
+    /**
+     * Resizes the connection pool after the number of parallel downloads changed. The client keeps
+     * its other settings, so this does not need to set up a new client.
+     */
+    public static synchronized void updateConnectionPool() {
+        if (httpClient != null) {
+            httpClient = httpClient.newBuilder().connectionPool(obtainConnectionPool()).build();
+        }
+    }
+
+    /**
+     * Forgets cached DNS lookups, they might not be valid in the new network.
+     */
+    public static void onNetworkChanged() {
+        dns.clear();
+    }
+
+    /**
+     * Clients share one connection pool, so that connections survive a rebuild of the client.
+     * Every parallel download can keep two connections to its host alive, but the pool is never
+     * smaller than OkHttp's default.
+     */
+    private static synchronized ConnectionPool obtainConnectionPool() {
+        int size = Math.max(MIN_IDLE_CONNECTIONS,
+                DownloadScheduler.MAX_PARALLEL_REFRESHES_PER_HOST * UserPreferences.getParallelDownloads());
+        if (connectionPool == null || size != connectionPoolSize) {
+            if (connectionPool != null) {
+                connectionPool.evictAll();
+            }
+            connectionPool = new ConnectionPool(size, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES);
+            connectionPoolSize = size;
+        }
+        return connectionPool;
+    }
+
+    /**
+     * All clients use the same cache. Two caches in the same directory would overwrite each other's journal.
+     */
+    private static synchronized Cache obtainCache() {
+        if (cache == null) {
+            cache = new Cache(cacheDirectory, CACHE_SIZE);
+        }
+        return cache;
+    }
+
     /**
      * Creates a new HTTP client.  Most users should just use
      * getHttpClient() to get the standard AntennaPod client,
@@ -99,7 +159,11 @@ public class AntennapodHttpClient {
             }
             return response;
         });
+        builder.interceptors().add(hostCircuitBreaker);
         builder.interceptors().add(new BasicAuthorizationInterceptor());
+        builder.interceptors().add(retryAfterInterceptor);
+        builder.interceptors().add(bandwidthLimiter);
+        builder.eventListenerFactory(DownloadMetricsListener.FACTORY);
         builder.networkInterceptors().add(new UserAgentInterceptor());
 
         // set cookie handler
@@ -111,7 +175,9 @@ public class AntennapodHttpClient {
         builder.connectTimeout(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
         builder.readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS);
         builder.writeTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS);
-        builder.cache(new Cache(cacheDirectory, 20L * 1000000)); // 20MB
+        builder.cache(obtainCache());
+        builder.connectionPool(obtainConnectionPool());
+        builder.dns(dns);
 
         // configure redirects
         builder.followRedirects(true);
@@ -0,0 +1,147 @@
+package de.danoeh.antennapod.core.service.download;
+
+import androidx.annotation.NonNull;
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.model.feed.FeedMedia;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Shapes the bandwidth used by downloads. Feeds and media share one global limit each, and every
+ * download can additionally be limited on its own. Only requests made by {@link HttpDownloader} are
+ * throttled, so playback streaming through the same client is never slowed down. While streaming,
+ * downloads that were not started by the user are limited further, so that playback does not stall.
+ */
+public class BandwidthLimiter implements Interceptor {
+    private static final long STREAMING_BACKGROUND_BYTES_PER_SECOND = 128 * 1024;
+
+    private static final TokenBucket feedBucket = new TokenBucket(TokenBucket.UNLIMITED);
+    private static final TokenBucket mediaBucket = new TokenBucket(TokenBucket.UNLIMITED);
+    private static final TokenBucket streamingBucket = new TokenBucket(TokenBucket.UNLIMITED);
+    private static final Map<String, DownloadBucket> downloadBuckets = new HashMap<>();
+    private static volatile long perDownloadLimit = TokenBucket.UNLIMITED;
+    private static volatile boolean prioritizeStreaming = true;
+    private static volatile boolean streaming = false;
+
+    /**
+     * Reads the limits from the preferences. Downloads that are currently running use the new limits
+     * for the rest of their transfer.
+     */
+    public static void updateLimits() {
+        feedBucket.setRate(UserPreferences.getFeedBandwidthLimit());
+        mediaBucket.setRate(UserPreferences.getMediaBandwidthLimit());
+        perDownloadLimit = UserPreferences.getPerDownloadBandwidthLimit();
+        prioritizeStreaming = UserPreferences.isStreamingPrioritized();
+        updateStreamingBucket();
+    }
+
+    /**
+     * Called by the player when it starts or stops loading media from the network.
+     */
+    public static void setStreaming(boolean isStreaming) {
+        streaming = isStreaming;
+        updateStreamingBucket();
+    }
+
+    private static void updateStreamingBucket() {
+        streamingBucket.setRate(streaming && prioritizeStreaming
+                ? STREAMING_BACKGROUND_BYTES_PER_SECOND : TokenBucket.UNLIMITED);
+    }
+
+    @Override
+    @NonNull
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        ResponseBody body = response.body();
+        if (!(request.tag() instanceof DownloadRequest) || body == null) {
+            return response;
+        }
+        DownloadRequest downloadRequest = (DownloadRequest) request.tag();
+        Source throttled = new ThrottledSource(body.source(), downloadRequest);
+        return response.newBuilder()
+                .body(ResponseBody.create(body.contentType(), body.contentLength(), Okio.buffer(throttled)))
+                .build();
+    }
+
+    /**
+     * Segmented downloads fetch one file over several connections. These share the per-download limit,
+     * so the bucket is looked up by destination and released when the last connection is closed.
+     */
+    private static TokenBucket obtainDownloadBucket(String destination) {
+        synchronized (downloadBuckets) {
+            DownloadBucket bucket = downloadBuckets.get(destination);
+            if (bucket == null) {
+                bucket = new DownloadBucket();
+                downloadBuckets.put(destination, bucket);
+            }
+            bucket.users++;
+            return bucket.bucket;
+        }
+    }
+
+    private static void releaseDownloadBucket(String destination) {
+        synchronized (downloadBuckets) {
+            DownloadBucket bucket = downloadBuckets.get(destination);
+            if (bucket != null && --bucket.users <= 0) {
+                downloadBuckets.remove(destination);
+            }
+        }
+    }
+
+    private static class DownloadBucket {
+        final TokenBucket bucket = new TokenBucket(perDownloadLimit);
+        int users = 0;
+    }
+
+    private static class ThrottledSource extends ForwardingSource {
+        private final TokenBucket typeBucket;
+        private final TokenBucket downloadBucket;
+        private final boolean background;
+        private final String destination;
+        private boolean closed = false;
+
+        ThrottledSource(Source delegate, DownloadRequest request) {
+            super(delegate);
+            boolean isMedia = request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA;
+            this.typeBucket = isMedia ? mediaBucket : feedBucket;
+            this.destination = request.getDestination();
+            this.downloadBucket = obtainDownloadBucket(destination);
+            this.background = !request.isInitiatedByUser();
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+                typeBucket.acquire(read);
+                downloadBucket.setRate(perDownloadLimit);
+                downloadBucket.acquire(read);
+                if (background) {
+                    streamingBucket.acquire(read);
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                releaseDownloadBucket(destination);
+            }
+            super.close();
+        }
+    }
+}
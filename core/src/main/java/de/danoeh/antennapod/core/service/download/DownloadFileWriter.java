@@ -0,0 +1,126 @@
+package de.danoeh.antennapod.core.service.download;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the body of a download to a file. The data is collected in a large direct buffer and handed
+ * to the file channel in few big writes, without copying it through intermediate arrays. Progress is
+ * reported on a time budget instead of for every chunk. Optionally, the file is synced to storage
+ * periodically, so that the length of a partially downloaded file can be trusted when resuming after
+ * the device crashed or lost power.
+ */
+class DownloadFileWriter {
+    static final int BUFFER_SIZE = 256 * 1024;
+    static final long PROGRESS_INTERVAL_MILLIS = 500;
+    static final long SYNC_INTERVAL_BYTES = 16 * 1024 * 1024;
+    static final long NO_SYNC = 0;
+    private static final int MAX_POOLED_BUFFERS = 4;
+
+    private static final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+
+    interface ProgressListener {
+        void onProgress(long soFar);
+    }
+
+    private final FileChannel channel;
+    private final long syncIntervalBytes;
+    private volatile boolean cancelled;
+
+    /**
+     * @param channel Channel positioned where the data should be written
+     * @param syncIntervalBytes Sync the file after this many bytes, or {@link #NO_SYNC}
+     */
+    DownloadFileWriter(@NonNull FileChannel channel, long syncIntervalBytes) {
+        this.channel = channel;
+        this.syncIntervalBytes = syncIntervalBytes;
+    }
+
+    /**
+     * Copies the source to the file until the source is exhausted or the writer is cancelled.
+     * The listener is always called with the final position before this method returns.
+     *
+     * @param soFar Number of bytes that were already downloaded before
+     * @return Number of bytes downloaded in total, including soFar
+     */
+    long transfer(@NonNull ReadableByteChannel source, long soFar, @NonNull ProgressListener listener)
+            throws IOException {
+        ByteBuffer buffer = obtainBuffer();
+        long unsynced = 0;
+        long progressInterval = TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MILLIS);
+        long lastProgress = System.nanoTime();
+        try {
+            boolean endOfSource = false;
+            while (!cancelled && !endOfSource) {
+                int count;
+                try {
+                    count = source.read(buffer);
+                } catch (IOException e) {
+                    // Keep what was received, so that the download can be resumed from there
+                    soFar += write(buffer);
+                    throw e;
+                }
+                endOfSource = count == -1;
+                long now = System.nanoTime();
+                boolean progressDue = now - lastProgress >= progressInterval;
+                if (!endOfSource && buffer.hasRemaining() && !progressDue) {
+                    continue;
+                }
+                int written = write(buffer);
+                soFar += written;
+                unsynced += written;
+                if (syncIntervalBytes != NO_SYNC && (unsynced >= syncIntervalBytes || endOfSource)) {
+                    channel.force(false);
+                    unsynced = 0;
+                }
+                if (progressDue) {
+                    listener.onProgress(soFar);
+                    lastProgress = now;
+                }
+            }
+        } finally {
+            recycleBuffer(buffer);
+            listener.onProgress(soFar);
+        }
+        return soFar;
+    }
+
+    private int write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    private static ByteBuffer obtainBuffer() {
+        synchronized (bufferPool) {
+            ByteBuffer buffer = bufferPool.poll();
+            if (buffer != null) {
+                buffer.clear();
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private static void recycleBuffer(ByteBuffer buffer) {
+        synchronized (bufferPool) {
+            if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+                bufferPool.push(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package de.danoeh.antennapod.core.service.download;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import de.danoeh.antennapod.core.storage.DBWriter;
+import de.danoeh.antennapod.model.download.DownloadTiming;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+/**
+ * Measures the phases of HTTP requests made for downloads: DNS lookup, connect, TLS handshake,
+ * time to first byte and transfer of the body. Requests that do not belong to a download,
+ * for example from streaming or image loading, are not measured.
+ */
+class DownloadMetricsListener extends EventListener {
+    private static final String TAG = "DownloadMetrics";
+
+    static final EventListener.Factory FACTORY = call -> {
+        Object tag = call.request().tag();
+        if (tag instanceof DownloadRequest) {
+            return new DownloadMetricsListener((DownloadRequest) tag);
+        }
+        return EventListener.NONE;
+    };
+
+    private final DownloadRequest request;
+    private long callStart;
+    private long dnsStart;
+    private long dnsMillis = DownloadTiming.NOT_MEASURED;
+    private long connectStart;
+    private long connectMillis = DownloadTiming.NOT_MEASURED;
+    private long secureConnectStart;
+    private long tlsMillis = DownloadTiming.NOT_MEASURED;
+    private long firstByteMillis = DownloadTiming.NOT_MEASURED;
+    private long bodyStart;
+    private long transferMillis = DownloadTiming.NOT_MEASURED;
+    private long bytes;
+
+    private DownloadMetricsListener(DownloadRequest request) {
+        this.request = request;
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> addresses) {
+        dnsMillis = millisSince(dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+        tlsMillis = millisSince(secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy,
+                           @Nullable Protocol protocol) {
+        connectMillis = millisSince(connectStart);
+        if (tlsMillis != DownloadTiming.NOT_MEASURED) {
+            // Only the TCP part, the handshake is measured separately
+            connectMillis = Math.max(0, connectMillis - tlsMillis);
+        }
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        if (firstByteMillis == DownloadTiming.NOT_MEASURED) {
+            firstByteMillis = millisSince(callStart);
+        }
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        bodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        transferMillis = millisSince(bodyStart);
+        bytes = byteCount;
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        if (firstByteMillis == DownloadTiming.NOT_MEASURED || transferMillis == DownloadTiming.NOT_MEASURED) {
+            return; // Served from cache or body not read
+        }
+        DownloadTiming timing = new DownloadTiming(request.getFeedfileId(), request.getFeedfileType(),
+                call.request().url().host(), System.currentTimeMillis(), dnsMillis, connectMillis, tlsMillis,
+                firstByteMillis, transferMillis, bytes);
+        Log.d(TAG, timing.toString());
+        DBWriter.addDownloadTiming(timing);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        // Failures are recorded in the download log, partial timings would distort the histograms
+    }
+
+    private static long millisSince(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
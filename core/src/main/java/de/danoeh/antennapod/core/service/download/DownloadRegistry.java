@@ -0,0 +1,83 @@
+package de.danoeh.antennapod.core.service.download;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import de.danoeh.antennapod.model.feed.FeedMedia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The downloads of the download service, indexed by source URL, media ID and destination. Lookups do not
+ * lock and do not scan the list, so that episode lists can ask for the state of every row while binding.
+ * Readers that need all downloads get an immutable snapshot that is replaced whenever a download is
+ * added or removed.
+ *
+ * <p>A download that was cancelled stays in the registry until its thread finished. If the same file is
+ * requested again in the meantime, the indexes point to the new download.</p>
+ */
+class DownloadRegistry {
+    private final ConcurrentHashMap<String, Downloader> bySource = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Downloader> byMediaId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Downloader> byDestination = new ConcurrentHashMap<>();
+    private volatile List<Downloader> snapshot = Collections.emptyList();
+
+    synchronized void add(@NonNull Downloader downloader) {
+        DownloadRequest request = downloader.getDownloadRequest();
+        bySource.put(request.getSource(), downloader);
+        byDestination.put(request.getDestination(), downloader);
+        if (request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+            byMediaId.put(request.getFeedfileId(), downloader);
+        }
+        List<Downloader> list = new ArrayList<>(snapshot.size() + 1);
+        list.addAll(snapshot);
+        list.add(downloader);
+        snapshot = Collections.unmodifiableList(list);
+    }
+
+    synchronized void remove(@NonNull Downloader downloader) {
+        DownloadRequest request = downloader.getDownloadRequest();
+        bySource.remove(request.getSource(), downloader);
+        byDestination.remove(request.getDestination(), downloader);
+        byMediaId.remove(request.getFeedfileId(), downloader);
+        List<Downloader> list = new ArrayList<>(snapshot);
+        if (list.remove(downloader)) {
+            snapshot = Collections.unmodifiableList(list);
+        }
+    }
+
+    synchronized void clear() {
+        bySource.clear();
+        byDestination.clear();
+        byMediaId.clear();
+        snapshot = Collections.emptyList();
+    }
+
+    /**
+     * Returns all downloads, including cancelled ones that did not finish yet. The list does not change.
+     */
+    @NonNull
+    List<Downloader> snapshot() {
+        return snapshot;
+    }
+
+    int size() {
+        return snapshot.size();
+    }
+
+    @Nullable
+    Downloader getBySource(@NonNull String source) {
+        return bySource.get(source);
+    }
+
+    @Nullable
+    Downloader getByMediaId(long mediaId) {
+        return byMediaId.get(mediaId);
+    }
+
+    boolean isDestinationTaken(@NonNull String destination) {
+        return byDestination.containsKey(destination);
+    }
+}
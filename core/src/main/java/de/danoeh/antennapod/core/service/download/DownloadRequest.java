@@ -15,6 +15,10 @@ import de.danoeh.antennapod.model.feed.FeedMedia;
 public class DownloadRequest implements Parcelable {
     public static final String REQUEST_ARG_PAGE_NR = "page";
     public static final String REQUEST_ARG_LOAD_ALL_PAGES = "loadAllPages";
+    public static final String REQUEST_ARG_ACCEPT_FEED_DELTA = "acceptFeedDelta";
+    public static final String REQUEST_ARG_IS_FEED_DELTA = "isFeedDelta";
+    public static final String REQUEST_ARG_IS_IMPORT = "isImport";
+    public static final String REQUEST_ARG_CONTENT_TYPE = "contentType";
 
     private final String destination;
     private final String source;
@@ -22,6 +26,7 @@ public class DownloadRequest implements Parcelable {
     private String username;
     private String password;
     private String lastModified;
+    private String etag;
     private final boolean deleteOnFailure;
     private final long feedfileId;
     private final int feedfileType;
@@ -45,12 +50,14 @@ public class DownloadRequest implements Parcelable {
         this(builder.destination, builder.source, builder.title, builder.feedfileId, builder.feedfileType,
              builder.lastModified, builder.deleteOnFailure, builder.username, builder.password, false,
              builder.arguments != null ? builder.arguments : new Bundle(), builder.initiatedByUser);
+        this.etag = builder.etag;
     }
 
     private DownloadRequest(Parcel in) {
         this(in.readString(), in.readString(), in.readString(), in.readLong(), in.readInt(), in.readString(),
              in.readByte() > 0, nullIfEmpty(in.readString()), nullIfEmpty(in.readString()), in.readByte() > 0,
              in.readBundle(), in.readByte() > 0);
+        this.etag = nullIfEmpty(in.readString());
     }
 
     private DownloadRequest(String destination, String source, String title, long feedfileId, int feedfileType,
@@ -94,6 +101,7 @@ public class DownloadRequest implements Parcelable {
         dest.writeByte((mediaEnqueued) ? (byte) 1 : 0);
         dest.writeBundle(arguments);
         dest.writeByte(initiatedByUser ? (byte) 1 : 0);
+        dest.writeString(nonNullString(etag));
     }
 
     private static String nonNullString(String str) {
@@ -124,6 +132,7 @@ public class DownloadRequest implements Parcelable {
 
         if (lastModified != null ? !lastModified.equals(that.lastModified) : that.lastModified != null)
             return false;
+        if (etag != null ? !etag.equals(that.etag) : that.etag != null) return false;
         if (deleteOnFailure != that.deleteOnFailure) return false;
         if (feedfileId != that.feedfileId) return false;
         if (feedfileType != that.feedfileType) return false;
@@ -151,6 +160,7 @@ public class DownloadRequest implements Parcelable {
         result = 31 * result + (username != null ? username.hashCode() : 0);
         result = 31 * result + (password != null ? password.hashCode() : 0);
         result = 31 * result + (lastModified != null ? lastModified.hashCode() : 0);
+        result = 31 * result + (etag != null ? etag.hashCode() : 0);
         result = 31 * result + (deleteOnFailure ? 1 : 0);
         result = 31 * result + (int) (feedfileId ^ (feedfileId >>> 32));
         result = 31 * result + feedfileType;
@@ -237,6 +247,16 @@ public class DownloadRequest implements Parcelable {
         return lastModified;
     }
 
+    public DownloadRequest setEtag(@Nullable String etag) {
+        this.etag = etag;
+        return this;
+    }
+
+    @Nullable
+    public String getEtag() {
+        return etag;
+    }
+
     public boolean isDeleteOnFailure() {
         return deleteOnFailure;
     }
@@ -268,6 +288,7 @@ public class DownloadRequest implements Parcelable {
         private String username;
         private String password;
         private String lastModified;
+        private String etag;
         private boolean deleteOnFailure = false;
         private final long feedfileId;
         private final int feedfileType;
@@ -297,6 +318,7 @@ public class DownloadRequest implements Parcelable {
         public void setForce(boolean force) {
             if (force) {
                 lastModified = null;
+                etag = null;
             }
         }
 
@@ -310,6 +332,11 @@ public class DownloadRequest implements Parcelable {
             return this;
         }
 
+        public Builder etag(String etag) {
+            this.etag = etag;
+            return this;
+        }
+
         public Builder withAuthentication(String username, String password) {
             this.username = username;
             this.password = password;
@@ -322,6 +349,24 @@ public class DownloadRequest implements Parcelable {
             }
         }
 
+        /**
+         * Asks the server to only send the episodes added since the last download (RFC 3229, "A-IM: feed").
+         */
+        public void acceptFeedDelta(boolean acceptFeedDelta) {
+            if (acceptFeedDelta) {
+                arguments.putBoolean(REQUEST_ARG_ACCEPT_FEED_DELTA, true);
+            }
+        }
+
+        /**
+         * Marks the request as part of an OPML import. New feeds of an import are stored in batches.
+         */
+        public void setImport(boolean isImport) {
+            if (isImport) {
+                arguments.putBoolean(REQUEST_ARG_IS_IMPORT, true);
+            }
+        }
+
         public DownloadRequest build() {
             return new DownloadRequest(this);
         }
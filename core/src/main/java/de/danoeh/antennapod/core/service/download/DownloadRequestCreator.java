@@ -28,10 +28,13 @@ public class DownloadRequestCreator {
         String username = (feed.getPreferences() != null) ? feed.getPreferences().getUsername() : null;
         String password = (feed.getPreferences() != null) ? feed.getPreferences().getPassword() : null;
 
-        return new DownloadRequest.Builder(dest.toString(), feed)
+        DownloadRequest.Builder builder = new DownloadRequest.Builder(dest.toString(), feed)
                 .withAuthentication(username, password)
                 .deleteOnFailure(true)
-                .lastModified(feed.getLastUpdate());
+                .lastModified(feed.getLastUpdate())
+                .etag(feed.getEtag());
+        builder.acceptFeedDelta(UserPreferences.isFeedDeltaEnabled());
+        return builder;
     }
 
     public static DownloadRequest.Builder create(FeedMedia media) {
@@ -84,12 +87,7 @@ public class DownloadRequestCreator {
      * taken by another requested download.
      */
     private static boolean isFilenameAvailable(String path) {
-        for (Downloader downloader : DownloadService.downloads) {
-            if (downloader.request.getDestination().equals(path)) {
-                return false;
-            }
-        }
-        return true;
+        return !DownloadService.downloads.isDestinationTaken(path);
     }
 
     private static String getFeedfilePath() {
@@ -0,0 +1,47 @@
+package de.danoeh.antennapod.core.service.download;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Download requests that were handed to the download service from within the app process. Passing them
+ * in an intent would parcel every request through Binder and fail for large batches, so the intent only
+ * wakes up the service, which then drains this queue.
+ *
+ * <p>The queue is not persisted. The service is started right after requests are added, and media
+ * downloads are written to the download journal as soon as the service picks them up.</p>
+ */
+class DownloadRequestQueue {
+    static class Batch {
+        final List<DownloadRequest> requests;
+        final boolean cleanupMedia;
+
+        Batch(@NonNull List<DownloadRequest> requests, boolean cleanupMedia) {
+            this.requests = requests;
+            this.cleanupMedia = cleanupMedia;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Batch> batches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Requests of one batch are enqueued together, in their order.
+     *
+     * @param cleanupMedia Make room for the episodes of this batch before downloading them
+     */
+    void add(@NonNull List<DownloadRequest> requests, boolean cleanupMedia) {
+        batches.add(new Batch(requests, cleanupMedia));
+    }
+
+    @Nullable
+    Batch poll() {
+        return batches.poll();
+    }
+
+    boolean isEmpty() {
+        return batches.isEmpty();
+    }
+}
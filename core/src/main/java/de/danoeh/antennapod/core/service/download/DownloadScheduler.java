@@ -0,0 +1,218 @@
+package de.danoeh.antennapod.core.service.download;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.danoeh.antennapod.model.feed.Feed;
+import okhttp3.HttpUrl;
+
+/**
+ * Runs downloads on two separate pools, one for feeds and one for media files, so that a refresh
+ * does not wait behind large episode downloads and the other way round. Within a pool, requests
+ * started by the user run before automatic downloads, which run before background refreshes.
+ * Both pools can be resized while downloads are running.
+ * <p/>
+ * Each pool gets the number of parallel downloads from the settings, so refreshes and episode downloads
+ * together can use twice that number of threads. A large episode can also use up to that many connections.
+ * <p/>
+ * Only a few feed refreshes from the same host run at the same time. Further refreshes from that host
+ * wait without occupying a thread, so that the pool keeps working on other hosts. Media downloads are
+ * not limited per host, episodes of a feed usually come from the same host.
+ */
+public class DownloadScheduler {
+    private static final String TAG = "DownloadScheduler";
+
+    public static final int PRIORITY_USER = 0;
+    public static final int PRIORITY_AUTO_DOWNLOAD = 1;
+    public static final int PRIORITY_BACKGROUND_REFRESH = 2;
+
+    public static final int MAX_PARALLEL_REFRESHES_PER_HOST = 2;
+
+    private final Pool feedPool;
+    private final Pool mediaPool;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public DownloadScheduler(int parallelDownloads) {
+        this(parallelDownloads, MAX_PARALLEL_REFRESHES_PER_HOST);
+    }
+
+    public DownloadScheduler(int parallelDownloads, int maxParallelRefreshesPerHost) {
+        feedPool = new Pool(createExecutor("FeedDownloadThread", parallelDownloads), maxParallelRefreshesPerHost);
+        mediaPool = new Pool(createExecutor("MediaDownloadThread", parallelDownloads), Integer.MAX_VALUE);
+    }
+
+    private static ThreadPoolExecutor createExecutor(String threadName, int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, threadName);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+    }
+
+    /**
+     * Determines the priority of a request: user initiated requests before automatic
+     * episode downloads before background feed refreshes.
+     */
+    public static int getPriority(@NonNull DownloadRequest request) {
+        if (request.isInitiatedByUser()) {
+            return PRIORITY_USER;
+        } else if (request.getFeedfileType() == Feed.FEEDFILETYPE_FEED) {
+            return PRIORITY_BACKGROUND_REFRESH;
+        } else {
+            return PRIORITY_AUTO_DOWNLOAD;
+        }
+    }
+
+    /**
+     * Returns the host (including the port) the request goes to, or null for requests that
+     * are not sent over the network.
+     */
+    @Nullable
+    static String getHost(@NonNull DownloadRequest request) {
+        HttpUrl url = HttpUrl.parse(request.getSource());
+        if (url == null) {
+            return null;
+        }
+        return url.host() + ":" + url.port();
+    }
+
+    /**
+     * Runs the task on the pool that matches the type of the request.
+     */
+    public void execute(@NonNull DownloadRequest request, @NonNull Runnable task) {
+        Pool pool = request.getFeedfileType() == Feed.FEEDFILETYPE_FEED ? feedPool : mediaPool;
+        pool.execute(getHost(request), new PrioritizedTask(task, getPriority(request), sequence.getAndIncrement()));
+    }
+
+    /**
+     * Changes the number of parallel downloads of both pools. Running downloads continue,
+     * surplus threads end after their current download.
+     */
+    public void setParallelDownloads(int parallelDownloads) {
+        Log.d(TAG, "parallel downloads: " + parallelDownloads);
+        resize(feedPool.executor, parallelDownloads);
+        resize(mediaPool.executor, parallelDownloads);
+    }
+
+    private static void resize(ThreadPoolExecutor executor, int threads) {
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+
+    public int getParallelDownloads() {
+        return mediaPool.executor.getCorePoolSize();
+    }
+
+    public void shutdownNow() {
+        feedPool.executor.shutdownNow();
+        mediaPool.executor.shutdownNow();
+    }
+
+    /**
+     * Executor with per-host bookkeeping. Tasks for a host that already has the maximum number
+     * of running requests are parked and handed to the executor when one of them finishes.
+     */
+    private static class Pool {
+        final ThreadPoolExecutor executor;
+        private final int maxParallelPerHost;
+        private final Map<String, Integer> running = new HashMap<>();
+        private final Map<String, PriorityQueue<PrioritizedTask>> waiting = new HashMap<>();
+
+        Pool(ThreadPoolExecutor executor, int maxParallelPerHost) {
+            this.executor = executor;
+            this.maxParallelPerHost = maxParallelPerHost;
+        }
+
+        void execute(@Nullable String host, PrioritizedTask task) {
+            if (host == null) {
+                executor.execute(task);
+                return;
+            }
+            task.onFinished = () -> onFinished(host);
+            synchronized (this) {
+                Integer count = running.get(host);
+                if (count != null && count >= maxParallelPerHost) {
+                    PriorityQueue<PrioritizedTask> queue = waiting.get(host);
+                    if (queue == null) {
+                        queue = new PriorityQueue<>();
+                        waiting.put(host, queue);
+                    }
+                    queue.add(task);
+                    return;
+                }
+                running.put(host, count == null ? 1 : count + 1);
+            }
+            executor.execute(task);
+        }
+
+        private void onFinished(String host) {
+            PrioritizedTask next;
+            synchronized (this) {
+                PriorityQueue<PrioritizedTask> queue = waiting.get(host);
+                next = queue != null ? queue.poll() : null;
+                if (queue != null && queue.isEmpty()) {
+                    waiting.remove(host);
+                }
+                if (next == null) {
+                    int count = running.get(host) - 1;
+                    if (count == 0) {
+                        running.remove(host);
+                    } else {
+                        running.put(host, count);
+                    }
+                }
+            }
+            if (next != null && !executor.isShutdown()) {
+                executor.execute(next);
+            }
+        }
+    }
+
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Runnable task;
+        private final int priority;
+        private final long sequence;
+        Runnable onFinished;
+
+        PrioritizedTask(Runnable task, int priority, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                if (onFinished != null) {
+                    onFinished.run();
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.os.Build;
 import android.os.IBinder;
 import android.text.TextUtils;
@@ -18,8 +19,11 @@ import androidx.annotation.VisibleForTesting;
 import androidx.core.app.ServiceCompat;
 
 import androidx.core.content.ContextCompat;
+import androidx.preference.PreferenceManager;
 import de.danoeh.antennapod.core.R;
+import de.danoeh.antennapod.core.export.opml.OpmlElement;
 import de.danoeh.antennapod.core.feed.LocalFeedUpdater;
+import de.danoeh.antennapod.model.download.DownloadJournalEntry;
 import de.danoeh.antennapod.model.download.DownloadStatus;
 import org.apache.commons.io.FileUtils;
 import org.greenrobot.eventbus.EventBus;
@@ -27,9 +31,9 @@ import org.greenrobot.eventbus.EventBus;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -37,8 +41,10 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-import de.danoeh.antennapod.core.event.DownloadEvent;
+import de.danoeh.antennapod.core.util.LongList;
+import de.danoeh.antennapod.core.util.NetworkUtils;
 import de.danoeh.antennapod.core.util.download.ConnectionStateMonitor;
+import de.danoeh.antennapod.core.util.download.FeedRefreshSchedule;
 import de.danoeh.antennapod.event.FeedItemEvent;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedItem;
@@ -47,6 +53,7 @@ import de.danoeh.antennapod.core.preferences.UserPreferences;
 import de.danoeh.antennapod.core.service.download.handler.FailedDownloadHandler;
 import de.danoeh.antennapod.core.service.download.handler.FeedSyncTask;
 import de.danoeh.antennapod.core.service.download.handler.MediaDownloadedHandler;
+import de.danoeh.antennapod.core.service.download.handler.DownloadProgressTracker;
 import de.danoeh.antennapod.core.service.download.handler.PostDownloaderTask;
 import de.danoeh.antennapod.core.storage.DBReader;
 import de.danoeh.antennapod.core.storage.DBTasks;
@@ -54,38 +61,53 @@ import de.danoeh.antennapod.core.storage.DBWriter;
 import de.danoeh.antennapod.model.download.DownloadError;
 
 /**
- * Manages the download of feedfiles in the app. Downloads can be enqueued via the startService intent.
- * The argument of the intent is an instance of DownloadRequest in the EXTRA_REQUESTS field of
- * the intent.
+ * Manages the download of feedfiles in the app. Downloads are enqueued with {@link #download}, which hands
+ * the requests over in-process and starts the service with EXTRA_DRAIN_REQUEST_QUEUE to pick them up.
  * After the downloads have finished, the downloaded object will be passed on to a specific handler, depending on the
  * type of the feedfile.
  */
 public class DownloadService extends Service {
     private static final String TAG = "DownloadService";
     private static final int SCHED_EX_POOL_SIZE = 1;
+    private static final int PARSE_QUEUE_CAPACITY = 4;
+    private static final int MERGE_QUEUE_CAPACITY = 4;
+    private static final int PERSIST_QUEUE_CAPACITY = 16;
+    private static final int JOURNAL_UPDATE_INTERVAL_SECONDS = 5;
     public static final String ACTION_CANCEL_DOWNLOAD = "action.de.danoeh.antennapod.core.service.cancelDownload";
     public static final String ACTION_CANCEL_ALL_DOWNLOADS = "action.de.danoeh.antennapod.core.service.cancelAll";
     public static final String EXTRA_DOWNLOAD_URL = "downloadUrl";
-    public static final String EXTRA_REQUESTS = "downloadRequests";
+    public static final String EXTRA_DRAIN_REQUEST_QUEUE = "drainRequestQueue";
     public static final String EXTRA_REFRESH_ALL = "refreshAll";
     public static final String EXTRA_INITIATED_BY_USER = "initiatedByUser";
-    public static final String EXTRA_CLEANUP_MEDIA = "cleanupMedia";
+    public static final String EXTRA_RESUME_INTERRUPTED = "resumeInterrupted";
+    public static final String EXTRA_IMPORT_FEEDS = "importFeeds";
 
     public static boolean isRunning = false;
-
-    // Can be modified from another thread while iterating. Both possible race conditions are not critical:
-    // Remove while iterating: We think it is still downloading and don't start a new download with the same file.
-    // Add while iterating: We think it is not downloading and might start a second download with the same file.
-    static final List<Downloader> downloads = Collections.synchronizedList(new CopyOnWriteArrayList<>());
-    private final ExecutorService downloadHandleExecutor;
+    // The journal is only read once per process, later it only contains the downloads of the running service
+    private static volatile boolean journalRestored = false;
+
+    // Lookups and snapshots are thread-safe. Downloads are only added and removed on downloadEnqueueExecutor,
+    // so a check for a running download and the following add cannot interleave with another add.
+    static final DownloadRegistry downloads = new DownloadRegistry();
+    private static final DownloadRequestQueue requestQueue = new DownloadRequestQueue();
+    private static final FeedImportQueue<ImportedFeed> importQueue = new FeedImportQueue<>();
+    private final DownloadScheduler downloadScheduler;
     private final ExecutorService downloadEnqueueExecutor;
-
-    private final List<DownloadStatus> reportQueue = new ArrayList<>();
+    // Feed refreshes continue on these stages after the download, so that parsing a huge feed
+    // or waiting for the database does not block a download thread.
+    private final PipelineStage feedParseStage;
+    private final PipelineStage feedMergeStage;
+    private final PipelineStage feedPersistStage;
+    private static volatile List<PipelineStage> pipelineStages = Collections.emptyList();
+
+    // Written from the download threads and the feed persist stage
+    private final List<DownloadStatus> reportQueue = Collections.synchronizedList(new ArrayList<>());
     private DownloadServiceNotification notificationManager;
     private final NewEpisodesNotification newEpisodesNotification;
     private NotificationUpdater notificationUpdater;
     private ScheduledFuture<?> notificationUpdaterFuture;
     private ScheduledFuture<?> downloadPostFuture;
+    private final PostDownloaderTask postDownloaderTask = new PostDownloaderTask();
     private final ScheduledThreadPoolExecutor notificationUpdateExecutor;
     private static DownloaderFactory downloaderFactory = new DefaultDownloaderFactory();
     private ConnectionStateMonitor connectionMonitor;
@@ -107,12 +129,12 @@ public class DownloadService extends Service {
         downloadEnqueueExecutor.execute(newEpisodesNotification::loadCountersBeforeRefresh);
 
         Log.d(TAG, "parallel downloads: " + UserPreferences.getParallelDownloads());
-        downloadHandleExecutor = Executors.newFixedThreadPool(UserPreferences.getParallelDownloads(),
-            r -> {
-                Thread t = new Thread(r, "DownloadThread");
-                t.setPriority(Thread.MIN_PRIORITY);
-                return t;
-            });
+        downloadScheduler = new DownloadScheduler(UserPreferences.getParallelDownloads());
+        int processors = Runtime.getRuntime().availableProcessors();
+        feedParseStage = new PipelineStage("FeedParse", Math.max(1, processors - 1), PARSE_QUEUE_CAPACITY);
+        // DBTasks.updateFeed only locks per feed, but all merges end up writing through DBWriter's single thread
+        feedMergeStage = new PipelineStage("FeedMerge", Math.max(1, processors / 2), MERGE_QUEUE_CAPACITY);
+        feedPersistStage = new PipelineStage("FeedPersist", 1, PERSIST_QUEUE_CAPACITY);
         notificationUpdateExecutor = new ScheduledThreadPoolExecutor(SCHED_EX_POOL_SIZE,
                 r -> {
                     Thread t = new Thread(r, "NotificationUpdateExecutor");
@@ -126,6 +148,7 @@ public class DownloadService extends Service {
     public void onCreate() {
         Log.d(TAG, "Service started");
         isRunning = true;
+        pipelineStages = Collections.unmodifiableList(Arrays.asList(feedParseStage, feedMergeStage, feedPersistStage));
         notificationManager = new DownloadServiceNotification(this);
 
         IntentFilter cancelDownloadReceiverFilter = new IntentFilter();
@@ -137,12 +160,21 @@ public class DownloadService extends Service {
             connectionMonitor = new ConnectionStateMonitor();
             connectionMonitor.enable(getApplicationContext());
         }
+        PreferenceManager.getDefaultSharedPreferences(this)
+                .registerOnSharedPreferenceChangeListener(preferenceChangeListener);
+        BandwidthLimiter.updateLimits();
+        notificationUpdateExecutor.scheduleAtFixedRate(this::updateJournal,
+                JOURNAL_UPDATE_INTERVAL_SECONDS, JOURNAL_UPDATE_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
     public static void download(Context context, boolean cleanupMedia, DownloadRequest... requests) {
-        if (requests.length > 100) {
-            throw new IllegalArgumentException("Android silently drops intent payloads that are too large");
-        }
+        download(context, cleanupMedia, Arrays.asList(requests));
+    }
+
+    /**
+     * Enqueues the requests. There is no limit on the number of requests, they do not travel in the intent.
+     */
+    public static void download(Context context, boolean cleanupMedia, List<DownloadRequest> requests) {
         ArrayList<DownloadRequest> requestsToSend = new ArrayList<>();
         for (DownloadRequest request : requests) {
             if (!isDownloadingFile(request.getSource())) {
@@ -152,11 +184,20 @@ public class DownloadService extends Service {
         if (requestsToSend.isEmpty()) {
             return;
         }
+        requestQueue.add(requestsToSend, cleanupMedia);
         Intent launchIntent = new Intent(context, DownloadService.class);
-        launchIntent.putParcelableArrayListExtra(DownloadService.EXTRA_REQUESTS, requestsToSend);
-        if (cleanupMedia) {
-            launchIntent.putExtra(DownloadService.EXTRA_CLEANUP_MEDIA, true);
-        }
+        launchIntent.putExtra(DownloadService.EXTRA_DRAIN_REQUEST_QUEUE, true);
+        ContextCompat.startForegroundService(context, launchIntent);
+    }
+
+    /**
+     * Imports the feeds that were stored with {@link DBWriter#addPendingImports}. Only a few of them are
+     * downloaded at the same time. If the app is killed, the import continues with
+     * {@link #resumeInterruptedDownloads}.
+     */
+    public static void importFeeds(Context context) {
+        Intent launchIntent = new Intent(context, DownloadService.class);
+        launchIntent.putExtra(DownloadService.EXTRA_IMPORT_FEEDS, true);
         ContextCompat.startForegroundService(context, launchIntent);
     }
 
@@ -167,6 +208,25 @@ public class DownloadService extends Service {
         ContextCompat.startForegroundService(context, launchIntent);
     }
 
+    /**
+     * Resumes media downloads and OPML imports that were interrupted because the app was killed.
+     * Does not start the service if there are none.
+     */
+    public static void resumeInterruptedDownloads(Context context) {
+        if (isRunning || journalRestored) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        new Thread(() -> {
+            if (DBReader.getDownloadJournal().isEmpty() && DBReader.getPendingImports().isEmpty()) {
+                return;
+            }
+            Intent launchIntent = new Intent(appContext, DownloadService.class);
+            launchIntent.putExtra(DownloadService.EXTRA_RESUME_INTERRUPTED, true);
+            ContextCompat.startForegroundService(appContext, launchIntent);
+        }, "ResumeInterruptedDownloads").start();
+    }
+
     public static void cancel(Context context, String url) {
         if (!isRunning) {
             return;
@@ -190,7 +250,7 @@ public class DownloadService extends Service {
         if (!isRunning) {
             return false;
         }
-        for (Downloader downloader : downloads) {
+        for (Downloader downloader : downloads.snapshot()) {
             if (downloader.request.getFeedfileType() == Feed.FEEDFILETYPE_FEED && !downloader.cancelled) {
                 return true;
             }
@@ -199,38 +259,90 @@ public class DownloadService extends Service {
     }
 
     public static boolean isDownloadingFile(String downloadUrl) {
+        if (!isRunning || downloadUrl == null) {
+            return false;
+        }
+        Downloader downloader = downloads.getBySource(downloadUrl);
+        return downloader != null && !downloader.cancelled;
+    }
+
+    public static boolean isDownloadingMedia(long mediaId) {
         if (!isRunning) {
             return false;
         }
-        for (Downloader downloader : downloads) {
-            if (downloader.request.getSource().equals(downloadUrl) && !downloader.cancelled) {
-                return true;
-            }
+        Downloader downloader = downloads.getByMediaId(mediaId);
+        return downloader != null && !downloader.cancelled;
+    }
+
+    /**
+     * Returns the parse, merge and persist stages of the running service, for example to show their
+     * queue depth and latency. Returns an empty list if the service is not running.
+     */
+    @NonNull
+    public static List<PipelineStage> getPipelineStages() {
+        if (!isRunning) {
+            return Collections.emptyList();
         }
-        return false;
+        return pipelineStages;
     }
 
+    /**
+     * @return The progress of the running OPML import, or null if there is none.
+     */
+    @Nullable
+    public static FeedImportProgress getImportProgress() {
+        return importQueue.getProgress(System.currentTimeMillis());
+    }
+
+    @Nullable
     public static DownloadRequest findRequest(String downloadUrl) {
-        for (Downloader downloader : downloads) {
-            if (downloader.request.getSource().equals(downloadUrl)) {
-                return downloader.request;
-            }
-        }
-        return null;
+        Downloader downloader = downloadUrl != null ? downloads.getBySource(downloadUrl) : null;
+        return downloader != null ? downloader.request : null;
+    }
+
+    @Nullable
+    public static DownloadRequest findMediaRequest(long mediaId) {
+        Downloader downloader = downloads.getByMediaId(mediaId);
+        return downloader != null ? downloader.request : null;
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent != null && intent.hasExtra(EXTRA_REQUESTS)) {
-            Notification notification = notificationManager.updateNotifications(downloads);
+        if (intent != null && intent.getBooleanExtra(EXTRA_DRAIN_REQUEST_QUEUE, false)) {
+            Notification notification = notificationManager.updateNotifications(downloads.snapshot(),
+                    getImportProgress());
             startForeground(R.id.notification_downloading, notification);
             setupNotificationUpdaterIfNecessary();
-            downloadEnqueueExecutor.execute(() -> onDownloadQueued(intent));
+            downloadEnqueueExecutor.execute(this::resumeFromJournal);
+            downloadEnqueueExecutor.execute(this::drainRequestQueue);
         } else if (intent != null && intent.getBooleanExtra(EXTRA_REFRESH_ALL, false)) {
-            Notification notification = notificationManager.updateNotifications(downloads);
+            Notification notification = notificationManager.updateNotifications(downloads.snapshot(),
+                    getImportProgress());
             startForeground(R.id.notification_downloading, notification);
             setupNotificationUpdaterIfNecessary();
+            downloadEnqueueExecutor.execute(this::resumeFromJournal);
             downloadEnqueueExecutor.execute(() -> enqueueAll(intent));
+        } else if (intent != null && intent.getBooleanExtra(EXTRA_RESUME_INTERRUPTED, false)) {
+            Notification notification = notificationManager.updateNotifications(downloads.snapshot(),
+                    getImportProgress());
+            startForeground(R.id.notification_downloading, notification);
+            setupNotificationUpdaterIfNecessary();
+            downloadEnqueueExecutor.execute(() -> {
+                resumeFromJournal();
+                resumeImports();
+                postDownloaders();
+                stopServiceIfEverythingDone();
+            });
+        } else if (intent != null && intent.getBooleanExtra(EXTRA_IMPORT_FEEDS, false)) {
+            Notification notification = notificationManager.updateNotifications(downloads.snapshot(),
+                    getImportProgress());
+            startForeground(R.id.notification_downloading, notification);
+            setupNotificationUpdaterIfNecessary();
+            downloadEnqueueExecutor.execute(() -> {
+                resumeImports();
+                postDownloaders();
+                stopServiceIfEverythingDone();
+            });
         } else if (downloads.size() == 0) {
             shutdown();
         } else {
@@ -243,22 +355,32 @@ public class DownloadService extends Service {
     public void onDestroy() {
         Log.d(TAG, "Service shutting down");
         isRunning = false;
+        for (PipelineStage stage : pipelineStages) {
+            Log.d(TAG, stage.toString());
+        }
+        pipelineStages = Collections.emptyList();
 
         boolean showAutoDownloadReport = UserPreferences.showAutoDownloadReport();
         if (UserPreferences.showDownloadReport() || showAutoDownloadReport) {
-            notificationManager.updateReport(reportQueue, showAutoDownloadReport);
+            notificationManager.updateReport(new ArrayList<>(reportQueue), showAutoDownloadReport);
             reportQueue.clear();
         }
 
         unregisterReceiver(cancelDownloadReceiver);
+        PreferenceManager.getDefaultSharedPreferences(this)
+                .unregisterOnSharedPreferenceChangeListener(preferenceChangeListener);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             connectionMonitor.disable(getApplicationContext());
         }
 
-        EventBus.getDefault().postSticky(DownloadEvent.refresh(Collections.emptyList()));
+        postDownloaderTask.post(Collections.emptyList());
+        importQueue.clear(); // Continues from the pending imports in the database next time
         cancelNotificationUpdater();
         downloadEnqueueExecutor.shutdownNow();
-        downloadHandleExecutor.shutdownNow();
+        downloadScheduler.shutdownNow();
+        feedParseStage.shutdownNow();
+        feedMergeStage.shutdownNow();
+        feedPersistStage.shutdownNow();
         notificationUpdateExecutor.shutdownNow();
         if (downloadPostFuture != null) {
             downloadPostFuture.cancel(true);
@@ -280,7 +402,14 @@ public class DownloadService extends Service {
             e.printStackTrace();
         }
         try {
-            if (downloader.getResult().isSuccessful()) {
+            DownloadStatus status = downloader.getResult();
+            if (status.isNotModified()) {
+                handleNotModified(downloader);
+            } else if (status.isSuccessful() && status.getFeedfileType() == Feed.FEEDFILETYPE_FEED) {
+                // Blocks while the parse stage is full, so we do not download more than we can process
+                feedParseStage.submit(() -> parseFeed(downloader));
+                return;
+            } else if (status.isSuccessful()) {
                 handleSuccessfulDownload(downloader);
             } else {
                 handleFailedDownload(downloader);
@@ -288,12 +417,163 @@ public class DownloadService extends Service {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        finishDownload(downloader);
+    }
+
+    /**
+     * Runs on the parse stage. This method MUST NOT, in any case, throw an exception.
+     */
+    private void parseFeed(Downloader downloader) {
+        FeedSyncTask task = new FeedSyncTask(DownloadService.this, downloader.getDownloadRequest());
+        try {
+            boolean parsed = task.parse();
+            if (parsed && isImport(downloader.getDownloadRequest())) {
+                // New feeds of an import are stored in batches, not one transaction per feed
+                List<ImportedFeed> batch = importQueue.addToBatch(new ImportedFeed(downloader, task));
+                if (batch != null) {
+                    feedMergeStage.submit(() -> mergeImportedFeeds(batch));
+                }
+            } else if (parsed) {
+                feedMergeStage.submit(() -> mergeFeed(downloader, task));
+            } else {
+                feedPersistStage.submit(() -> persistFeedResult(downloader, task, false));
+            }
+            return;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        finishDownload(downloader);
+    }
+
+    /**
+     * Runs on the merge stage. This method MUST NOT, in any case, throw an exception.
+     */
+    private void mergeFeed(Downloader downloader, FeedSyncTask task) {
+        try {
+            task.merge();
+            feedPersistStage.submit(() -> persistFeedResult(downloader, task, true));
+            return;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        finishDownload(downloader);
+    }
+
+    /**
+     * Runs on the merge stage. Stores a batch of imported feeds, new feeds in a single transaction.
+     * This method MUST NOT, in any case, throw an exception.
+     */
+    private void mergeImportedFeeds(List<ImportedFeed> batch) {
+        int submitted = 0;
+        try {
+            List<FeedSyncTask> tasks = new ArrayList<>(batch.size());
+            for (ImportedFeed imported : batch) {
+                tasks.add(imported.task);
+            }
+            FeedSyncTask.mergeNewFeeds(DownloadService.this, tasks);
+            for (ImportedFeed imported : batch) {
+                feedPersistStage.submit(() -> persistFeedResult(imported.downloader, imported.task, true));
+                submitted++;
+            }
+            return;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        for (ImportedFeed imported : batch.subList(submitted, batch.size())) {
+            finishDownload(imported.downloader);
+        }
+    }
+
+    /**
+     * Runs on the persist stage. Writes the download log and shows notifications.
+     * This method MUST NOT, in any case, throw an exception.
+     */
+    private void persistFeedResult(Downloader downloader, FeedSyncTask task, boolean success) {
+        try {
+            DownloadRequest request = downloader.getDownloadRequest();
+            if (success && task.getSavedFeed() != null && task.getSavedFeed().getItems() != null) {
+                DBWriter.updateFeedRefreshSchedule(task.getSavedFeed());
+            }
+            if (!success) {
+                DBWriter.setFeedLastUpdateFailed(request.getFeedfileId(), true);
+                saveDownloadStatus(task.getDownloadStatus());
+            } else if (request.getFeedfileId() != 0) { // No download logs for new subscriptions
+                saveStatusIfLastRefreshFailed(request.getFeedfileId(), task.getDownloadStatus());
+                if (!request.isInitiatedByUser()) {
+                    // Was stored in the database before and not initiated manually
+                    newEpisodesNotification.showIfNeeded(DownloadService.this, task.getSavedFeed());
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        finishDownload(downloader);
+    }
+
+    private void finishDownload(Downloader downloader) {
+        DownloadRequest request = downloader.getDownloadRequest();
+        if (request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+            DBWriter.removeDownloadJournalEntry(request.getFeedfileId());
+        }
         downloadEnqueueExecutor.submit(() -> {
             downloads.remove(downloader);
+            if (isImport(request)) {
+                onImportFinished(request);
+            }
             stopServiceIfEverythingDone();
         });
     }
 
+    private static boolean isImport(DownloadRequest request) {
+        return request.getArguments().getBoolean(DownloadRequest.REQUEST_ARG_IS_IMPORT);
+    }
+
+    /**
+     * Adds the pending feeds of OPML imports to the import queue and starts the first of them.
+     */
+    private void resumeImports() {
+        List<DownloadRequest> requests = new ArrayList<>();
+        for (OpmlElement element : DBReader.getPendingImports()) {
+            Feed feed = new Feed(element.getXmlUrl(), null, element.getText());
+            DownloadRequest.Builder builder = DownloadRequestCreator.create(feed);
+            builder.setImport(true);
+            requests.add(builder.build());
+        }
+        Log.d(TAG, "Importing " + requests.size() + " feeds");
+        importQueue.add(requests, System.currentTimeMillis());
+        startNextImports();
+    }
+
+    private void startNextImports() {
+        // Enough feeds to keep all download threads busy while a batch is being collected
+        int window = FeedImportQueue.BATCH_SIZE + 2 * downloadScheduler.getParallelDownloads();
+        for (DownloadRequest request : importQueue.startNext(window)) {
+            if (!addNewRequest(request)) {
+                onImportFinished(request);
+            }
+        }
+    }
+
+    /**
+     * Runs on the enqueue thread when a feed of an import finished, successfully or not.
+     */
+    private void onImportFinished(DownloadRequest request) {
+        DBWriter.removePendingImport(request.getSource());
+        List<ImportedFeed> batch = importQueue.onFinished(request.getSource());
+        startNextImports();
+        if (batch == null) {
+            return;
+        }
+        try {
+            feedMergeStage.submit(() -> mergeImportedFeeds(batch));
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            for (ImportedFeed imported : batch) {
+                finishDownload(imported.downloader);
+            }
+        }
+    }
+
     /**
      * This method MUST NOT, in any case, throw an exception.
      * Otherwise, it hangs up the refresh thread pool.
@@ -309,41 +589,41 @@ public class DownloadService extends Service {
         } catch (Exception e) {
             e.printStackTrace();
         }
-        downloadEnqueueExecutor.submit(() -> {
-            downloads.remove(downloader);
-            stopServiceIfEverythingDone();
-        });
+        finishDownload(downloader);
     }
 
 
+    /**
+     * Creates a 'successful' download log entry if the feed's last refresh failed. Refreshes that
+     * keep succeeding are not logged, so that the log only shows changes.
+     */
+    private void saveStatusIfLastRefreshFailed(long feedId, DownloadStatus status) {
+        List<DownloadStatus> log = DBReader.getFeedDownloadLog(feedId);
+        if (log.size() > 0 && !log.get(0).isSuccessful()) {
+            saveDownloadStatus(status);
+        }
+    }
+
+    /**
+     * The server answered "304 Not Modified", so there is nothing to parse. Like a successful
+     * refresh, it is only logged if it ends a series of failures.
+     */
+    private void handleNotModified(Downloader downloader) {
+        DownloadRequest request = downloader.getDownloadRequest();
+        if (request.getFeedfileId() == 0) {
+            return;
+        }
+        saveStatusIfLastRefreshFailed(request.getFeedfileId(), downloader.getResult());
+        DBWriter.setFeedLastUpdateFailed(request.getFeedfileId(), false);
+        DBWriter.updateFeedRefreshScheduleNotModified(request.getFeedfileId());
+    }
+
     private void handleSuccessfulDownload(Downloader downloader) {
         DownloadRequest request = downloader.getDownloadRequest();
         DownloadStatus status = downloader.getResult();
         final int type = status.getFeedfileType();
 
-        if (type == Feed.FEEDFILETYPE_FEED) {
-            Log.d(TAG, "Handling completed Feed Download");
-            FeedSyncTask task = new FeedSyncTask(DownloadService.this, request);
-            boolean success = task.run();
-
-            if (success) {
-                if (request.getFeedfileId() == 0) {
-                    return; // No download logs for new subscriptions
-                }
-                // we create a 'successful' download log if the feed's last refresh failed
-                List<DownloadStatus> log = DBReader.getFeedDownloadLog(request.getFeedfileId());
-                if (log.size() > 0 && !log.get(0).isSuccessful()) {
-                    saveDownloadStatus(task.getDownloadStatus());
-                }
-                if (!request.isInitiatedByUser()) {
-                    // Was stored in the database before and not initiated manually
-                    newEpisodesNotification.showIfNeeded(DownloadService.this, task.getSavedFeed());
-                }
-            } else {
-                DBWriter.setFeedLastUpdateFailed(request.getFeedfileId(), true);
-                saveDownloadStatus(task.getDownloadStatus());
-            }
-        } else if (type == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+        if (type == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
             Log.d(TAG, "Handling completed FeedMedia Download");
             MediaDownloadedHandler handler = new MediaDownloadedHandler(DownloadService.this, status, request);
             handler.run();
@@ -362,8 +642,15 @@ public class DownloadService extends Service {
                     && Integer.parseInt(status.getReasonDetailed()) == 416) {
 
                 Log.d(TAG, "Requested invalid range, restarting download from the beginning");
-                FileUtils.deleteQuietly(new File(downloader.getDownloadRequest().getDestination()));
+                File destination = new File(downloader.getDownloadRequest().getDestination());
+                FileUtils.deleteQuietly(destination);
+                SegmentedDownload.deleteState(destination);
                 download(this, false, downloader.getDownloadRequest());
+            } else if (status.getReason() == DownloadError.ERROR_HOST_SKIPPED) {
+                // The host is unreachable, which says nothing about the feed or episode. It is only logged: no
+                // error notification, and it does not count as a failed update or auto-download attempt.
+                Log.d(TAG, "Download skipped: " + status.getReasonDetailed());
+                DBWriter.addDownloadStatus(status);
             } else {
                 Log.e(TAG, "Download failed");
                 saveDownloadStatus(status);
@@ -393,6 +680,19 @@ public class DownloadService extends Service {
         }
     }
 
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferenceChangeListener =
+            (sharedPreferences, key) -> {
+                if (UserPreferences.PREF_PARALLEL_DOWNLOADS.equals(key)) {
+                    downloadScheduler.setParallelDownloads(UserPreferences.getParallelDownloads());
+                    AntennapodHttpClient.updateConnectionPool();
+                } else if (UserPreferences.PREF_FEED_BANDWIDTH_LIMIT.equals(key)
+                        || UserPreferences.PREF_MEDIA_BANDWIDTH_LIMIT.equals(key)
+                        || UserPreferences.PREF_PER_DOWNLOAD_BANDWIDTH_LIMIT.equals(key)
+                        || UserPreferences.PREF_PRIORITIZE_STREAMING.equals(key)) {
+                    BandwidthLimiter.updateLimits();
+                }
+            };
+
     private final BroadcastReceiver cancelDownloadReceiver = new BroadcastReceiver() {
 
         @Override
@@ -413,9 +713,13 @@ public class DownloadService extends Service {
                 });
             } else if (TextUtils.equals(intent.getAction(), ACTION_CANCEL_ALL_DOWNLOADS)) {
                 downloadEnqueueExecutor.execute(() -> {
-                    for (Downloader d : downloads) {
+                    for (Downloader d : downloads.snapshot()) {
                         d.cancel();
                     }
+                    DBWriter.clearPendingImports();
+                    for (ImportedFeed imported : importQueue.clear()) {
+                        finishDownload(imported.downloader);
+                    }
                     Log.d(TAG, "Cancelled all downloads");
                     postDownloaders();
                     stopServiceIfEverythingDone();
@@ -426,40 +730,46 @@ public class DownloadService extends Service {
 
     private void doCancel(String url) {
         Log.d(TAG, "Cancelling download with url " + url);
-        for (Downloader downloader : downloads) {
-            if (downloader.cancelled || !downloader.getDownloadRequest().getSource().equals(url)) {
-                continue;
-            }
-            downloader.cancel();
-            DownloadRequest request = downloader.getDownloadRequest();
-            FeedItem item = getFeedItemFromId(request.getFeedfileId());
-            if (item != null) {
-                EventBus.getDefault().post(FeedItemEvent.updated(item));
-                // undo enqueue upon cancel
-                if (request.isMediaEnqueued()) {
-                    Log.v(TAG, "Undoing enqueue upon cancelling download");
-                    DBWriter.removeQueueItem(getApplicationContext(), false, item);
-                }
+        Downloader downloader = downloads.getBySource(url);
+        if (downloader == null || downloader.cancelled) {
+            return;
+        }
+        downloader.cancel();
+        DownloadRequest request = downloader.getDownloadRequest();
+        FeedItem item = getFeedItemFromId(request.getFeedfileId());
+        if (item != null) {
+            EventBus.getDefault().post(FeedItemEvent.updated(item));
+            // undo enqueue upon cancel
+            if (request.isMediaEnqueued()) {
+                Log.v(TAG, "Undoing enqueue upon cancelling download");
+                DBWriter.removeQueueItem(getApplicationContext(), false, item);
             }
         }
     }
 
-    private void onDownloadQueued(Intent intent) {
-        List<DownloadRequest> requests = intent.getParcelableArrayListExtra(EXTRA_REQUESTS);
-        if (requests == null) {
-            throw new IllegalArgumentException("ACTION_ENQUEUE_DOWNLOAD intent needs request extra");
+    /**
+     * Picks up all requests that were enqueued with {@link #download}. Several wake-up intents may
+     * arrive for requests that an earlier call already picked up, the queue is simply empty then.
+     */
+    private void drainRequestQueue() {
+        DownloadRequestQueue.Batch batch;
+        while ((batch = requestQueue.poll()) != null) {
+            onDownloadQueued(batch.requests, batch.cleanupMedia);
         }
+        postDownloaders();
+        stopServiceIfEverythingDone();
+    }
+
+    private void onDownloadQueued(List<DownloadRequest> requests, boolean cleanupMedia) {
         Log.d(TAG, "Received enqueue request. #requests=" + requests.size());
 
-        if (intent.getBooleanExtra(EXTRA_CLEANUP_MEDIA, false)) {
+        if (cleanupMedia) {
             UserPreferences.getEpisodeCleanupAlgorithm().makeRoomForEpisodes(getApplicationContext(), requests.size());
         }
 
         for (DownloadRequest request : requests) {
             addNewRequest(request);
         }
-        postDownloaders();
-        stopServiceIfEverythingDone();
 
         // Add to-download items to the queue before actual download completed
         // so that the resulting queue order is the same as when download is clicked
@@ -502,34 +812,104 @@ public class DownloadService extends Service {
     private void enqueueAll(Intent intent) {
         boolean initiatedByUser = intent.getBooleanExtra(EXTRA_INITIATED_BY_USER, false);
         List<Feed> feeds = DBReader.getFeedList();
+        LongList notDue = initiatedByUser ? new LongList(0) : FeedRefreshSchedule.getFeedsNotDue();
+        int skipped = 0;
         for (Feed feed : feeds) {
-            if (feed.getPreferences().getKeepUpdated()) {
-                DownloadRequest.Builder builder = DownloadRequestCreator.create(feed);
-                builder.setInitiatedByUser(initiatedByUser);
-                addNewRequest(builder.build());
+            if (!feed.getPreferences().getKeepUpdated()) {
+                continue;
             }
+            if (!feed.isLocalFeed() && notDue.contains(feed.getId())) {
+                skipped++;
+                continue;
+            }
+            DownloadRequest.Builder builder = DownloadRequestCreator.create(feed);
+            builder.setInitiatedByUser(initiatedByUser);
+            addNewRequest(builder.build());
         }
+        Log.d(TAG, "Skipped " + skipped + " feeds that are not due for a refresh or keep failing");
         postDownloaders();
         stopServiceIfEverythingDone();
     }
 
-    private void addNewRequest(@NonNull DownloadRequest request) {
+    /**
+     * Restarts the media downloads of the journal. They continue where they were interrupted,
+     * using the partially downloaded files.
+     */
+    private void resumeFromJournal() {
+        if (journalRestored) {
+            return;
+        }
+        journalRestored = true;
+        for (DownloadJournalEntry entry : DBReader.getDownloadJournal()) {
+            FeedMedia media = DBReader.getFeedMedia(entry.getMediaId());
+            if (media == null || media.isDownloaded()) {
+                DBWriter.removeDownloadJournalEntry(entry.getMediaId());
+                continue;
+            }
+            boolean allowed = entry.isInitiatedByUser()
+                    ? NetworkUtils.isEpisodeDownloadAllowed() : NetworkUtils.isAutoDownloadAllowed();
+            if (!allowed) {
+                Log.d(TAG, "Not resuming " + entry.getSource() + " on this network");
+                continue;
+            }
+            DownloadRequest.Builder builder = DownloadRequestCreator.create(media);
+            builder.setInitiatedByUser(entry.isInitiatedByUser());
+            DownloadRequest request = builder.build();
+            if (request.getDestination().equals(entry.getDestination())) {
+                request.setEtag(entry.getEtag());
+                request.setLastModified(entry.getLastModified());
+            }
+            Log.d(TAG, "Resuming interrupted download of " + entry.getSource() + " at " + entry.getSoFar());
+            addNewRequest(request);
+        }
+    }
+
+    /**
+     * Stores the progress of running media downloads, so that they can be resumed if the app is killed.
+     */
+    private void updateJournal() {
+        for (Downloader downloader : downloads.snapshot()) {
+            DownloadRequest request = downloader.getDownloadRequest();
+            if (request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+                // Checked again on the database thread, the download might finish before the entry is written
+                DBWriter.updateDownloadJournalEntry(toJournalEntry(request),
+                        () -> !downloader.isFinished() && !downloader.cancelled);
+            }
+        }
+    }
+
+    private static DownloadJournalEntry toJournalEntry(DownloadRequest request) {
+        return new DownloadJournalEntry(request.getFeedfileId(), request.getSource(), request.getDestination(),
+                request.isInitiatedByUser(), request.getSoFar(), request.getSize(),
+                request.getEtag(), request.getLastModified());
+    }
+
+    /**
+     * @return true if the request was started.
+     */
+    private boolean addNewRequest(@NonNull DownloadRequest request) {
         if (isDownloadingFile(request.getSource())) {
             Log.d(TAG, "Skipped enqueueing request. Already running.");
-            return;
+            return false;
         }
         Log.d(TAG, "Add new request: " + request.getSource());
         if (request.getSource().startsWith(Feed.PREFIX_LOCAL_FOLDER)) {
             Downloader downloader = new LocalFeedStubDownloader(request);
             downloads.add(downloader);
-            downloadHandleExecutor.submit(() -> performLocalFeedRefresh(downloader, request));
+            downloadScheduler.execute(request, () -> performLocalFeedRefresh(downloader, request));
+            return true;
         } else {
             writeFileUrl(request);
             Downloader downloader = downloaderFactory.create(request);
             if (downloader != null) {
                 downloads.add(downloader);
-                downloadHandleExecutor.submit(() -> performDownload(downloader));
+                if (request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+                    DBWriter.setDownloadJournalEntry(toJournalEntry(request));
+                }
+                downloadScheduler.execute(request, () -> performDownload(downloader));
+                return true;
             }
+            return false;
         }
     }
 
@@ -636,8 +1016,15 @@ public class DownloadService extends Service {
     }
 
     private class NotificationUpdater implements Runnable {
+        private final DownloadProgressTracker tracker = new DownloadProgressTracker();
+
         public void run() {
-            Notification n = notificationManager.updateNotifications(downloads);
+            List<Downloader> snapshot = downloads.snapshot();
+            FeedImportProgress importProgress = getImportProgress();
+            if (tracker.update(snapshot).isEmpty() && importProgress == null) {
+                return; // The notification would look the same
+            }
+            Notification n = notificationManager.updateNotifications(snapshot, importProgress);
             if (n != null) {
                 NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
                 nm.notify(R.id.notification_downloading, n);
@@ -646,11 +1033,21 @@ public class DownloadService extends Service {
     }
 
     private void postDownloaders() {
-        new PostDownloaderTask(downloads).run();
+        postDownloaderTask.post(downloads.snapshot());
 
         if (downloadPostFuture == null) {
             downloadPostFuture = notificationUpdateExecutor.scheduleAtFixedRate(
-                    new PostDownloaderTask(downloads), 1, 1, TimeUnit.SECONDS);
+                    () -> postDownloaderTask.post(downloads.snapshot()), 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static class ImportedFeed {
+        final Downloader downloader;
+        final FeedSyncTask task;
+
+        ImportedFeed(Downloader downloader, FeedSyncTask task) {
+            this.downloader = downloader;
+            this.task = task;
         }
     }
 
@@ -6,6 +6,7 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.os.Build;
 import android.util.Log;
+import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import de.danoeh.antennapod.core.ClientConfig;
 import de.danoeh.antennapod.core.R;
@@ -16,6 +17,7 @@ import de.danoeh.antennapod.model.feed.FeedMedia;
 import de.danoeh.antennapod.core.util.gui.NotificationUtils;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class DownloadServiceNotification {
     private static final String TAG = "DownloadSvcNotification";
@@ -46,8 +48,10 @@ public class DownloadServiceNotification {
     /**
      * Updates the contents of the service's notifications. Should be called
      * after setupNotificationBuilders.
+     *
+     * @param importProgress The progress of a running OPML import, or null.
      */
-    public Notification updateNotifications(List<Downloader> downloads) {
+    public Notification updateNotifications(List<Downloader> downloads, @Nullable FeedImportProgress importProgress) {
         if (notificationCompatBuilder == null) {
             return null;
         }
@@ -67,6 +71,13 @@ public class DownloadServiceNotification {
         if (!bigText.contains("\n")) {
             contentText = bigText;
         }
+        if (importProgress != null) {
+            contentTitle = context.getString(R.string.download_notification_title_import);
+            contentText = getImportProgressText(importProgress);
+            notificationCompatBuilder.setProgress(importProgress.getTotal(), importProgress.getFinished(), false);
+        } else {
+            notificationCompatBuilder.setProgress(0, 0, false);
+        }
 
         notificationCompatBuilder.setContentTitle(contentTitle);
         notificationCompatBuilder.setContentText(contentText);
@@ -74,6 +85,23 @@ public class DownloadServiceNotification {
         return notificationCompatBuilder.build();
     }
 
+    private String getImportProgressText(FeedImportProgress progress) {
+        if (progress.getRemainingMillis() == FeedImportProgress.UNKNOWN) {
+            return context.getString(R.string.import_progress, progress.getFinished(), progress.getTotal());
+        }
+        long remainingMinutes = TimeUnit.MILLISECONDS.toMinutes(progress.getRemainingMillis());
+        String remaining;
+        if (remainingMinutes >= 60) {
+            int hours = (int) TimeUnit.MINUTES.toHours(remainingMinutes);
+            remaining = context.getResources().getQuantityString(R.plurals.time_hours_quantified, hours, hours);
+        } else {
+            int minutes = (int) Math.max(1, remainingMinutes);
+            remaining = context.getResources().getQuantityString(R.plurals.time_minutes_quantified, minutes, minutes);
+        }
+        return context.getString(R.string.import_progress_remaining,
+                progress.getFinished(), progress.getTotal(), remaining);
+    }
+
     private boolean typeIsOnly(List<Downloader> downloads, int feedFileType) {
         for (Downloader downloader : downloads) {
             if (downloader.cancelled) {
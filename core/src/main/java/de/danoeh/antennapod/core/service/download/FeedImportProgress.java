@@ -0,0 +1,41 @@
+package de.danoeh.antennapod.core.service.download;
+
+/**
+ * How far a running OPML import got.
+ */
+public class FeedImportProgress {
+    public static final long UNKNOWN = -1;
+
+    private final int finished;
+    private final int total;
+    private final long remainingMillis;
+
+    public FeedImportProgress(int finished, int total, long remainingMillis) {
+        this.finished = finished;
+        this.total = total;
+        this.remainingMillis = remainingMillis;
+    }
+
+    /**
+     * @return The number of feeds that were imported or could not be imported.
+     */
+    public int getFinished() {
+        return finished;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The estimated time until the import is done, or {@link #UNKNOWN} at the beginning of the import.
+     */
+    public long getRemainingMillis() {
+        return remainingMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "FeedImportProgress{" + finished + "/" + total + ", remaining=" + remainingMillis + "ms}";
+    }
+}
@@ -0,0 +1,136 @@
+package de.danoeh.antennapod.core.service.download;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The feeds of an OPML import. Only a window of them is handed to the download service at a time, so
+ * that importing thousands of feeds does not put thousands of requests into the service at once. More
+ * feeds are started as others finish.
+ * <p/>
+ * Parsed feeds are collected into batches, so that new feeds can be stored in one transaction each.
+ * A batch is complete when it reached {@link #BATCH_SIZE} or when it contains all feeds that are still
+ * running, so that the last feeds of an import do not wait for more.
+ *
+ * @param <T> The parsed feeds
+ */
+class FeedImportQueue<T> {
+    static final int BATCH_SIZE = 10;
+    private static final int MIN_FINISHED_FOR_ESTIMATE = 5;
+
+    private final ArrayDeque<DownloadRequest> pending = new ArrayDeque<>();
+    private final Set<String> sources = new HashSet<>();
+    private List<T> batch = new ArrayList<>();
+    private int running = 0;
+    private int finished = 0;
+    private int total = 0;
+    private long startTime = 0;
+
+    /**
+     * Adds feeds to the import. Feeds that are already being imported are ignored.
+     */
+    synchronized void add(@NonNull List<DownloadRequest> requests, long now) {
+        for (DownloadRequest request : requests) {
+            if (sources.add(request.getSource())) {
+                pending.add(request);
+                total++;
+            }
+        }
+        if (startTime == 0 && total > 0) {
+            startTime = now;
+        }
+    }
+
+    /**
+     * Removes the next feeds to download, so that at most the given number of feeds is running.
+     */
+    @NonNull
+    synchronized List<DownloadRequest> startNext(int window) {
+        List<DownloadRequest> result = new ArrayList<>();
+        while (running < window && !pending.isEmpty()) {
+            result.add(pending.poll());
+            running++;
+        }
+        return result;
+    }
+
+    /**
+     * Adds a parsed feed to the current batch.
+     *
+     * @return The batch to store if it is complete, null otherwise.
+     */
+    @Nullable
+    synchronized List<T> addToBatch(@NonNull T parsedFeed) {
+        batch.add(parsedFeed);
+        return takeBatchIfComplete();
+    }
+
+    /**
+     * Called when a feed of the import finished, no matter if it was imported or not.
+     *
+     * @return The batch to store if it became complete because one less feed is running, null otherwise.
+     */
+    @Nullable
+    synchronized List<T> onFinished(@NonNull String source) {
+        if (!sources.remove(source)) {
+            return null;
+        }
+        running--;
+        finished++;
+        if (running == 0 && pending.isEmpty()) {
+            finished = 0;
+            total = 0;
+            startTime = 0;
+        }
+        return takeBatchIfComplete();
+    }
+
+    private List<T> takeBatchIfComplete() {
+        if (batch.isEmpty() || (batch.size() < BATCH_SIZE && batch.size() < running)) {
+            return null;
+        }
+        List<T> result = batch;
+        batch = new ArrayList<>();
+        return result;
+    }
+
+    /**
+     * Stops the import. Feeds that are running are not part of the import anymore.
+     *
+     * @return The parsed feeds of the current batch, which will not be stored.
+     */
+    @NonNull
+    synchronized List<T> clear() {
+        List<T> dropped = batch;
+        batch = new ArrayList<>();
+        pending.clear();
+        sources.clear();
+        running = 0;
+        finished = 0;
+        total = 0;
+        startTime = 0;
+        return dropped.isEmpty() ? Collections.emptyList() : dropped;
+    }
+
+    /**
+     * @return The progress of the import, or null if there is no import.
+     */
+    @Nullable
+    synchronized FeedImportProgress getProgress(long now) {
+        if (total == 0) {
+            return null;
+        }
+        long remaining = FeedImportProgress.UNKNOWN;
+        if (finished >= MIN_FINISHED_FOR_ESTIMATE) {
+            remaining = (now - startTime) * (total - finished) / finished;
+        }
+        return new FeedImportProgress(finished, total, remaining);
+    }
+}
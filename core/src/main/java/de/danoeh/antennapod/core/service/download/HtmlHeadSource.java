@@ -0,0 +1,89 @@
+package de.danoeh.antennapod.core.service.download;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Source;
+
+/**
+ * Ends a HTML document after its head. When the user enters the address of a website, only the
+ * {@code <link>} elements in the head are needed to discover its feeds, so the body of the page does
+ * not have to be transferred. The stream ends right after {@code </head} or {@code <body}.
+ */
+class HtmlHeadSource extends ForwardingSource {
+    private static final int SNIFF_BYTES = 512;
+    private static final byte[] HEAD_END = "</head".getBytes();
+    private static final byte[] BODY_START = "<body".getBytes();
+
+    private final Buffer pending = new Buffer();
+    private int headEndMatched = 0;
+    private int bodyStartMatched = 0;
+    private boolean endOfHead = false;
+
+    HtmlHeadSource(@NonNull Source delegate) {
+        super(delegate);
+    }
+
+    /**
+     * Checks whether a response is a HTML page and not a feed that is served with a HTML content type.
+     * Only the first bytes are looked at, they stay in the buffer of the source.
+     */
+    static boolean isHtml(@Nullable String contentType, @NonNull BufferedSource source) throws IOException {
+        if (contentType == null || !contentType.toLowerCase(Locale.US).contains("html")) {
+            return false;
+        }
+        source.request(SNIFF_BYTES);
+        Buffer start = new Buffer();
+        source.buffer().copyTo(start, 0, Math.min(SNIFF_BYTES, source.buffer().size()));
+        String text = start.readUtf8().replace("\uFEFF", "").trim().toLowerCase(Locale.US);
+        return text.startsWith("<!doctype html") || text.startsWith("<html");
+    }
+
+    /**
+     * @return true if the document was cut after its head.
+     */
+    boolean reachedEndOfHead() {
+        return endOfHead;
+    }
+
+    @Override
+    public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+        if (endOfHead) {
+            return -1;
+        }
+        long read = super.read(pending, byteCount);
+        if (read == -1) {
+            return -1;
+        }
+        for (long i = 0; i < read; i++) {
+            byte b = toLowerCase(pending.getByte(i));
+            headEndMatched = advance(HEAD_END, headEndMatched, b);
+            bodyStartMatched = advance(BODY_START, bodyStartMatched, b);
+            if (headEndMatched == HEAD_END.length || bodyStartMatched == BODY_START.length) {
+                endOfHead = true;
+                sink.write(pending, i + 1);
+                pending.clear();
+                return i + 1;
+            }
+        }
+        sink.write(pending, read);
+        return read;
+    }
+
+    private static int advance(byte[] pattern, int matched, byte b) {
+        if (pattern[matched] == b) {
+            return matched + 1;
+        }
+        return pattern[0] == b ? 1 : 0;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
@@ -1,18 +1,19 @@
 package de.danoeh.antennapod.core.service.download;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
 
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.core.service.HostCircuitBreaker;
 import de.danoeh.antennapod.core.util.NetworkUtils;
 import de.danoeh.antennapod.model.download.DownloadStatus;
 import okhttp3.CacheControl;
 import org.apache.commons.io.IOUtils;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
@@ -20,9 +21,9 @@ import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.UnknownHostException;
 import java.util.Collections;
-import java.util.Date;
 
 import de.danoeh.antennapod.core.R;
+import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedMedia;
 import de.danoeh.antennapod.parser.feed.util.DateUtils;
 import de.danoeh.antennapod.model.download.DownloadError;
@@ -33,12 +34,17 @@ import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.BufferedSource;
 import okio.ByteString;
+import okio.Okio;
 
 public class HttpDownloader extends Downloader {
     private static final String TAG = "HttpDownloader";
 
-    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int HTTP_IM_USED = 226;
+
+    private volatile SegmentedDownload segmentedDownload;
+    private volatile DownloadFileWriter writer;
 
     public HttpDownloader(@NonNull DownloadRequest request) {
         super(request);
@@ -47,7 +53,7 @@ public class HttpDownloader extends Downloader {
     @Override
     protected void download() {
         File destination = new File(request.getDestination());
-        final boolean fileExists = destination.exists();
+        boolean fileExists = destination.exists();
 
         if (request.isDeleteOnFailure() && fileExists) {
             Log.w(TAG, "File already exists");
@@ -57,7 +63,6 @@ public class HttpDownloader extends Downloader {
 
         OkHttpClient httpClient = AntennapodHttpClient.getHttpClient();
         RandomAccessFile out = null;
-        InputStream connection;
         ResponseBody responseBody = null;
 
         try {
@@ -73,27 +78,45 @@ public class HttpDownloader extends Downloader {
                 httpReq.cacheControl(new CacheControl.Builder().noCache().build()); // noStore breaks CDNs
             }
 
-            if (!TextUtils.isEmpty(request.getLastModified())) {
-                String lastModified = request.getLastModified();
-                Date lastModifiedDate = DateUtils.parse(lastModified);
-                if (lastModifiedDate != null) {
-                    long threeDaysAgo = System.currentTimeMillis() - 1000 * 60 * 60 * 24 * 3;
-                    if (lastModifiedDate.getTime() > threeDaysAgo) {
-                        Log.d(TAG, "addHeader(\"If-Modified-Since\", \"" + lastModified + "\")");
-                        httpReq.addHeader("If-Modified-Since", lastModified);
-                    }
-                } else {
-                    Log.d(TAG, "addHeader(\"If-None-Match\", \"" + lastModified + "\")");
-                    httpReq.addHeader("If-None-Match", lastModified);
-                }
+            if (request.getFeedfileType() != FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+                addValidators(httpReq);
+            }
+            if (request.getArguments().getBoolean(DownloadRequest.REQUEST_ARG_ACCEPT_FEED_DELTA)
+                    && !TextUtils.isEmpty(request.getEtag())) {
+                // The server needs the ETag of the version we have to compute the delta
+                httpReq.addHeader("A-IM", "feed");
             }
 
+            boolean isMedia = request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA;
+            if (isMedia && SegmentedDownload.hasState(destination)) {
+                if (resumeSegmented(httpClient, httpReq.build(), destination)) {
+                    return;
+                }
+                fileExists = destination.exists();
+            }
+            // DownloadService creates an empty destination file before the download starts
+            boolean nothingDownloaded = (!fileExists || destination.length() == 0)
+                    && !SegmentedDownload.hasState(destination);
+            boolean mayUseSegments = isMedia && nothingDownloaded && getSegmentCount() > 1;
+            if (mayUseSegments) {
+                // Tells whether the server supports ranges without an extra request. If it does, the rest of
+                // a large file is fetched over more connections while this one continues with the first part.
+                httpReq.addHeader("Range", "bytes=0-");
+            }
 
             // add range header if necessary
             if (fileExists && destination.length() > 0) {
                 request.setSoFar(destination.length());
                 httpReq.addHeader("Range", "bytes=" + request.getSoFar() + "-");
                 Log.d(TAG, "Adding range header: " + request.getSoFar());
+                // Only continue if the file on the server is still the one we started with
+                String validator = request.getEtag();
+                if (TextUtils.isEmpty(validator) || validator.startsWith("W/")) {
+                    validator = request.getLastModified(); // Weak ETags cannot be used for ranges
+                }
+                if (!TextUtils.isEmpty(validator)) {
+                    httpReq.addHeader("If-Range", validator);
+                }
             }
 
             Response response;
@@ -122,8 +145,8 @@ public class HttpDownloader extends Downloader {
             Log.d(TAG, "Response code is " + response.code());
 
             if (!response.isSuccessful() && response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
-                Log.d(TAG, "Feed '" + request.getSource() + "' not modified since last update, Download canceled");
-                onCancelled();
+                Log.d(TAG, "Feed '" + request.getSource() + "' not modified since last update");
+                result.setNotModified();
                 return;
             }
 
@@ -152,6 +175,12 @@ public class HttpDownloader extends Downloader {
                 return;
             }
 
+            if (request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+                // Known while the download runs, so that the download journal can store them for resuming
+                request.setEtag(response.header("ETag"));
+                request.setLastModified(response.header("Last-Modified"));
+            }
+
             // fail with a file type error when the content type is text and
             // the reported content length is less than 100kb (or no length is given)
             if (request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
@@ -174,7 +203,14 @@ public class HttpDownloader extends Downloader {
                 }
             }
 
-            connection = new BufferedInputStream(responseBody.byteStream());
+            if (mayUseSegments && response.code() == HttpURLConnection.HTTP_PARTIAL) {
+                long totalSize = SegmentedDownload.parseTotalSize(response.header("Content-Range"));
+                if (totalSize >= SegmentedDownload.MIN_SIZE) {
+                    downloadSegmented(httpClient, httpReq.build(), destination, totalSize,
+                            response.header("ETag"), response.header("Last-Modified"), response);
+                    return;
+                }
+            }
 
             String contentRangeHeader = (fileExists) ? response.header("Content-Range") : null;
 
@@ -196,8 +232,6 @@ public class HttpDownloader extends Downloader {
                 out = new RandomAccessFile(destination, "rw");
             }
 
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int count;
             request.setStatusMsg(R.string.download_running);
             Log.d(TAG, "Getting size of download");
             request.setSize(responseBody.contentLength() + request.getSoFar());
@@ -215,22 +249,38 @@ public class HttpDownloader extends Downloader {
             }
 
             Log.d(TAG, "Starting download");
+            // Media files are synced regularly, so that a resumed download does not continue after garbage
+            long syncInterval = request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA
+                    ? DownloadFileWriter.SYNC_INTERVAL_BYTES : DownloadFileWriter.NO_SYNC;
+            writer = new DownloadFileWriter(out.getChannel(), syncInterval);
+            if (cancelled) {
+                writer.cancel();
+            }
+            BufferedSource source = responseBody.source();
+            HtmlHeadSource htmlHead = null;
+            if (request.getFeedfileType() == Feed.FEEDFILETYPE_FEED
+                    && HtmlHeadSource.isHtml(response.header("Content-Type"), source)) {
+                Log.d(TAG, "Website instead of feed, only reading the head to discover feed links");
+                htmlHead = new HtmlHeadSource(source);
+                source = Okio.buffer(htmlHead);
+            }
             try {
-                while (!cancelled && (count = connection.read(buffer)) != -1) {
-                    out.write(buffer, 0, count);
-                    request.setSoFar(request.getSoFar() + count);
-                    int progressPercent = (int) (100.0 * request.getSoFar() / request.getSize());
-                    request.setProgressPercent(progressPercent);
-                }
+                writer.transfer(source, request.getSoFar(), soFar -> {
+                    request.setSoFar(soFar);
+                    if (request.getSize() > 0) {
+                        request.setProgressPercent((int) (100 * soFar / request.getSize()));
+                    }
+                });
             } catch (IOException e) {
                 Log.e(TAG, Log.getStackTraceString(e));
             }
+            boolean endOfHtmlHead = htmlHead != null && htmlHead.reachedEndOfHead();
             if (cancelled) {
                 onCancelled();
             } else {
                 // check if size specified in the response header is the same as the size of the
                 // written file. This check cannot be made if compression was used
-                if (!isGzip && request.getSize() != DownloadStatus.SIZE_UNKNOWN &&
+                if (!isGzip && !endOfHtmlHead && request.getSize() != DownloadStatus.SIZE_UNKNOWN &&
                         request.getSoFar() != request.getSize()) {
                     onFail(DownloadError.ERROR_IO_WRONG_SIZE, "Download completed but size: " +
                             request.getSoFar() + " does not equal expected size " + request.getSize());
@@ -239,11 +289,16 @@ public class HttpDownloader extends Downloader {
                     onFail(DownloadError.ERROR_IO_ERROR, "Download completed, but nothing was read");
                     return;
                 }
-                String lastModified = response.header("Last-Modified");
-                if (lastModified != null) {
-                    request.setLastModified(lastModified);
-                } else {
-                    request.setLastModified(response.header("ETag"));
+                request.setLastModified(response.header("Last-Modified"));
+                request.setEtag(response.header("ETag"));
+                if (request.getFeedfileType() == Feed.FEEDFILETYPE_FEED) {
+                    // Needed to decode the page if it is a website instead of a feed
+                    request.getArguments().putString(DownloadRequest.REQUEST_ARG_CONTENT_TYPE,
+                            response.header("Content-Type"));
+                }
+                if (response.code() == HTTP_IM_USED && isFeedDelta(response.header("IM"))) {
+                    Log.d(TAG, "Server sent only the changes since the last download");
+                    request.getArguments().putBoolean(DownloadRequest.REQUEST_ARG_IS_FEED_DELTA, true);
                 }
                 onSuccess();
             }
@@ -257,6 +312,9 @@ public class HttpDownloader extends Downloader {
         } catch (UnknownHostException e) {
             e.printStackTrace();
             onFail(DownloadError.ERROR_UNKNOWN_HOST, e.getMessage());
+        } catch (HostCircuitBreaker.CircuitOpenException e) {
+            Log.d(TAG, e.getMessage());
+            onFail(DownloadError.ERROR_HOST_SKIPPED, e.getMessage());
         } catch (IOException e) {
             e.printStackTrace();
             if (NetworkUtils.wasDownloadBlocked(e)) {
@@ -279,6 +337,151 @@ public class HttpDownloader extends Downloader {
         }
     }
 
+    /**
+     * Continues a download that was interrupted while it was fetched in segments. A one byte range request
+     * checks that the file on the server did not change.
+     *
+     * @return false if the download cannot be continued in segments, in which case the partial file was
+     *         deleted and the caller should download it over a single connection.
+     */
+    private boolean resumeSegmented(OkHttpClient httpClient, Request baseRequest, File destination)
+            throws IOException {
+        Request probe = baseRequest.newBuilder().header("Range", "bytes=0-0").build();
+        long size;
+        String etag;
+        String lastModified;
+        try (Response response = httpClient.newCall(probe).execute()) {
+            String contentType = response.header("Content-Type");
+            if (response.code() != HttpURLConnection.HTTP_PARTIAL
+                    || (contentType != null && contentType.startsWith("text/"))) {
+                Log.d(TAG, "Unable to resume segments (" + response.code() + ", " + contentType + ")");
+                discardSegments(destination);
+                return false;
+            }
+            size = SegmentedDownload.parseTotalSize(response.header("Content-Range"));
+            etag = response.header("ETag");
+            lastModified = response.header("Last-Modified");
+        }
+        if (size < SegmentedDownload.MIN_SIZE) {
+            discardSegments(destination);
+            return false;
+        }
+        downloadSegmented(httpClient, baseRequest, destination, size, etag, lastModified, null);
+        return true;
+    }
+
+    /**
+     * Downloads a large file over several connections.
+     *
+     * @param firstResponse An open response for the range starting at the first byte, which is used
+     *                      for the first segment. The caller closes it.
+     */
+    private void downloadSegmented(OkHttpClient httpClient, Request baseRequest, File destination, long size,
+                                   String etag, String lastModified, @Nullable Response firstResponse)
+            throws IOException {
+        if (!StorageUtils.storageAvailable()) {
+            onFail(DownloadError.ERROR_DEVICE_NOT_FOUND, null);
+            return;
+        }
+
+        String validator = etag != null ? etag : lastModified;
+        SegmentedDownload download = new SegmentedDownload(httpClient, baseRequest, destination, size,
+                validator, getSegmentCount());
+        long freeSpace = StorageUtils.getFreeSpaceAvailable();
+        if (size - download.getSoFar() > freeSpace) {
+            onFail(DownloadError.ERROR_NOT_ENOUGH_SPACE, null);
+            return;
+        }
+
+        request.setStatusMsg(R.string.download_running);
+        request.setSize(size);
+        request.setEtag(etag);
+        request.setLastModified(lastModified);
+        request.setSoFar(download.getSoFar());
+        Log.d(TAG, "Starting segmented download of " + size + " bytes at " + download.getSoFar());
+        segmentedDownload = download;
+        if (cancelled) {
+            download.cancel();
+        }
+        download.run(soFar -> {
+            request.setSoFar(soFar);
+            request.setProgressPercent((int) (100.0 * soFar / size));
+        }, firstResponse);
+
+        if (cancelled) {
+            onCancelled();
+        } else {
+            onSuccess();
+        }
+    }
+
+    private static boolean isFeedDelta(String instanceManipulations) {
+        if (instanceManipulations == null) {
+            return false;
+        }
+        for (String manipulation : instanceManipulations.split(",")) {
+            if ("feed".equalsIgnoreCase(manipulation.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends the validators of the last download, so that the server can answer with
+     * "304 Not Modified" instead of the full content if nothing changed.
+     */
+    private void addValidators(Request.Builder httpReq) {
+        String lastModified = request.getLastModified();
+        String etag = request.getEtag();
+        if (!TextUtils.isEmpty(lastModified) && DateUtils.parse(lastModified) == null && etag == null) {
+            // Older versions stored the ETag in place of the Last-Modified header
+            etag = lastModified;
+            lastModified = null;
+        }
+        if (!TextUtils.isEmpty(lastModified)) {
+            Log.d(TAG, "addHeader(\"If-Modified-Since\", \"" + lastModified + "\")");
+            httpReq.addHeader("If-Modified-Since", lastModified);
+        }
+        if (!TextUtils.isEmpty(etag)) {
+            Log.d(TAG, "addHeader(\"If-None-Match\", \"" + etag + "\")");
+            httpReq.addHeader("If-None-Match", etag);
+        }
+    }
+
+    /**
+     * Removes a file that was partially downloaded in segments. It contains gaps,
+     * so it cannot be resumed by a single connection.
+     */
+    private void discardSegments(File destination) {
+        if (SegmentedDownload.hasState(destination)) {
+            SegmentedDownload.deleteState(destination);
+            if (destination.exists() && !destination.delete()) {
+                Log.w(TAG, "Unable to delete partially downloaded file " + destination.getName());
+            }
+        }
+    }
+
+    /**
+     * A segmented download uses no more connections than the user allows parallel downloads.
+     */
+    private static int getSegmentCount() {
+        return Math.min(SegmentedDownload.SEGMENT_COUNT, UserPreferences.getParallelDownloads());
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        SegmentedDownload download = segmentedDownload;
+        if (download != null) {
+            download.cancel();
+        }
+        DownloadFileWriter fileWriter = writer;
+        if (fileWriter != null) {
+            fileWriter.cancel();
+        }
+    }
+
     private void onSuccess() {
         Log.d(TAG, "Download was successful");
         result.setSuccessful();
@@ -309,6 +512,7 @@ public class HttpDownloader extends Downloader {
                 boolean rc = dest.delete();
                 Log.d(TAG, "Deleted file " + dest.getName() + "; Result: "
                         + rc);
+                SegmentedDownload.deleteState(dest);
             } else {
                 Log.d(TAG, "cleanup() didn't delete file: does not exist.");
             }
@@ -0,0 +1,117 @@
+package de.danoeh.antennapod.core.service.download;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One stage of the feed refresh pipeline (for example parsing or merging) with its own threads.
+ * The number of waiting tasks is bounded. When the stage is full, {@link #submit(Runnable)} blocks,
+ * so a slow stage holds back the previous one instead of letting its results pile up in memory.
+ */
+public class PipelineStage {
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore slots;
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * @param name Name of the stage, used for thread names and statistics
+     * @param threads Number of tasks that run in parallel
+     * @param queueCapacity Number of tasks that can wait before submit() blocks
+     */
+    public PipelineStage(@NonNull String name, int threads, int queueCapacity) {
+        this.name = name;
+        this.slots = new Semaphore(threads + queueCapacity);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, name + "Thread");
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+    }
+
+    /**
+     * Runs the task on this stage. Blocks while the stage is full.
+     */
+    public void submit(@NonNull Runnable task) throws InterruptedException {
+        slots.acquire();
+        final long submitted = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    slots.release();
+                    recordLatency(System.nanoTime() - submitted);
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        completedTasks.incrementAndGet();
+        totalLatencyNanos.addAndGet(nanos);
+        long max = maxLatencyNanos.get();
+        while (nanos > max && !maxLatencyNanos.compareAndSet(max, nanos)) {
+            max = maxLatencyNanos.get();
+        }
+    }
+
+    public void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of tasks that have been submitted but not started yet.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedTaskCount() {
+        return completedTasks.get();
+    }
+
+    /**
+     * Average time between submitting a task and its completion, including the time spent in the queue.
+     */
+    public long getAverageLatencyMillis() {
+        long completed = completedTasks.get();
+        if (completed == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / completed);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: queued=%d, active=%d, completed=%d, avgLatency=%dms, maxLatency=%dms",
+                name, getQueueDepth(), getActiveCount(), getCompletedTaskCount(),
+                getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+}
@@ -0,0 +1,318 @@
+package de.danoeh.antennapod.core.service.download;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Downloads a file over several connections at once, each connection fetching one byte range of the file
+ * and writing it at its offset. The progress of every segment is kept in a state file next to the
+ * destination, so that an interrupted download continues where each segment stopped.
+ */
+class SegmentedDownload {
+    private static final String TAG = "SegmentedDownload";
+
+    /** Files smaller than this are downloaded over a single connection. */
+    static final long MIN_SIZE = 16 * 1024 * 1024;
+    static final int SEGMENT_COUNT = 4;
+
+    private static final int BUFFER_SIZE = 32 * 1024;
+    private static final long STATE_SAVE_INTERVAL_MILLIS = 2000;
+    private static final String STATE_SUFFIX = ".segments";
+
+    interface ProgressListener {
+        void onProgress(long soFar);
+    }
+
+    private final OkHttpClient httpClient;
+    private final Request baseRequest;
+    private final File destination;
+    private final long size;
+    private final String validator;
+    private final List<Segment> segments;
+    private final AtomicLong soFar = new AtomicLong();
+    private volatile boolean stopped;
+    private long lastStateSave;
+
+    SegmentedDownload(@NonNull OkHttpClient httpClient, @NonNull Request baseRequest, @NonNull File destination,
+                      long size, @Nullable String validator, int segmentCount) {
+        this.httpClient = httpClient;
+        this.baseRequest = baseRequest;
+        this.destination = destination;
+        this.size = size;
+        this.validator = validator != null ? validator : "";
+        List<Segment> resumed = destination.exists() ? loadState() : null;
+        this.segments = resumed != null ? resumed : split(size, segmentCount);
+        for (Segment segment : segments) {
+            soFar.addAndGet(segment.downloaded);
+        }
+    }
+
+    long getSoFar() {
+        return soFar.get();
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    void cancel() {
+        stopped = true;
+    }
+
+    /**
+     * Fetches all unfinished segments concurrently and returns when all of them are complete
+     * or the download has been cancelled.
+     *
+     * @param firstResponse An open response for a range that starts at the first byte of the file. It is used
+     *                      for the first segment instead of a new request. The caller closes it.
+     * @throws IOException if one of the segments could not be downloaded. The other segments
+     *                     are stopped and the progress of all segments is kept for resuming.
+     */
+    void run(@NonNull ProgressListener listener, @Nullable Response firstResponse) throws IOException {
+        Segment first = segments.get(0);
+        if (soFar.get() == 0) {
+            deleteState(destination);
+        }
+        RandomAccessFile file = new RandomAccessFile(destination, "rw");
+        ExecutorService executor = null;
+        try {
+            if (file.length() != size) {
+                file.setLength(size);
+            }
+            FileChannel channel = file.getChannel();
+            List<Future<?>> futures = new ArrayList<>();
+            executor = Executors.newFixedThreadPool(segments.size(), r -> {
+                Thread t = new Thread(r, "SegmentedDownload");
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+            for (Segment segment : segments) {
+                if (segment.remaining() > 0) {
+                    Response response = segment == first && segment.position() == 0 ? firstResponse : null;
+                    futures.add(executor.submit(() -> {
+                        fetch(segment, channel, listener, response);
+                        return null;
+                    }));
+                }
+            }
+            IOException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    stopped = true;
+                    if (failure == null) {
+                        failure = e.getCause() instanceof IOException
+                                ? (IOException) e.getCause() : new IOException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    stopped = true;
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            file.close();
+            if (isComplete()) {
+                deleteState(destination);
+            } else {
+                saveState();
+            }
+        }
+    }
+
+    boolean isComplete() {
+        for (Segment segment : segments) {
+            if (segment.remaining() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void fetch(Segment segment, FileChannel channel, ProgressListener listener,
+                       @Nullable Response openResponse) throws IOException {
+        Response initial = openResponse;
+        if (initial == null) {
+            Request request = baseRequest.newBuilder()
+                    .header("Range", "bytes=" + segment.position() + "-" + segment.end)
+                    .build();
+            Log.d(TAG, "Fetching bytes " + segment.position() + "-" + segment.end);
+            initial = httpClient.newCall(request).execute();
+        }
+        try (Response response = initial) {
+            ResponseBody body = response.body();
+            if (response.code() != HttpURLConnection.HTTP_PARTIAL || body == null) {
+                throw new IOException("Unexpected response code " + response.code() + " for segment");
+            }
+            InputStream in = body.byteStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while (!stopped && segment.remaining() > 0
+                    && (count = in.read(buffer, 0, (int) Math.min(buffer.length, segment.remaining()))) != -1) {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, count);
+                long position = segment.position();
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+                segment.downloaded += count;
+                listener.onProgress(soFar.addAndGet(count));
+                saveStatePeriodically();
+            }
+        }
+        if (!stopped && segment.remaining() > 0) {
+            throw new IOException("Connection closed before segment was complete");
+        }
+    }
+
+    private void saveStatePeriodically() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (now - lastStateSave < STATE_SAVE_INTERVAL_MILLIS) {
+                return;
+            }
+            lastStateSave = now;
+        }
+        saveState();
+    }
+
+    private synchronized void saveState() {
+        try (Writer writer = new FileWriter(stateFile(destination))) {
+            writer.write(size + " " + validator.replace('\n', ' ') + "\n");
+            for (Segment segment : segments) {
+                writer.write(segment.start + " " + segment.end + " " + segment.downloaded + "\n");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to save segment state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the segment state of a previous attempt. Returns null if there is none
+     * or if it belongs to a different version of the file.
+     */
+    @Nullable
+    private List<Segment> loadState() {
+        File stateFile = stateFile(destination);
+        if (!stateFile.exists()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(stateFile))) {
+            String header = reader.readLine();
+            if (header == null || !header.equals(size + " " + validator.replace('\n', ' '))) {
+                Log.d(TAG, "Segment state does not match the file on the server, starting over");
+                return null;
+            }
+            List<Segment> result = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 3) {
+                    return null;
+                }
+                Segment segment = new Segment(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+                segment.downloaded = Long.parseLong(parts[2]);
+                result.add(segment);
+            }
+            return result.isEmpty() ? null : result;
+        } catch (IOException | NumberFormatException e) {
+            Log.e(TAG, "Unable to read segment state: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @NonNull
+    static List<Segment> split(long size, int segmentCount) {
+        List<Segment> result = new ArrayList<>();
+        long segmentSize = (size + segmentCount - 1) / segmentCount;
+        for (long start = 0; start < size; start += segmentSize) {
+            result.add(new Segment(start, Math.min(size, start + segmentSize) - 1));
+        }
+        return result;
+    }
+
+    static File stateFile(File destination) {
+        return new File(destination.getPath() + STATE_SUFFIX);
+    }
+
+    static boolean hasState(File destination) {
+        return stateFile(destination).exists();
+    }
+
+    static void deleteState(File destination) {
+        File stateFile = stateFile(destination);
+        if (stateFile.exists() && !stateFile.delete()) {
+            Log.w(TAG, "Unable to delete " + stateFile.getName());
+        }
+    }
+
+    /**
+     * Returns the complete length of the resource from a Content-Range header like
+     * "bytes 0-0/1234", or -1 if it is missing or unknown.
+     */
+    static long parseTotalSize(@Nullable String contentRange) {
+        if (TextUtils.isEmpty(contentRange)) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static class Segment {
+        final long start;
+        final long end;
+        volatile long downloaded;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long position() {
+            return start + downloaded;
+        }
+
+        long remaining() {
+            return end - position() + 1;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.danoeh.antennapod.core.service.download;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which bytes can be transferred. Tokens are refilled continuously at the configured
+ * rate, up to a small burst. A transfer that takes more tokens than available leaves the bucket in debt,
+ * and the caller sleeps until the debt is paid off. This way, several threads that share a bucket
+ * together never exceed the rate, no matter how large their individual reads are.
+ */
+class TokenBucket {
+    static final long UNLIMITED = 0;
+    private static final long MIN_BURST_BYTES = 16 * 1024;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long bytesPerSecond;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.tokens = getBurst(bytesPerSecond);
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Changes the rate. Transfers that are currently waiting are not affected, later ones use the new rate.
+     *
+     * @param bytesPerSecond New rate, or {@link #UNLIMITED}
+     */
+    synchronized void setRate(long bytesPerSecond) {
+        if (this.bytesPerSecond == bytesPerSecond) {
+            return;
+        }
+        refill(System.nanoTime());
+        this.bytesPerSecond = bytesPerSecond;
+        tokens = Math.min(tokens, getBurst(bytesPerSecond));
+    }
+
+    synchronized long getRate() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Takes tokens for the given number of bytes, blocking until the rate allows the transfer.
+     */
+    void acquire(long bytes) throws InterruptedIOException {
+        long waitNanos = reserve(bytes, System.nanoTime());
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+        }
+    }
+
+    /**
+     * Takes tokens for the given number of bytes without blocking.
+     *
+     * @return Nanoseconds the caller needs to wait before transferring the bytes
+     */
+    synchronized long reserve(long bytes, long now) {
+        if (bytesPerSecond == UNLIMITED) {
+            return 0;
+        }
+        refill(now);
+        tokens -= bytes;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens * NANOS_PER_SECOND / bytesPerSecond);
+    }
+
+    private void refill(long now) {
+        if (bytesPerSecond != UNLIMITED) {
+            double refilled = (double) (now - lastRefill) * bytesPerSecond / NANOS_PER_SECOND;
+            tokens = Math.min(getBurst(bytesPerSecond), tokens + refilled);
+        }
+        lastRefill = now;
+    }
+
+    private static long getBurst(long bytesPerSecond) {
+        return Math.max(bytesPerSecond / 4, MIN_BURST_BYTES);
+    }
+}
@@ -0,0 +1,62 @@
+package de.danoeh.antennapod.core.service.download.handler;
+
+import androidx.annotation.NonNull;
+import de.danoeh.antennapod.core.service.download.DownloadRequest;
+import de.danoeh.antennapod.core.service.download.Downloader;
+import de.danoeh.antennapod.model.feed.Feed;
+import de.danoeh.antennapod.model.feed.FeedMedia;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the visible state of the downloads, so that only downloads that changed since the last check
+ * have to be published. The visible state is what the UI shows: the progress percentage of episodes and
+ * the number of processed episodes of local folders. Bytes that do not move the percentage are no change.
+ */
+public class DownloadProgressTracker {
+    private final Map<Downloader, Long> lastStates = new IdentityHashMap<>();
+
+    /**
+     * Returns the downloads that were added, changed or finished since the last call. Downloads that were
+     * cancelled count as finished. The result is empty if nothing changed.
+     */
+    @NonNull
+    public synchronized List<Downloader> update(@NonNull List<Downloader> downloads) {
+        List<Downloader> changed = new ArrayList<>();
+        Map<Downloader, Long> current = new IdentityHashMap<>();
+        for (Downloader downloader : downloads) {
+            if (downloader.cancelled) {
+                continue;
+            }
+            long state = getState(downloader.getDownloadRequest());
+            current.put(downloader, state);
+            Long lastState = lastStates.get(downloader);
+            if (lastState == null || lastState != state) {
+                changed.add(downloader);
+            }
+        }
+        Iterator<Downloader> finished = lastStates.keySet().iterator();
+        while (finished.hasNext()) {
+            Downloader downloader = finished.next();
+            if (!current.containsKey(downloader)) {
+                changed.add(downloader);
+            }
+        }
+        lastStates.clear();
+        lastStates.putAll(current);
+        return changed;
+    }
+
+    private static long getState(DownloadRequest request) {
+        if (request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+            return request.getProgressPercent();
+        } else if (request.getSource().startsWith(Feed.PREFIX_LOCAL_FOLDER)) {
+            return request.getSoFar();
+        }
+        return 0;
+    }
+}
@@ -33,6 +33,7 @@ public class FeedParserTask implements Callable<FeedHandlerResult> {
     @Override
     public FeedHandlerResult call() {
         Feed feed = new Feed(request.getSource(), request.getLastModified());
+        feed.setEtag(request.getEtag());
         feed.setFile_url(request.getDestination());
         feed.setId(request.getFeedfileId());
         feed.setDownloaded(true);
@@ -48,10 +49,7 @@ public class FeedParserTask implements Callable<FeedHandlerResult> {
         try {
             result = feedHandler.parseFeed(feed);
             Log.d(TAG, feed.getTitle() + " parsed");
-            checkFeedData(feed);
-            if (TextUtils.isEmpty(feed.getImageUrl())) {
-                feed.setImageUrl(Feed.PREFIX_GENERATIVE_COVER + feed.getDownload_url());
-            }
+            prepareParsedFeed(feed, request.getArguments().getBoolean(DownloadRequest.REQUEST_ARG_IS_FEED_DELTA));
         } catch (SAXException | IOException | ParserConfigurationException e) {
             successful = false;
             e.printStackTrace();
@@ -94,17 +92,30 @@ public class FeedParserTask implements Callable<FeedHandlerResult> {
         return successful;
     }
 
+    /**
+     * Checks a parsed feed and fills in what the database expects. Feeds that were parsed somewhere
+     * else, like for a preview, go through this before they are stored.
+     *
+     * @param isDelta true if the feed only contains the episodes added since the last refresh
+     */
+    public static void prepareParsedFeed(Feed feed, boolean isDelta) throws InvalidFeedException {
+        checkFeedData(feed);
+        if (TextUtils.isEmpty(feed.getImageUrl()) && !isDelta) {
+            feed.setImageUrl(Feed.PREFIX_GENERATIVE_COVER + feed.getDownload_url());
+        }
+    }
+
     /**
      * Checks if the feed was parsed correctly.
      */
-    private void checkFeedData(Feed feed) throws InvalidFeedException {
+    private static void checkFeedData(Feed feed) throws InvalidFeedException {
         if (feed.getTitle() == null) {
             throw new InvalidFeedException("Feed has no title");
         }
         checkFeedItems(feed);
     }
 
-    private void checkFeedItems(Feed feed) throws InvalidFeedException  {
+    private static void checkFeedItems(Feed feed) throws InvalidFeedException  {
         for (FeedItem item : feed.getItems()) {
             if (item.getTitle() == null) {
                 throw new InvalidFeedException("Item has no title: " + item);
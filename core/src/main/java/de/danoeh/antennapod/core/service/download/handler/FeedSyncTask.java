@@ -8,10 +8,18 @@ import de.danoeh.antennapod.model.download.DownloadStatus;
 import de.danoeh.antennapod.core.storage.DBTasks;
 import de.danoeh.antennapod.parser.feed.FeedHandlerResult;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a downloaded feed and merges it into the database.
+ * The two steps are separate so that they can run on different threads.
+ */
 public class FeedSyncTask {
     private final DownloadRequest request;
     private final Context context;
     private DownloadStatus downloadStatus;
+    private FeedHandlerResult result;
     private Feed savedFeed;
 
     public FeedSyncTask(Context context, DownloadRequest request) {
@@ -19,24 +27,48 @@ public class FeedSyncTask {
         this.context = context;
     }
 
-    public boolean run() {
+    /**
+     * Parses the downloaded file. Must be called before {@link #merge()}.
+     *
+     * @return true if the feed could be parsed
+     */
+    public boolean parse() {
         FeedParserTask task = new FeedParserTask(request);
-        FeedHandlerResult result = task.call();
+        result = task.call();
         downloadStatus = task.getDownloadStatus();
+        return task.isSuccessful();
+    }
 
-        if (!task.isSuccessful()) {
-            return false;
-        }
-
+    /**
+     * Stores the parsed feed in the database.
+     */
+    public void merge() {
+        // Never remove unlisted items: the feed might be a delta that only contains new episodes
         savedFeed = DBTasks.updateFeed(context, result.feed, false);
         // If loadAllPages=true, check if another page is available and queue it for download
         final boolean loadAllPages = request.getArguments().getBoolean(DownloadRequest.REQUEST_ARG_LOAD_ALL_PAGES);
         final Feed feed = result.feed;
+        result = null; // Release the parsed items as early as possible
         if (loadAllPages && feed.getNextPageLink() != null) {
             feed.setId(savedFeed.getId());
             DBTasks.loadNextPageOfFeed(context, feed, true);
         }
-        return true;
+    }
+
+    /**
+     * Stores several parsed feeds at once, new feeds are inserted in a single transaction.
+     * Replaces {@link #merge()} for feeds that were just subscribed to, like from an OPML import.
+     */
+    public static void mergeNewFeeds(Context context, List<FeedSyncTask> tasks) {
+        List<Feed> feeds = new ArrayList<>(tasks.size());
+        for (FeedSyncTask task : tasks) {
+            feeds.add(task.result.feed);
+        }
+        List<Feed> savedFeeds = DBTasks.addNewFeeds(context, feeds);
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).savedFeed = savedFeeds.get(i);
+            tasks.get(i).result = null;
+        }
     }
 
     public DownloadStatus getDownloadStatus() {
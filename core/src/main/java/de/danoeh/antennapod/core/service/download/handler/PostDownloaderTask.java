@@ -2,28 +2,39 @@ package de.danoeh.antennapod.core.service.download.handler;
 
 import de.danoeh.antennapod.core.event.DownloadEvent;
 import de.danoeh.antennapod.core.service.download.Downloader;
+import de.danoeh.antennapod.core.util.LongList;
+import de.danoeh.antennapod.model.feed.FeedMedia;
 import org.greenrobot.eventbus.EventBus;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class PostDownloaderTask implements Runnable {
-    private List<Downloader> downloads;
+/**
+ * Publishes the running downloads to the UI. Only downloads whose visible state changed are reported
+ * as changed, and nothing is posted at all while no download makes progress.
+ */
+public class PostDownloaderTask {
+    private final DownloadProgressTracker tracker = new DownloadProgressTracker();
 
-    public PostDownloaderTask(List<Downloader> downloads) {
-        this.downloads = downloads;
-    }
-
-    @Override
-    public void run() {
+    public synchronized void post(List<Downloader> downloads) {
+        List<Downloader> changed = tracker.update(downloads);
+        if (changed.isEmpty()) {
+            return;
+        }
         List<Downloader> runningDownloads = new ArrayList<>();
         for (Downloader downloader : downloads) {
             if (!downloader.cancelled) {
                 runningDownloads.add(downloader);
             }
         }
+        LongList changedMediaIds = new LongList(changed.size());
+        for (Downloader downloader : changed) {
+            if (downloader.getDownloadRequest().getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+                changedMediaIds.add(downloader.getDownloadRequest().getFeedfileId());
+            }
+        }
         List<Downloader> list = Collections.unmodifiableList(runningDownloads);
-        EventBus.getDefault().postSticky(DownloadEvent.refresh(list));
+        EventBus.getDefault().postSticky(DownloadEvent.update(list, changedMediaIds.toArray()));
     }
 }
@@ -5,6 +5,7 @@ import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.SurfaceHolder;
+import android.webkit.URLUtil;
 import androidx.annotation.NonNull;
 import androidx.core.util.Consumer;
 import com.google.android.exoplayer2.C;
@@ -38,6 +39,7 @@ import de.danoeh.antennapod.core.ClientConfig;
 import de.danoeh.antennapod.core.R;
 import de.danoeh.antennapod.core.preferences.UserPreferences;
 import de.danoeh.antennapod.core.service.download.AntennapodHttpClient;
+import de.danoeh.antennapod.core.service.download.BandwidthLimiter;
 import de.danoeh.antennapod.core.service.download.HttpDownloader;
 import de.danoeh.antennapod.core.util.NetworkUtils;
 import de.danoeh.antennapod.core.util.playback.IPlayer;
@@ -67,6 +69,7 @@ public class ExoPlayerWrapper implements IPlayer {
     private PlaybackParameters playbackParameters;
     private MediaPlayer.OnInfoListener infoListener;
     private DefaultTrackSelector trackSelector;
+    private boolean isNetworkSource = false;
 
     ExoPlayerWrapper(Context context) {
         this.context = context;
@@ -105,6 +108,16 @@ public class ExoPlayerWrapper implements IPlayer {
                 }
             }
 
+            @Override
+            public void onIsPlayingChanged(boolean isPlaying) {
+                updateStreaming();
+            }
+
+            @Override
+            public void onIsLoadingChanged(boolean isLoading) {
+                updateStreaming();
+            }
+
             @Override
             public void onPlayerError(@NonNull ExoPlaybackException error) {
                 if (audioErrorListener != null) {
@@ -136,6 +149,14 @@ public class ExoPlayerWrapper implements IPlayer {
         });
     }
 
+    /**
+     * Downloads are only slowed down while the player actually plays or buffers a stream,
+     * not while a paused stream sits in the background.
+     */
+    private void updateStreaming() {
+        BandwidthLimiter.setStreaming(isNetworkSource && (exoPlayer.isPlaying() || exoPlayer.isLoading()));
+    }
+
     @Override
     public boolean canDownmix() {
         return false;
@@ -177,6 +198,8 @@ public class ExoPlayerWrapper implements IPlayer {
 
     @Override
     public void release() {
+        isNetworkSource = false;
+        BandwidthLimiter.setStreaming(false);
         bufferingUpdateDisposable.dispose();
         if (exoPlayer != null) {
             exoPlayer.release();
@@ -189,6 +212,8 @@ public class ExoPlayerWrapper implements IPlayer {
 
     @Override
     public void reset() {
+        isNetworkSource = false;
+        BandwidthLimiter.setStreaming(false);
         exoPlayer.release();
         createPlayer();
     }
@@ -214,6 +239,7 @@ public class ExoPlayerWrapper implements IPlayer {
     public void setDataSource(String s, String user, String password)
             throws IllegalArgumentException, IllegalStateException {
         Log.d(TAG, "setDataSource: " + s);
+        isNetworkSource = URLUtil.isNetworkUrl(s);
         final OkHttpDataSource.Factory httpDataSourceFactory =
                 new OkHttpDataSource.Factory(AntennapodHttpClient.getHttpClient())
                         .setUserAgent(ClientConfig.USER_AGENT);
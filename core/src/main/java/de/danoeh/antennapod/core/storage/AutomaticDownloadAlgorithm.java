@@ -99,7 +99,7 @@ public class AutomaticDownloadAlgorithm {
                         request.setInitiatedByUser(false);
                         requests.add(request.build());
                     }
-                    DownloadService.download(context, false, requests.toArray(new DownloadRequest[0]));
+                    DownloadService.download(context, false, requests);
                 }
             }
         };
@@ -8,6 +8,7 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -23,8 +24,13 @@ import de.danoeh.antennapod.model.feed.FeedMedia;
 import de.danoeh.antennapod.model.feed.FeedPreferences;
 import de.danoeh.antennapod.core.feed.SubscriptionsFilter;
 import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.model.download.DownloadHistogram;
+import de.danoeh.antennapod.core.export.opml.OpmlElement;
+import de.danoeh.antennapod.model.download.DownloadJournalEntry;
 import de.danoeh.antennapod.model.download.DownloadStatus;
+import de.danoeh.antennapod.model.download.DownloadTiming;
 import de.danoeh.antennapod.storage.database.PodDBAdapter;
+import de.danoeh.antennapod.storage.database.mapper.DownloadJournalCursorMapper;
 import de.danoeh.antennapod.storage.database.mapper.DownloadStatusCursorMapper;
 import de.danoeh.antennapod.storage.database.mapper.ChapterCursorMapper;
 import de.danoeh.antennapod.storage.database.mapper.FeedCursorMapper;
@@ -56,6 +62,11 @@ public final class DBReader {
      */
     private static final int DOWNLOAD_LOG_SIZE = 200;
 
+    /**
+     * Number of weeks that count as recent in {@link #getDownloadPerformance()}.
+     */
+    public static final int DOWNLOAD_METRICS_RECENT_PERIODS = 4;
+
 
     private DBReader() {
     }
@@ -92,6 +103,69 @@ public final class DBReader {
         }
     }
 
+    /**
+     * Receives the rows of a query one at a time, so that large results do not need to be kept in memory.
+     */
+    public interface RowConsumer<T> {
+        /**
+         * @param position The position of the row, starting at 0
+         * @param count The number of rows of the query
+         */
+        void accept(T row, int position, int count) throws IOException;
+    }
+
+    /**
+     * Reads all feeds, sorted alphabetically by their title, without keeping them in memory.
+     * The Feed-objects do NOT have their list of FeedItems.
+     */
+    public static void forEachFeed(RowConsumer<Feed> consumer) throws IOException {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getAllFeedsCursor()) {
+            int count = cursor.getCount();
+            while (cursor.moveToNext()) {
+                consumer.accept(extractFeedFromCursorRow(cursor), cursor.getPosition(), count);
+            }
+        } finally {
+            adapter.close();
+        }
+    }
+
+    /**
+     * Reads all favorite items without keeping them in memory. The items are grouped by feed and sorted by
+     * publishing date in descending order within each feed. Their feed and media are set, but no other data
+     * like their tags or chapters.
+     */
+    public static void forEachFavoriteItem(RowConsumer<FeedItem> consumer) throws IOException {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getFavoritesByFeedCursor()) {
+            int count = cursor.getCount();
+            int indexMediaId = cursor.getColumnIndexOrThrow(PodDBAdapter.SELECT_KEY_MEDIA_ID);
+            Feed feed = null;
+            while (cursor.moveToNext()) {
+                FeedItem item = FeedItemCursorMapper.convert(cursor);
+                if (!cursor.isNull(indexMediaId)) {
+                    item.setMedia(FeedMediaCursorMapper.convert(cursor));
+                }
+                if (feed == null || feed.getId() != item.getFeedId()) {
+                    feed = getFeedWithoutItems(adapter, item.getFeedId());
+                }
+                item.setFeed(feed);
+                consumer.accept(item, cursor.getPosition(), count);
+            }
+        } finally {
+            adapter.close();
+        }
+    }
+
+    @Nullable
+    private static Feed getFeedWithoutItems(PodDBAdapter adapter, long feedId) {
+        try (Cursor cursor = adapter.getFeedCursor(feedId)) {
+            return cursor.moveToNext() ? extractFeedFromCursorRow(cursor) : null;
+        }
+    }
+
     /**
      * Returns a list with the download URLs of all feeds.
      *
@@ -362,6 +436,25 @@ public final class DBReader {
         }
     }
 
+    /**
+     * Loads the IDs of feeds that should not be refreshed automatically before the given time,
+     * because they failed to update repeatedly or are not expected to have new episodes.
+     */
+    @NonNull
+    public static LongList getFeedsNotDueForRefresh(long time) {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getFeedsNotDueForRefreshCursor(time)) {
+            LongList feedIds = new LongList(cursor.getCount());
+            while (cursor.moveToNext()) {
+                feedIds.add(cursor.getLong(0));
+            }
+            return feedIds;
+        } finally {
+            adapter.close();
+        }
+    }
+
     private static LongList getFavoriteIDList() {
         Log.d(TAG, "getFavoriteIDList() called");
 
@@ -462,6 +555,114 @@ public final class DBReader {
         }
     }
 
+    /**
+     * Loads the feeds of an OPML import that were not imported yet, in the order of the OPML file.
+     */
+    @NonNull
+    public static List<OpmlElement> getPendingImports() {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getPendingImportsCursor()) {
+            int urlIndex = cursor.getColumnIndexOrThrow(PodDBAdapter.KEY_DOWNLOAD_URL);
+            int titleIndex = cursor.getColumnIndexOrThrow(PodDBAdapter.KEY_TITLE);
+            List<OpmlElement> result = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                OpmlElement element = new OpmlElement();
+                element.setXmlUrl(cursor.getString(urlIndex));
+                element.setText(cursor.getString(titleIndex));
+                result.add(element);
+            }
+            return result;
+        } finally {
+            adapter.close();
+        }
+    }
+
+    /**
+     * Loads the media downloads that were running or queued when the download service stopped last.
+     */
+    @NonNull
+    public static List<DownloadJournalEntry> getDownloadJournal() {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getDownloadJournalCursor()) {
+            List<DownloadJournalEntry> journal = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                journal.add(DownloadJournalCursorMapper.convert(cursor));
+            }
+            return journal;
+        } finally {
+            adapter.close();
+        }
+    }
+
+    /**
+     * Loads the download timing histograms of all hosts and feeds. Only the recent weeks and the same number
+     * of weeks before are kept, see {@link #DOWNLOAD_METRICS_RECENT_PERIODS}.
+     */
+    @NonNull
+    public static DownloadPerformanceResult getDownloadPerformance() {
+        long currentPeriod = DownloadTiming.getPeriod(System.currentTimeMillis());
+        long firstRecentPeriod = currentPeriod - DOWNLOAD_METRICS_RECENT_PERIODS + 1;
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try {
+            Map<Long, Feed> feeds = new HashMap<>();
+            for (Feed feed : getFeedList(adapter)) {
+                feeds.put(feed.getId(), feed);
+            }
+            Map<String, DownloadPerformanceItem> hosts = new HashMap<>();
+            Map<Long, DownloadPerformanceItem> feedItems = new HashMap<>();
+            try (Cursor cursor = adapter.getDownloadMetricsCursor(
+                    firstRecentPeriod - DOWNLOAD_METRICS_RECENT_PERIODS)) {
+                int indexHost = cursor.getColumnIndexOrThrow(PodDBAdapter.KEY_HOST);
+                int indexFeed = cursor.getColumnIndexOrThrow(PodDBAdapter.KEY_FEED);
+                int indexPeriod = cursor.getColumnIndexOrThrow(PodDBAdapter.KEY_PERIOD);
+                int indexMetric = cursor.getColumnIndexOrThrow(PodDBAdapter.KEY_METRIC);
+                int indexBucket = cursor.getColumnIndexOrThrow(PodDBAdapter.KEY_BUCKET);
+                int indexCount = cursor.getColumnIndexOrThrow(PodDBAdapter.KEY_COUNT);
+                while (cursor.moveToNext()) {
+                    int metric = cursor.getInt(indexMetric);
+                    if (metric < 0 || metric >= DownloadHistogram.METRIC_COUNT) {
+                        continue;
+                    }
+                    boolean recent = cursor.getLong(indexPeriod) >= firstRecentPeriod;
+                    int bucket = cursor.getInt(indexBucket);
+                    long count = cursor.getLong(indexCount);
+
+                    String host = cursor.getString(indexHost);
+                    DownloadPerformanceItem hostItem = hosts.get(host);
+                    if (hostItem == null) {
+                        hostItem = new DownloadPerformanceItem(host, null);
+                        hosts.put(host, hostItem);
+                    }
+                    (recent ? hostItem.recent : hostItem.previous)[metric].addToBucket(bucket, count);
+
+                    Feed feed = feeds.get(cursor.getLong(indexFeed));
+                    if (feed != null) {
+                        DownloadPerformanceItem feedItem = feedItems.get(feed.getId());
+                        if (feedItem == null) {
+                            feedItem = new DownloadPerformanceItem(null, feed);
+                            feedItems.put(feed.getId(), feedItem);
+                        }
+                        (recent ? feedItem.recent : feedItem.previous)[metric].addToBucket(bucket, count);
+                    }
+                }
+            }
+            DownloadPerformanceResult result = new DownloadPerformanceResult();
+            result.hosts.addAll(hosts.values());
+            result.feeds.addAll(feedItems.values());
+            return result;
+        } finally {
+            adapter.close();
+        }
+    }
+
+    public static class DownloadPerformanceResult {
+        public final List<DownloadPerformanceItem> hosts = new ArrayList<>();
+        public final List<DownloadPerformanceItem> feeds = new ArrayList<>();
+    }
+
     /**
      * Loads the download log for a particular feed from the database.
      *
@@ -20,14 +20,17 @@ import org.greenrobot.eventbus.EventBus;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.danoeh.antennapod.core.R;
 import de.danoeh.antennapod.event.FeedItemEvent;
@@ -59,6 +62,13 @@ public final class DBTasks {
      */
     private static final ExecutorService autodownloadExec;
 
+    /**
+     * Feeds with the same identifying value are merged one after another.
+     * Merges of other feeds can run at the same time.
+     */
+    private static final StripedLock feedUpdateLocks = new StripedLock(64);
+    private static final Object newFeedsLock = new Object();
+
     private static AutomaticDownloadAlgorithm downloadAlgorithm = new AutomaticDownloadAlgorithm();
 
     static {
@@ -278,15 +288,98 @@ public final class DBTasks {
      * <p/>
      * This method can update multiple feeds at once. Submitting a feed twice in the same method call can result in undefined behavior.
      * <p/>
+     * Feeds with the same identifying value are updated one after another, different feeds can be updated in parallel.
+     * <p/>
      * This method should NOT be executed on the GUI thread.
      *
      * @param context Used for accessing the DB.
      * @param newFeed The new Feed object.
      * @param removeUnlistedItems The item list in the new Feed object is considered to be exhaustive.
      *                            I.e. items are removed from the database if they are not in this item list.
+     *                            Must be false for partial item lists, like feed deltas (RFC 3229).
      * @return The updated Feed from the database if it already existed, or the new Feed from the parameters otherwise.
      */
-    public static synchronized Feed updateFeed(Context context, Feed newFeed, boolean removeUnlistedItems) {
+    public static Feed updateFeed(Context context, Feed newFeed, boolean removeUnlistedItems) {
+        ReentrantLock lock = feedUpdateLocks.get(newFeed.getIdentifyingValue());
+        lock.lock();
+        try {
+            return updateFeedLocked(context, newFeed, removeUnlistedItems);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores feeds that were just subscribed to, for example by an OPML import. Feeds that are not in
+     * the database yet are inserted in a single transaction, instead of one transaction per feed.
+     * Feeds that already exist are updated like in {@link #updateFeed(Context, Feed, boolean)}.
+     * <p/>
+     * This method should NOT be executed on the GUI thread.
+     *
+     * @return The feeds from the database, in the same order as the parameter.
+     */
+    public static List<Feed> addNewFeeds(Context context, List<Feed> newFeeds) {
+        // Only one thread at a time holds more than one of the feed locks, so they cannot deadlock
+        synchronized (newFeedsLock) {
+            List<ReentrantLock> locks = new ArrayList<>(newFeeds.size());
+            for (Feed feed : newFeeds) {
+                ReentrantLock lock = feedUpdateLocks.get(feed.getIdentifyingValue());
+                lock.lock();
+                locks.add(lock);
+            }
+            try {
+                return addNewFeedsLocked(context, newFeeds);
+            } finally {
+                for (ReentrantLock lock : locks) {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private static List<Feed> addNewFeedsLocked(Context context, List<Feed> newFeeds) {
+        Set<String> knownFeeds = new HashSet<>();
+        for (Feed feed : DBReader.getFeedList()) {
+            knownFeeds.add(feed.getIdentifyingValue());
+        }
+        boolean[] isNew = new boolean[newFeeds.size()];
+        List<Feed> feedsToAdd = new ArrayList<>();
+        for (int i = 0; i < newFeeds.size(); i++) {
+            Feed newFeed = newFeeds.get(i);
+            if (newFeed.getId() != 0 || !knownFeeds.add(newFeed.getIdentifyingValue())) {
+                continue;
+            }
+            // all new feeds will have the most recent item marked as unplayed
+            FeedItem mostRecent = newFeed.getMostRecentItem();
+            if (mostRecent != null) {
+                mostRecent.setNew();
+            }
+            isNew[i] = true;
+            feedsToAdd.add(newFeed);
+        }
+        if (!feedsToAdd.isEmpty()) {
+            Log.d(TAG, "Adding " + feedsToAdd.size() + " new feeds in one transaction");
+            try {
+                DBWriter.addNewFeed(context, feedsToAdd.toArray(new Feed[0])).get();
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+            EventBus.getDefault().post(new FeedListUpdateEvent(Collections.emptyList()));
+        }
+
+        List<Feed> result = new ArrayList<>(newFeeds.size());
+        for (int i = 0; i < newFeeds.size(); i++) {
+            if (isNew[i]) {
+                // Update with default values that are set in database
+                result.add(DBReader.getFeed(newFeeds.get(i).getId()));
+            } else {
+                result.add(updateFeedLocked(context, newFeeds.get(i), false));
+            }
+        }
+        return result;
+    }
+
+    private static Feed updateFeedLocked(Context context, Feed newFeed, boolean removeUnlistedItems) {
         Feed resultFeed;
         List<FeedItem> unlistedItems = new ArrayList<>();
 
@@ -418,6 +511,7 @@ public final class DBTasks {
 
             // update attributes
             savedFeed.setLastUpdate(newFeed.getLastUpdate());
+            savedFeed.setEtag(newFeed.getEtag());
             savedFeed.setType(newFeed.getType());
             savedFeed.setLastUpdateFailed(false);
 
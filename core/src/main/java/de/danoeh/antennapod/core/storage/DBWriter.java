@@ -2,6 +2,8 @@ package de.danoeh.antennapod.core.storage;
 
 import android.app.backup.BackupManager;
 import android.content.Context;
+import android.database.Cursor;
+import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -15,9 +17,12 @@ import org.greenrobot.eventbus.EventBus;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -25,6 +30,7 @@ import java.util.concurrent.TimeUnit;
 
 import de.danoeh.antennapod.core.R;
 import de.danoeh.antennapod.core.event.DownloadLogEvent;
+import de.danoeh.antennapod.core.export.opml.OpmlElement;
 import de.danoeh.antennapod.event.FavoritesEvent;
 import de.danoeh.antennapod.event.FeedItemEvent;
 import de.danoeh.antennapod.event.FeedListUpdateEvent;
@@ -35,6 +41,8 @@ import de.danoeh.antennapod.event.UnreadItemsUpdateEvent;
 import de.danoeh.antennapod.core.feed.FeedEvent;
 import de.danoeh.antennapod.core.preferences.PlaybackPreferences;
 import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.model.download.DownloadJournalEntry;
+import de.danoeh.antennapod.model.download.DownloadTiming;
 import de.danoeh.antennapod.model.download.DownloadStatus;
 import de.danoeh.antennapod.core.service.playback.PlaybackService;
 import de.danoeh.antennapod.core.sync.queue.SynchronizationQueueSink;
@@ -42,6 +50,8 @@ import de.danoeh.antennapod.core.util.FeedItemPermutors;
 import de.danoeh.antennapod.core.util.IntentUtils;
 import de.danoeh.antennapod.core.util.LongList;
 import de.danoeh.antennapod.core.util.Permutor;
+import de.danoeh.antennapod.core.util.URLChecker;
+import de.danoeh.antennapod.core.util.download.FeedRefreshSchedule;
 import de.danoeh.antennapod.core.util.playback.PlayableUtils;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedItem;
@@ -147,6 +157,101 @@ public abstract class DBWriter {
 
     }
 
+    /**
+     * Stores the progress of a running media download, so that it can be resumed after the app was killed.
+     */
+    public static Future<?> setDownloadJournalEntry(final DownloadJournalEntry entry) {
+        return dbExec.submit(() -> {
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            adapter.setDownloadJournalEntry(entry);
+            adapter.close();
+        });
+    }
+
+    /**
+     * Stores the progress of a media download if it is still running when the database gets to it.
+     * The check runs on the database thread, so an entry that was removed for a finished or cancelled
+     * download cannot be written again by a progress update that was waiting behind the removal.
+     */
+    public static Future<?> updateDownloadJournalEntry(final DownloadJournalEntry entry,
+                                                       final Callable<Boolean> isRunning) {
+        return dbExec.submit(() -> {
+            try {
+                if (!isRunning.call()) {
+                    return;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, Log.getStackTraceString(e));
+                return;
+            }
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            adapter.setDownloadJournalEntry(entry);
+            adapter.close();
+        });
+    }
+
+    /**
+     * Adds the timing of a download request to the statistics of its host and feed.
+     */
+    public static Future<?> addDownloadTiming(final DownloadTiming timing) {
+        return dbExec.submit(() -> {
+            long currentPeriod = DownloadTiming.getPeriod(System.currentTimeMillis());
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            adapter.addDownloadTiming(timing,
+                    currentPeriod - 2 * DBReader.DOWNLOAD_METRICS_RECENT_PERIODS + 1);
+            adapter.close();
+        });
+    }
+
+    /**
+     * Remembers the feeds of an OPML import, so that the import can continue after the app was killed.
+     */
+    public static Future<?> addPendingImports(final List<OpmlElement> elements) {
+        return dbExec.submit(() -> {
+            Map<String, String> titlesByUrl = new LinkedHashMap<>();
+            for (OpmlElement element : elements) {
+                if (!TextUtils.isEmpty(element.getXmlUrl())) {
+                    // Prepared like the URLs of the download requests, so that finished feeds can be removed
+                    titlesByUrl.put(URLChecker.prepareURL(element.getXmlUrl()), element.getText());
+                }
+            }
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            adapter.addPendingImports(titlesByUrl);
+            adapter.close();
+        });
+    }
+
+    public static Future<?> removePendingImport(final String downloadUrl) {
+        return dbExec.submit(() -> {
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            adapter.removePendingImport(downloadUrl);
+            adapter.close();
+        });
+    }
+
+    public static Future<?> clearPendingImports() {
+        return dbExec.submit(() -> {
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            adapter.clearPendingImports();
+            adapter.close();
+        });
+    }
+
+    public static Future<?> removeDownloadJournalEntry(final long mediaId) {
+        return dbExec.submit(() -> {
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            adapter.removeDownloadJournalEntry(mediaId);
+            adapter.close();
+        });
+    }
+
     /**
      * Moves the specified item to the top of the queue.
      *
@@ -262,7 +367,8 @@ public abstract class DBWriter {
     }
 
     /**
-     * Saves if a feed's last update failed
+     * Saves if a feed's last update failed. Feeds that fail repeatedly are backed off, so that
+     * automatic refreshes do not try them every time.
      *
      * @param lastUpdateFailed true if last update failed
      */
@@ -271,12 +377,60 @@ public abstract class DBWriter {
         return dbExec.submit(() -> {
             PodDBAdapter adapter = PodDBAdapter.getInstance();
             adapter.open();
-            adapter.setFeedLastUpdateFailed(feedId, lastUpdateFailed);
+            if (lastUpdateFailed) {
+                int failures = adapter.addFeedRefreshFailure(feedId);
+                adapter.setFeedNextRefreshAttempt(feedId, FeedRefreshSchedule.getNextAttemptAfterFailures(failures));
+            } else {
+                adapter.setFeedLastUpdateFailed(feedId, false);
+            }
             adapter.close();
             EventBus.getDefault().post(new FeedListUpdateEvent(feedId));
         });
     }
 
+    /**
+     * Updates when automatic refreshes check the feed next, after it was refreshed successfully.
+     * See {@link FeedRefreshSchedule}.
+     */
+    public static Future<?> updateFeedRefreshSchedule(final Feed feed) {
+        return updateFeedRefreshSchedule(feed.getId(), FeedRefreshSchedule.getPubDates(feed));
+    }
+
+    /**
+     * Updates when automatic refreshes check the feed next, after the server reported that it did not change.
+     * See {@link FeedRefreshSchedule}.
+     */
+    public static Future<?> updateFeedRefreshScheduleNotModified(final long feedId) {
+        return updateFeedRefreshSchedule(feedId, null);
+    }
+
+    /**
+     * Reads and writes the estimate in one task, so that updates of the same feed do not overwrite each other.
+     *
+     * @param pubDates Publication dates of the episodes, null if the feed was not modified
+     */
+    private static Future<?> updateFeedRefreshSchedule(final long feedId, @Nullable final List<Long> pubDates) {
+        return dbExec.submit(() -> {
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            try (Cursor cursor = adapter.getFeedRefreshScheduleCursor(feedId)) {
+                if (!cursor.moveToFirst()) {
+                    return;
+                }
+                FeedRefreshSchedule.Estimate previous = new FeedRefreshSchedule.Estimate(0,
+                        cursor.getLong(0), cursor.getInt(1), cursor.getLong(2));
+                long now = System.currentTimeMillis();
+                FeedRefreshSchedule.Estimate estimate = pubDates != null
+                        ? FeedRefreshSchedule.afterRefresh(previous, pubDates, now)
+                        : FeedRefreshSchedule.afterNotModified(previous, now);
+                adapter.setFeedRefreshSchedule(feedId, estimate.nextRefresh, estimate.newestEpisodeDate,
+                        estimate.unchangedRefreshes, estimate.refreshInterval);
+            } finally {
+                adapter.close();
+            }
+        });
+    }
+
     public static Future<?> setFeedCustomTitle(Feed feed) {
         return dbExec.submit(() -> {
             PodDBAdapter adapter = PodDBAdapter.getInstance();
@@ -12,16 +12,20 @@ import de.danoeh.antennapod.storage.database.PodDBAdapter;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.channels.FileChannel;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class DatabaseExporter {
     private static final String TAG = "DatabaseExporter";
     private static final String TEMP_DB_NAME = PodDBAdapter.DATABASE_NAME + "_tmp";
+    private static final String SNAPSHOT_NAME = PodDBAdapter.DATABASE_NAME + "_snapshot";
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     public static void exportToDocument(Uri uri, Context context) throws IOException {
         ParcelFileDescriptor pfd = null;
@@ -46,43 +50,58 @@ public class DatabaseExporter {
         }
     }
 
-    public static void exportToStream(FileOutputStream outFileStream, Context context) throws IOException {
-        FileChannel src = null;
-        FileChannel dst = null;
+    /**
+     * Writes a compressed copy of the database. The database is blocked while the snapshot is written
+     * to the cache directory. Compressing the snapshot and writing it to the output, which might be slow,
+     * happens after the database is released. Must be called on a background thread.
+     */
+    public static void exportToStream(OutputStream outputStream, Context context) throws IOException {
+        File snapshot = new File(context.getCacheDir(), SNAPSHOT_NAME);
         try {
-            File currentDB = context.getDatabasePath(PodDBAdapter.DATABASE_NAME);
-
-            if (currentDB.exists()) {
-                src = new FileInputStream(currentDB).getChannel();
-                dst = outFileStream.getChannel();
-                long srcSize = src.size();
-                dst.transferFrom(src, 0, srcSize);
-
-                long newDstSize = dst.size();
-                if (newDstSize != srcSize) {
-                    throw new IOException(String.format(
-                            "Unable to write entire database. Expected to write %s, but wrote %s.",
-                            Formatter.formatShortFileSize(context, srcSize),
-                            Formatter.formatShortFileSize(context, newDstSize)));
-                }
-            } else {
-                throw new IOException("Can not access current database");
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            try {
+                adapter.createSnapshot(snapshot);
+            } finally {
+                adapter.close();
             }
+            GZIPOutputStream compressed = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+            long size = FileUtils.copyFile(snapshot, compressed);
+            compressed.finish();
+            compressed.flush();
+            Log.d(TAG, "Exported database of " + Formatter.formatShortFileSize(context, size));
         } catch (IOException e) {
             Log.e(TAG, Log.getStackTraceString(e));
             throw e;
         } finally {
-            IOUtils.closeQuietly(src);
-            IOUtils.closeQuietly(dst);
+            FileUtils.deleteQuietly(snapshot);
         }
     }
 
+    /**
+     * Restores a backup. Accepts compressed backups and the uncompressed database files of older versions.
+     */
     public static void importBackup(Uri inputUri, Context context) throws IOException {
         InputStream inputStream = null;
         try {
-            File tempDB = context.getDatabasePath(TEMP_DB_NAME);
             inputStream = context.getContentResolver().openInputStream(inputUri);
-            FileUtils.copyInputStreamToFile(inputStream, tempDB);
+            if (inputStream == null) {
+                throw new IOException("Unable to open " + inputUri);
+            }
+            importFromStream(inputStream, context);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    static void importFromStream(InputStream inputStream, Context context) throws IOException {
+        try {
+            File tempDB = context.getDatabasePath(TEMP_DB_NAME);
+            InputStream backup = new BufferedInputStream(inputStream, BUFFER_SIZE);
+            if (isCompressed(backup)) {
+                backup = new GZIPInputStream(backup, BUFFER_SIZE);
+            }
+            FileUtils.copyInputStreamToFile(backup, tempDB);
 
             SQLiteDatabase db = SQLiteDatabase.openDatabase(tempDB.getAbsolutePath(),
                     null, SQLiteDatabase.OPEN_READONLY);
@@ -100,8 +119,17 @@ public class DatabaseExporter {
         } catch (IOException | SQLiteException e) {
             Log.e(TAG, Log.getStackTraceString(e));
             throw e;
-        } finally {
-            IOUtils.closeQuietly(inputStream);
         }
     }
+
+    /**
+     * Checks for the gzip header without consuming it. Uncompressed backups start with "SQLite format 3".
+     */
+    private static boolean isCompressed(InputStream inputStream) throws IOException {
+        inputStream.mark(2);
+        int first = inputStream.read();
+        int second = inputStream.read();
+        inputStream.reset();
+        return first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8);
+    }
 }
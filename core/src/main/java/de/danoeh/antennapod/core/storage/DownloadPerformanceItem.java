@@ -0,0 +1,47 @@
+package de.danoeh.antennapod.core.storage;
+
+import de.danoeh.antennapod.model.download.DownloadHistogram;
+import de.danoeh.antennapod.model.feed.Feed;
+
+/**
+ * Download timing histograms of a host or a feed.
+ */
+public class DownloadPerformanceItem {
+    /**
+     * Host name, or null if this item describes a feed.
+     */
+    public final String host;
+
+    /**
+     * The feed, or null if this item describes a host.
+     */
+    public final Feed feed;
+
+    /**
+     * Histograms of the recent weeks, indexed by the METRIC constants of {@link DownloadHistogram}.
+     */
+    public final DownloadHistogram[] recent;
+
+    /**
+     * Histograms of the weeks before, to spot regressions.
+     */
+    public final DownloadHistogram[] previous;
+
+    DownloadPerformanceItem(String host, Feed feed) {
+        this.host = host;
+        this.feed = feed;
+        this.recent = new DownloadHistogram[DownloadHistogram.METRIC_COUNT];
+        this.previous = new DownloadHistogram[DownloadHistogram.METRIC_COUNT];
+        for (int i = 0; i < DownloadHistogram.METRIC_COUNT; i++) {
+            recent[i] = new DownloadHistogram();
+            previous[i] = new DownloadHistogram();
+        }
+    }
+
+    /**
+     * Number of requests in the recent weeks.
+     */
+    public long getRecentCount() {
+        return recent[DownloadHistogram.METRIC_FIRST_BYTE].getCount();
+    }
+}
@@ -0,0 +1,28 @@
+package de.danoeh.antennapod.core.storage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed number of locks that are selected by a key. Work on the same key never runs concurrently,
+ * while work on different keys usually gets different locks and can run in parallel.
+ */
+class StripedLock {
+    private final ReentrantLock[] locks;
+
+    StripedLock(int stripes) {
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @NonNull
+    ReentrantLock get(@Nullable Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= (hash >>> 16); // Spread higher bits, strings with a common suffix would collide otherwise
+        return locks[(hash & 0x7fffffff) % locks.length];
+    }
+}
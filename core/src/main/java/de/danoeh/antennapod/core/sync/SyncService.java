@@ -144,13 +144,14 @@ public class SyncService extends Worker {
         List<String> queuedAddedFeeds = synchronizationQueueStorage.getQueuedAddedFeeds();
 
         Log.d(TAG, "Downloaded subscription changes: " + subscriptionChanges);
+        List<DownloadRequest> requests = new ArrayList<>();
         for (String downloadUrl : subscriptionChanges.getAdded()) {
             if (!URLChecker.containsUrl(localSubscriptions, downloadUrl) && !queuedRemovedFeeds.contains(downloadUrl)) {
                 Feed feed = new Feed(downloadUrl, null);
-                DownloadRequest.Builder builder = DownloadRequestCreator.create(feed);
-                DownloadService.download(getApplicationContext(), false, builder.build());
+                requests.add(DownloadRequestCreator.create(feed).build());
             }
         }
+        DownloadService.download(getApplicationContext(), false, requests);
 
         // remove subscription if not just subscribed (again)
         for (String downloadUrl : subscriptionChanges.getRemoved()) {
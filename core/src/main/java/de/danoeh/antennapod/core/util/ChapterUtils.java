@@ -137,24 +137,27 @@ public class ChapterUtils {
     public static List<Chapter> loadChaptersFromUrl(String url) {
         try {
             Request request = new Request.Builder().url(url).cacheControl(CacheControl.FORCE_CACHE).build();
-            Response response = AntennapodHttpClient.getHttpClient().newCall(request).execute();
-            if (response.isSuccessful() && response.body() != null) {
-                List<Chapter> chapters = PodcastIndexChapterParser.parse(response.body().string());
-                if (chapters != null && !chapters.isEmpty()) {
-                    return chapters;
-                }
-            }
-            request = new Request.Builder().url(url).build();
-            response = AntennapodHttpClient.getHttpClient().newCall(request).execute();
-            if (response.isSuccessful() && response.body() != null) {
-                return PodcastIndexChapterParser.parse(response.body().string());
+            List<Chapter> chapters = loadChaptersFromRequest(request);
+            if (chapters != null && !chapters.isEmpty()) {
+                return chapters;
             }
+            return loadChaptersFromRequest(new Request.Builder().url(url).build());
         } catch (IOException e) {
             e.printStackTrace();
         }
         return null;
     }
 
+    private static List<Chapter> loadChaptersFromRequest(Request request) throws IOException {
+        try (Response response = AntennapodHttpClient.getHttpClient().newCall(request).execute()) {
+            if (response.isSuccessful() && response.body() != null) {
+                // Parse while reading, the document can be large
+                return PodcastIndexChapterParser.parse(response.body().charStream());
+            }
+        }
+        return null;
+    }
+
     @NonNull
     private static List<Chapter> readId3ChaptersFrom(CountingInputStream in) throws IOException, ID3ReaderException {
         ChapterReader reader = new ChapterReader(in);
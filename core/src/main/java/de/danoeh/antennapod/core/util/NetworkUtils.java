@@ -218,6 +218,7 @@ public class NetworkUtils {
     }
 
     public static void networkChangedDetected() {
+        AntennapodHttpClient.onNetworkChanged();
         if (NetworkUtils.isAutoDownloadAllowed()) {
             Log.d(TAG, "auto-dl network available, starting auto-download");
             DBTasks.autodownloadUndownloadedItems(context);
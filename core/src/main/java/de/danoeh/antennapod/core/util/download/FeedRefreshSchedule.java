@@ -0,0 +1,209 @@
+package de.danoeh.antennapod.core.util.download;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.core.storage.DBReader;
+import de.danoeh.antennapod.core.util.LongList;
+import de.danoeh.antennapod.model.feed.Feed;
+import de.danoeh.antennapod.model.feed.FeedItem;
+
+/**
+ * Decides when a feed needs to be checked again during automatic refreshes. Feeds that publish often
+ * are checked at every automatic refresh, feeds that publish rarely or not at all anymore are checked
+ * less often. The estimate is based on the publication dates of the newest episodes and on how many
+ * refreshes in a row did not bring a new episode. Manual refreshes always fetch all feeds.
+ * The estimate is stored with the feed, so it is deleted together with the feed. This class only computes
+ * the estimate, {@link de.danoeh.antennapod.core.storage.DBWriter} stores it.
+ */
+public class FeedRefreshSchedule {
+    private static final String TAG = "FeedRefreshSchedule";
+
+    private static final int EPISODES_FOR_ESTIMATE = 10;
+    private static final int MAX_UNCHANGED_REFRESHES = 4;
+    private static final int FAILURES_BEFORE_BACKOFF = 2;
+    private static final double JITTER = 0.1;
+    @VisibleForTesting
+    static final long MAX_INTERVAL = TimeUnit.DAYS.toMillis(7);
+
+    private static final Random random = new Random();
+
+    private FeedRefreshSchedule() {
+    }
+
+    /**
+     * Returns the IDs of feeds that are not due for the automatic refresh that runs now, either because
+     * they are not expected to have new episodes yet or because they failed repeatedly.
+     */
+    @NonNull
+    public static LongList getFeedsNotDue() {
+        return DBReader.getFeedsNotDueForRefresh(getDueBefore(System.currentTimeMillis(), getMinInterval()));
+    }
+
+    /**
+     * A feed is due if its next check is closer to this automatic refresh than to the following one.
+     *
+     * @return Feeds with a next check before this time are due
+     */
+    @VisibleForTesting
+    static long getDueBefore(long now, long minInterval) {
+        return now + minInterval / 2;
+    }
+
+    /**
+     * @return The publication dates of the episodes of a feed that was refreshed
+     */
+    @NonNull
+    public static List<Long> getPubDates(@NonNull Feed feed) {
+        List<Long> pubDates = new ArrayList<>();
+        if (feed.getItems() != null) {
+            for (FeedItem item : feed.getItems()) {
+                if (item.getPubDate() != null) {
+                    pubDates.add(item.getPubDate().getTime());
+                }
+            }
+        }
+        return pubDates;
+    }
+
+    /**
+     * Updates the estimate after the feed has been refreshed successfully.
+     *
+     * @param previous The estimate that is stored with the feed
+     * @param pubDates Publication dates of the episodes in the refreshed feed
+     */
+    @NonNull
+    public static Estimate afterRefresh(@NonNull Estimate previous, @NonNull List<Long> pubDates, long now) {
+        long newest = pubDates.isEmpty() ? 0 : Collections.max(pubDates);
+        int unchanged;
+        if (newest > previous.newestEpisodeDate) {
+            unchanged = 0;
+        } else {
+            unchanged = Math.min(previous.unchangedRefreshes + 1, MAX_UNCHANGED_REFRESHES);
+        }
+        long baseInterval = computeInterval(pubDates, 0, now, getMinInterval());
+        long interval = backOff(baseInterval, unchanged);
+        Log.d(TAG, "Next check in " + TimeUnit.MILLISECONDS.toHours(interval) + "h");
+        return new Estimate(now + interval + jitter(interval), newest, unchanged, baseInterval);
+    }
+
+    /**
+     * Updates the estimate after the server reported that the feed did not change since the last refresh.
+     * The episodes are not known in this case, so the interval estimated at the last full refresh is used.
+     *
+     * @param previous The estimate that is stored with the feed
+     */
+    @NonNull
+    public static Estimate afterNotModified(@NonNull Estimate previous, long now) {
+        int unchanged = Math.min(previous.unchangedRefreshes + 1, MAX_UNCHANGED_REFRESHES);
+        long interval = backOff(Math.max(previous.refreshInterval, getMinInterval()), unchanged);
+        return new Estimate(now + interval + jitter(interval), previous.newestEpisodeDate, unchanged,
+                previous.refreshInterval);
+    }
+
+    /**
+     * Returns when a feed that failed to update should be tried again by automatic refreshes,
+     * or 0 if it should be tried at the next one.
+     *
+     * @param failures Number of updates in a row that failed, including the one that just failed
+     */
+    public static long getNextAttemptAfterFailures(int failures) {
+        long backoff = computeFailureBackoff(failures, getMinInterval());
+        if (backoff == 0) {
+            return 0;
+        }
+        return System.currentTimeMillis() + backoff + jitter(backoff);
+    }
+
+    /**
+     * Doubles the time between attempts for every failed update, starting with the automatic refresh
+     * interval after the second failure in a row.
+     */
+    @VisibleForTesting
+    static long computeFailureBackoff(int failures, long minInterval) {
+        if (failures < FAILURES_BEFORE_BACKOFF) {
+            return 0;
+        }
+        int doublings = Math.min(failures - FAILURES_BEFORE_BACKOFF, 16);
+        return Math.min(MAX_INTERVAL, minInterval << doublings);
+    }
+
+    /**
+     * Estimates how long to wait before checking the feed again.
+     *
+     * @param pubDates Publication dates of the episodes in the feed
+     * @param unchangedRefreshes Number of refreshes in a row that did not bring a new episode
+     * @param minInterval Interval of the automatic refresh, the result is never shorter
+     */
+    @VisibleForTesting
+    static long computeInterval(@NonNull List<Long> pubDates, int unchangedRefreshes, long now, long minInterval) {
+        if (pubDates.size() < 2) {
+            return minInterval;
+        }
+        List<Long> newest = new ArrayList<>(pubDates);
+        Collections.sort(newest, Collections.reverseOrder());
+        newest = newest.subList(0, Math.min(EPISODES_FOR_ESTIMATE + 1, newest.size()));
+        List<Long> gaps = new ArrayList<>();
+        for (int i = 1; i < newest.size(); i++) {
+            gaps.add(newest.get(i - 1) - newest.get(i));
+        }
+        Collections.sort(gaps);
+        long typicalGap = gaps.get(gaps.size() / 2);
+
+        // Check a few times per typical gap, so that new episodes show up in time
+        long interval = typicalGap / 4;
+        long sinceNewest = now - newest.get(0);
+        if (sinceNewest > 2 * typicalGap) {
+            // Overdue: the feed might have slowed down or stopped
+            interval = Math.max(interval, sinceNewest / 4);
+        }
+        return Math.max(minInterval, backOff(interval, unchangedRefreshes));
+    }
+
+    /**
+     * Stretches the interval for every refresh in a row that did not bring a new episode.
+     */
+    private static long backOff(long interval, int unchangedRefreshes) {
+        interval = (long) (interval * (1 + 0.5 * Math.min(unchangedRefreshes, MAX_UNCHANGED_REFRESHES)));
+        return Math.min(MAX_INTERVAL, interval);
+    }
+
+    private static long getMinInterval() {
+        long interval = UserPreferences.getUpdateInterval();
+        return interval > 0 ? interval : TimeUnit.DAYS.toMillis(1);
+    }
+
+    /**
+     * Spreads the checks of feeds that were refreshed at the same time.
+     */
+    private static long jitter(long interval) {
+        return (long) (interval * JITTER * (2 * random.nextDouble() - 1));
+    }
+
+    /**
+     * The estimate as it is stored with a feed.
+     */
+    public static class Estimate {
+        public final long nextRefresh;
+        public final long newestEpisodeDate;
+        public final int unchangedRefreshes;
+        /** Interval estimated from the episodes at the last full refresh, before backing off */
+        public final long refreshInterval;
+
+        public Estimate(long nextRefresh, long newestEpisodeDate, int unchangedRefreshes, long refreshInterval) {
+            this.nextRefresh = nextRefresh;
+            this.newestEpisodeDate = newestEpisodeDate;
+            this.unchangedRefreshes = unchangedRefreshes;
+            this.refreshInterval = refreshInterval;
+        }
+    }
+}
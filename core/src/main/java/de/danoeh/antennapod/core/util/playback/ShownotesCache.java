@@ -0,0 +1,107 @@
+package de.danoeh.antennapod.core.util.playback;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.danoeh.antennapod.core.storage.DBReader;
+import de.danoeh.antennapod.model.feed.FeedItem;
+import de.danoeh.antennapod.model.feed.FeedMedia;
+import de.danoeh.antennapod.model.playback.Playable;
+
+/**
+ * Keeps the timecode-linked HTML of recently viewed shownotes, keyed by a hash of the raw description
+ * and the duration of the media. Theme dependent styling is not part of the cached HTML, so an entry
+ * stays valid when the user switches themes.
+ */
+public class ShownotesCache {
+    private static final String TAG = "ShownotesCache";
+    private static final int MAX_ENTRIES = 32;
+
+    private static final Map<String, String> cache = new LinkedHashMap<String, String>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private static final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ShownotesPrefetch");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private ShownotesCache() {
+    }
+
+    /**
+     * Returns the processed shownotes, computing and caching them if they have not been processed before.
+     */
+    @NonNull
+    public static String get(@NonNull String rawShownotes, int playableDuration) {
+        String key = key(rawShownotes, playableDuration);
+        synchronized (cache) {
+            String cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String processed = Timeline.linkTimecodes(rawShownotes, playableDuration);
+        synchronized (cache) {
+            cache.put(key, processed);
+        }
+        return processed;
+    }
+
+    /**
+     * Processes the shownotes of the given playable on a background thread,
+     * so that opening them later does not need to parse the HTML.
+     */
+    public static void prefetch(@Nullable Playable playable) {
+        if (playable == null) {
+            return;
+        }
+        prefetchExecutor.submit(() -> {
+            try {
+                String description = playable.getDescription();
+                if (description == null && playable instanceof FeedMedia) {
+                    // The media is shared with the player, so the item is loaded without changing it
+                    FeedItem item = DBReader.getFeedItem(((FeedMedia) playable).getItemId());
+                    if (item != null) {
+                        DBReader.loadDescriptionOfFeedItem(item);
+                        description = item.getDescription();
+                    }
+                }
+                if (!TextUtils.isEmpty(description)) {
+                    get(description, playable.getDuration());
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Unable to prefetch shownotes", e);
+            }
+        });
+    }
+
+    private static String key(String rawShownotes, int playableDuration) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(rawShownotes.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(Integer.toHexString((b & 0xFF) | 0x100).substring(1, 3));
+            }
+            return sb.append(':').append(playableDuration).toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            return rawShownotes.length() + ":" + rawShownotes.hashCode() + ":" + playableDuration;
+        }
+    }
+}
@@ -85,23 +85,42 @@ public class Timeline {
      */
     @NonNull
     public String processShownotes() {
-        String shownotes = rawShownotes;
-
-        if (TextUtils.isEmpty(shownotes)) {
+        if (TextUtils.isEmpty(rawShownotes)) {
             Log.d(TAG, "shownotesProvider contained no shownotes. Returning 'no shownotes' message");
-            shownotes = "<html><head></head><body><p id='apNoShownotes'>" + noShownotesLabel + "</p></body></html>";
+            String shownotes = "<html><head></head><body><p id='apNoShownotes'>"
+                    + noShownotesLabel + "</p></body></html>";
+            Document document = Jsoup.parse(shownotes);
+            document.head().appendElement("style").attr("type", "text/css").text(webviewStyle);
+            return document.toString();
         }
+        return applyStyle(ShownotesCache.get(rawShownotes, playableDuration));
+    }
 
+    /**
+     * Inserts the stylesheet into already processed shownotes without parsing them again.
+     */
+    private String applyStyle(String html) {
+        String style = "<style type=\"text/css\">" + webviewStyle + "</style>";
+        int headEnd = html.indexOf("</head>");
+        if (headEnd < 0) {
+            return style + html;
+        }
+        return html.substring(0, headEnd) + style + html.substring(headEnd);
+    }
+
+    /**
+     * Parses the shownotes and adds timecode links. This is the expensive part of processing shownotes,
+     * so callers should go through {@link ShownotesCache} instead of calling this directly.
+     */
+    @NonNull
+    static String linkTimecodes(@NonNull String shownotes, int playableDuration) {
         // replace ASCII line breaks with HTML ones if shownotes don't contain HTML line breaks already
         if (!LINE_BREAK_REGEX.matcher(shownotes).find() && !shownotes.contains("<p>")) {
             shownotes = shownotes.replace("\n", "<br />");
         }
 
         Document document = Jsoup.parse(shownotes);
-        document.head().appendElement("style").attr("type", "text/css").text(webviewStyle);
-
-        // apply timecode links
-        addTimecodes(document);
+        addTimecodes(document, playableDuration);
         return document.toString();
     }
 
@@ -131,7 +150,7 @@ public class Timeline {
         return -1;
     }
 
-    private void addTimecodes(Document document) {
+    private static void addTimecodes(Document document, int playableDuration) {
         Elements elementsWithTimeCodes = document.body().getElementsMatchingOwnText(TIMECODE_REGEX);
         Log.d(TAG, "Recognized " + elementsWithTimeCodes.size() + " timecodes");
 
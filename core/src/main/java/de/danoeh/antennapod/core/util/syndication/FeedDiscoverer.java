@@ -1,38 +1,110 @@
 package de.danoeh.antennapod.core.util.syndication;
 
 import android.net.Uri;
+import android.util.Log;
+import androidx.annotation.Nullable;
 import androidx.collection.ArrayMap;
 import android.text.TextUtils;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
+import okhttp3.MediaType;
+
 /**
  * Finds RSS/Atom URLs in a HTML document using the auto-discovery techniques described here:
  * <p/>
  * http://www.rssboard.org/rss-autodiscovery
  * <p/>
  * http://blog.whatwg.org/feed-autodiscovery
+ * <p/>
+ * Only the head of the document is read and no document tree is built, see {@link HtmlLinkScanner}.
  */
 public class FeedDiscoverer {
+    private static final String TAG = "FeedDiscoverer";
 
     private static final String MIME_RSS = "application/rss+xml";
     private static final String MIME_ATOM = "application/atom+xml";
+    /** Where browsers look for a charset declaration, see https://html.spec.whatwg.org/#prescan-a-byte-stream */
+    private static final int PRESCAN_BYTES = 1024;
 
     /**
      * Discovers links to RSS and Atom feeds in the given File which must be a HTML document.
      *
+     * @param contentType The Content-Type header the document was served with, if known. Its charset is used
+     *                    unless the document starts with a byte order mark.
      * @return A map which contains the feed URLs as keys and titles as values (the feed URL is also used as a title if
      * a title cannot be found).
      */
-    public Map<String, String> findLinks(File in, String baseUrl) throws IOException {
-        return findLinks(Jsoup.parse(in, null), baseUrl);
+    public Map<String, String> findLinks(File in, String baseUrl, @Nullable String contentType) throws IOException {
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(in))) {
+            Charset charset = detectCharset(stream, contentType);
+            return findLinks(new BufferedReader(new InputStreamReader(stream, charset)), baseUrl);
+        }
+    }
+
+    /**
+     * Finds the encoding of a HTML document like browsers do: a byte order mark comes first, then the charset
+     * of the Content-Type header, then a charset that is declared in the first bytes of the document.
+     * A byte order mark is skipped in the stream.
+     */
+    static Charset detectCharset(InputStream stream, @Nullable String contentType) throws IOException {
+        stream.mark(PRESCAN_BYTES);
+        byte[] start = new byte[PRESCAN_BYTES];
+        int length = 0;
+        int read;
+        while (length < start.length && (read = stream.read(start, length, start.length - length)) != -1) {
+            length += read;
+        }
+        stream.reset();
+        if (length >= 3 && (start[0] & 0xFF) == 0xEF && (start[1] & 0xFF) == 0xBB && (start[2] & 0xFF) == 0xBF) {
+            skipFully(stream, 3);
+            return StandardCharsets.UTF_8;
+        } else if (length >= 2 && (start[0] & 0xFF) == 0xFE && (start[1] & 0xFF) == 0xFF) {
+            skipFully(stream, 2);
+            return StandardCharsets.UTF_16BE;
+        } else if (length >= 2 && (start[0] & 0xFF) == 0xFF && (start[1] & 0xFF) == 0xFE) {
+            skipFully(stream, 2);
+            return StandardCharsets.UTF_16LE;
+        }
+
+        MediaType mediaType = contentType != null ? MediaType.parse(contentType) : null;
+        Charset charset = mediaType != null ? mediaType.charset() : null; // Null if missing or unsupported
+        if (charset != null) {
+            return charset;
+        }
+
+        // The declaration only uses ASCII characters, so any ASCII compatible charset can read it
+        String declared = new HtmlLinkScanner(new StringReader(
+                new String(start, 0, length, StandardCharsets.ISO_8859_1))).findCharset();
+        if (declared != null) {
+            try {
+                return Charset.forName(declared);
+            } catch (IllegalArgumentException e) {
+                Log.d(TAG, "Unsupported charset declared in document: " + declared);
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static void skipFully(InputStream stream, long count) throws IOException {
+        while (count > 0) {
+            long skipped = stream.skip(count);
+            if (skipped <= 0) {
+                return;
+            }
+            count -= skipped;
+        }
     }
 
     /**
@@ -42,20 +114,25 @@ public class FeedDiscoverer {
      * a title cannot be found).
      */
     public Map<String, String> findLinks(String in, String baseUrl) {
-        return findLinks(Jsoup.parse(in), baseUrl);
+        try {
+            return findLinks(new StringReader(in), baseUrl);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringReader does not throw
+        }
     }
 
-    private Map<String, String> findLinks(Document document, String baseUrl) {
+    private Map<String, String> findLinks(Reader reader, String baseUrl) throws IOException {
         Map<String, String> res = new ArrayMap<>();
-        Elements links = document.head().getElementsByTag("link");
-        for (Element link : links) {
-            String rel = link.attr("rel");
-            String href = link.attr("href");
+        HtmlLinkScanner scanner = new HtmlLinkScanner(reader);
+        Map<String, String> link;
+        while ((link = scanner.nextLink()) != null) {
+            String rel = attr(link, "rel");
+            String href = attr(link, "href").trim();
             if (!TextUtils.isEmpty(href) &&
                     (rel.equals("alternate") || rel.equals("feed"))) {
-                String type = link.attr("type");
+                String type = attr(link, "type");
                 if (type.equals(MIME_RSS) || type.equals(MIME_ATOM)) {
-                    String title = link.attr("title");
+                    String title = attr(link, "title");
                     String processedUrl = processURL(baseUrl, href);
                     if (processedUrl != null) {
                         res.put(processedUrl,
@@ -67,6 +144,11 @@ public class FeedDiscoverer {
         return res;
     }
 
+    private static String attr(Map<String, String> attributes, String name) {
+        String value = attributes.get(name);
+        return value != null ? value : "";
+    }
+
     private String processURL(String baseUrl, String strUrl) {
         Uri uri = Uri.parse(strUrl);
         if (uri.isRelative()) {
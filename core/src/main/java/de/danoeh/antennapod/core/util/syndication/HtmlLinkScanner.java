@@ -0,0 +1,236 @@
+package de.danoeh.antennapod.core.util.syndication;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.jsoup.parser.Parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the {@code <link>} elements in the head of a HTML document without building a document tree.
+ * Reading stops at the end of the head, so the rest of the document is never looked at. Comments and
+ * the contents of scripts and styles are skipped.
+ */
+class HtmlLinkScanner {
+    private static final int EOF = -1;
+    private static final int NONE = -2;
+    private static final Pattern CONTENT_CHARSET = Pattern.compile("charset\\s*=\\s*[\"']?([^\\s\"';]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final Reader reader;
+    private int pushedBack = NONE;
+    private boolean endOfHead = false;
+
+    HtmlLinkScanner(@NonNull Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return The attributes of the next link element, with lower case names, or null at the end of the head.
+     */
+    @Nullable
+    Map<String, String> nextLink() throws IOException {
+        return nextElement("link");
+    }
+
+    /**
+     * Looks for the encoding that is declared by a {@code <meta charset>} element or by its
+     * {@code http-equiv="Content-Type"} form. Works on text that was decoded with any ASCII compatible charset.
+     *
+     * @return The name of the declared charset, or null if there is none.
+     */
+    @Nullable
+    String findCharset() throws IOException {
+        Map<String, String> meta;
+        while ((meta = nextElement("meta")) != null) {
+            String charset = meta.get("charset");
+            if (charset != null && !charset.trim().isEmpty()) {
+                return charset.trim();
+            }
+            String httpEquiv = meta.get("http-equiv");
+            String content = meta.get("content");
+            if (httpEquiv != null && httpEquiv.trim().equalsIgnoreCase("content-type") && content != null) {
+                Matcher matcher = CONTENT_CHARSET.matcher(content);
+                if (matcher.find()) {
+                    return matcher.group(1);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private Map<String, String> nextElement(String wantedTag) throws IOException {
+        while (!endOfHead) {
+            int c = read();
+            if (c == EOF) {
+                endOfHead = true;
+            } else if (c == '<') {
+                Map<String, String> element = readTag(wantedTag);
+                if (element != null) {
+                    return element;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a tag after its opening bracket.
+     * @return The attributes if the tag is an element with the wanted name, null otherwise.
+     */
+    @Nullable
+    private Map<String, String> readTag(String wantedTag) throws IOException {
+        int c = read();
+        if (c == '!') {
+            if (skipIfNext("--")) {
+                skipUntil("-->");
+            } else {
+                skipUntil(">");
+            }
+            return null;
+        } else if (c == '?') {
+            skipUntil(">");
+            return null;
+        }
+        boolean isEndTag = c == '/';
+        if (isEndTag) {
+            c = read();
+        }
+        if (!isLetter(c)) {
+            unread(c); // Text that happens to contain a bracket
+            return null;
+        }
+        StringBuilder name = new StringBuilder();
+        while (c != EOF && !Character.isWhitespace(c) && c != '/' && c != '>') {
+            name.append(Character.toLowerCase((char) c));
+            c = read();
+        }
+        unread(c);
+        String tagName = name.toString();
+        if ((isEndTag && (tagName.equals("head") || tagName.equals("html"))) || tagName.equals("body")) {
+            endOfHead = true;
+            return null;
+        }
+        Map<String, String> attributes = readAttributes();
+        if (isEndTag) {
+            return null;
+        }
+        if (tagName.equals("script") || tagName.equals("style")
+                || tagName.equals("title") || tagName.equals("textarea")) {
+            skipUntil("</" + tagName);
+            return null;
+        }
+        return tagName.equals(wantedTag) ? attributes : null;
+    }
+
+    private Map<String, String> readAttributes() throws IOException {
+        Map<String, String> attributes = new HashMap<>();
+        while (true) {
+            int c = skipWhitespace();
+            if (c == EOF || c == '>') {
+                return attributes;
+            } else if (c == '/') {
+                continue;
+            }
+            StringBuilder name = new StringBuilder();
+            while (c != EOF && !Character.isWhitespace(c) && c != '=' && c != '/' && c != '>') {
+                name.append(Character.toLowerCase((char) c));
+                c = read();
+            }
+            unread(c);
+            String value = "";
+            c = skipWhitespace();
+            if (c == '=') {
+                value = readAttributeValue();
+            } else {
+                unread(c);
+            }
+            if (!attributes.containsKey(name.toString())) {
+                attributes.put(name.toString(), value);
+            }
+        }
+    }
+
+    private String readAttributeValue() throws IOException {
+        StringBuilder value = new StringBuilder();
+        int c = skipWhitespace();
+        if (c == '"' || c == '\'') {
+            int quote = c;
+            c = read();
+            while (c != EOF && c != quote) {
+                value.append((char) c);
+                c = read();
+            }
+        } else {
+            while (c != EOF && !Character.isWhitespace(c) && c != '>') {
+                value.append((char) c);
+                c = read();
+            }
+            unread(c);
+        }
+        return Parser.unescapeEntities(value.toString(), true);
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c = read();
+        while (c != EOF && Character.isWhitespace(c)) {
+            c = read();
+        }
+        return c;
+    }
+
+    private boolean skipIfNext(String expected) throws IOException {
+        for (int i = 0; i < expected.length(); i++) {
+            int c = read();
+            if (c != expected.charAt(i)) {
+                unread(c);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips everything up to and including the given text, ignoring case.
+     */
+    private void skipUntil(String end) throws IOException {
+        int matched = 0;
+        while (matched < end.length()) {
+            int c = read();
+            if (c == EOF) {
+                endOfHead = true;
+                return;
+            }
+            char lower = Character.toLowerCase((char) c);
+            if (lower == end.charAt(matched)) {
+                matched++;
+            } else {
+                matched = lower == end.charAt(0) ? 1 : 0;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,92 @@
+package de.danoeh.antennapod.core.export;
+
+import android.content.Context;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class DocumentExporterTest {
+    private static final int ROWS = 1000;
+
+    @Test
+    public void testCompressedOutput() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DocumentExporter exporter = new DocumentExporter(new RowWriter(), true);
+        exporter.export(output, getContext(), ExportProgressListener.NONE);
+
+        assertEquals("txt.gz", exporter.fileExtension());
+        String document = decompress(output.toByteArray());
+        assertTrue(document.startsWith("row 0 – ü\n"));
+        assertTrue(document.endsWith("row " + (ROWS - 1) + " – ü\n"));
+    }
+
+    @Test
+    public void testProgressIsThrottled() throws IOException {
+        List<Integer> updates = new ArrayList<>();
+        new DocumentExporter(new RowWriter(), false).export(new ByteArrayOutputStream(), getContext(),
+                (exported, total) -> updates.add(exported));
+        assertTrue(updates.size() <= 101);
+        assertEquals(ROWS, (int) updates.get(updates.size() - 1));
+    }
+
+    @Test
+    public void testCancel() throws IOException {
+        try {
+            new DocumentExporter(new RowWriter(), false).export(new ByteArrayOutputStream(), getContext(),
+                    (exported, total) -> {
+                        if (exported > total / 2) {
+                            throw new InterruptedIOException("Export cancelled");
+                        }
+                    });
+            fail("Export should have been cancelled");
+        } catch (InterruptedIOException e) {
+            // Expected
+        }
+    }
+
+    private static Context getContext() {
+        return null; // Not used by the test writer
+    }
+
+    private static String decompress(byte[] compressed) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+        }
+        return result.toString("UTF-8");
+    }
+
+    private static class RowWriter implements ExportWriter {
+        @Override
+        public void writeDocument(Writer writer, Context context, ExportProgressListener progressListener)
+                throws IOException {
+            for (int i = 0; i < ROWS; i++) {
+                writer.append("row ").append(String.valueOf(i)).append(" – ü\n");
+                progressListener.onProgress(i + 1, ROWS);
+            }
+        }
+
+        @Override
+        public String fileExtension() {
+            return "txt";
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package de.danoeh.antennapod.core.feed;
+
+import de.danoeh.antennapod.model.feed.Feed;
+import de.danoeh.antennapod.parser.feed.FeedHandlerResult;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PreviewFeedCacheTest {
+    private static final long NOW = 1_000_000_000L;
+
+    @Test
+    public void testTakeRemovesEntry() {
+        FeedHandlerResult result = createResult("http://example.com/feed1");
+        PreviewFeedCache.put("http://example.com/feed1", result, NOW);
+        assertSame(result, PreviewFeedCache.take("http://example.com/feed1", NOW + 1000));
+        assertNull(PreviewFeedCache.take("http://example.com/feed1", NOW + 1000));
+    }
+
+    @Test
+    public void testExpiry() {
+        PreviewFeedCache.put("http://example.com/feed2", createResult("http://example.com/feed2"), NOW);
+        assertNull(PreviewFeedCache.take("http://example.com/feed2", NOW + PreviewFeedCache.MAX_AGE_MILLIS + 1));
+    }
+
+    @Test
+    public void testOldestEntryIsEvicted() {
+        for (int i = 0; i <= PreviewFeedCache.MAX_ENTRIES; i++) {
+            PreviewFeedCache.put("http://example.com/evict" + i, createResult("http://example.com/evict" + i), NOW);
+        }
+        assertNull(PreviewFeedCache.take("http://example.com/evict0", NOW));
+        String newestUrl = "http://example.com/evict" + PreviewFeedCache.MAX_ENTRIES;
+        assertEquals(newestUrl, PreviewFeedCache.take(newestUrl, NOW).feed.getDownload_url());
+    }
+
+    private static FeedHandlerResult createResult(String url) {
+        return new FeedHandlerResult(new Feed(url, null), Collections.emptyMap());
+    }
+}
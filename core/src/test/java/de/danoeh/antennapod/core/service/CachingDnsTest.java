@@ -0,0 +1,118 @@
+package de.danoeh.antennapod.core.service;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CachingDnsTest {
+    private static final long NOW = 1600000000000L;
+
+    @Test
+    public void testCachesUntilTtl() throws UnknownHostException {
+        CountingDns delegate = new CountingDns();
+        CachingDns dns = new CachingDns(delegate);
+        List<InetAddress> first = dns.lookup("example.com", NOW);
+        assertEquals(first, dns.lookup("example.com", NOW + CachingDns.TTL_MILLIS - 1));
+        assertEquals(1, delegate.lookups);
+        dns.lookup("example.com", NOW + CachingDns.TTL_MILLIS);
+        assertEquals(2, delegate.lookups);
+    }
+
+    @Test
+    public void testNegativeCaching() {
+        CountingDns delegate = new CountingDns();
+        CachingDns dns = new CachingDns(delegate);
+        assertUnknown(dns, "unknown.invalid", NOW);
+        assertUnknown(dns, "unknown.invalid", NOW + CachingDns.NEGATIVE_TTL_MILLIS - 1);
+        assertEquals(1, delegate.lookups);
+        assertUnknown(dns, "unknown.invalid", NOW + CachingDns.NEGATIVE_TTL_MILLIS);
+        assertEquals(2, delegate.lookups);
+    }
+
+    @Test
+    public void testClear() throws UnknownHostException {
+        CountingDns delegate = new CountingDns();
+        CachingDns dns = new CachingDns(delegate);
+        dns.lookup("example.com", NOW);
+        dns.clear();
+        dns.lookup("example.com", NOW);
+        assertEquals(2, delegate.lookups);
+    }
+
+    @Test
+    public void testParallelLookupsAreCoalesced() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountingDns delegate = new CountingDns() {
+            @Override
+            public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.lookup(hostname);
+            }
+        };
+        CachingDns dns = new CachingDns(delegate);
+        List<List<InetAddress>> results = Collections.synchronizedList(new ArrayList<>());
+        Thread first = new Thread(() -> lookupQuietly(dns, results));
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread second = new Thread(() -> lookupQuietly(dns, results));
+        second.start();
+        while (second.getState() != Thread.State.WAITING && second.getState() != Thread.State.TERMINATED) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        first.join(5000);
+        second.join(5000);
+
+        assertEquals(1, delegate.lookups);
+        assertEquals(2, results.size());
+        assertEquals(results.get(0), results.get(1));
+    }
+
+    private static void lookupQuietly(CachingDns dns, List<List<InetAddress>> results) {
+        try {
+            results.add(dns.lookup("example.com", NOW));
+        } catch (UnknownHostException e) {
+            // Checked by the number of results
+        }
+    }
+
+    private static void assertUnknown(CachingDns dns, String hostname, long now) {
+        try {
+            dns.lookup(hostname, now);
+            fail("Expected UnknownHostException");
+        } catch (UnknownHostException e) {
+            // Expected
+        }
+    }
+
+    private static class CountingDns implements Dns {
+        int lookups = 0;
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            lookups++;
+            if (hostname.endsWith(".invalid")) {
+                throw new UnknownHostException(hostname);
+            }
+            return Collections.singletonList(InetAddress.getByAddress(hostname, new byte[] {127, 0, 0, 1}));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.danoeh.antennapod.core.service;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class HostCircuitBreakerTest {
+    private static final String HOST = "example.com";
+    private static final long NOW = 1600000000000L;
+
+    @Test
+    public void testOpensAfterRepeatedFailures() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker();
+        for (int i = 0; i < HostCircuitBreaker.FAILURE_THRESHOLD - 1; i++) {
+            breaker.onFailure(HOST, NOW);
+            assertTrue(breaker.allowRequest(HOST, false, NOW));
+        }
+        breaker.onFailure(HOST, NOW);
+        assertFalse(breaker.allowRequest(HOST, false, NOW));
+        assertTrue(breaker.allowRequest("other.example.com", false, NOW));
+        // Manual refreshes always try
+        assertTrue(breaker.allowRequest(HOST, true, NOW));
+    }
+
+    @Test
+    public void testHalfOpenLetsOneRequestThrough() {
+        HostCircuitBreaker breaker = openCircuit();
+        long later = NOW + HostCircuitBreaker.INITIAL_COOLDOWN_MILLIS;
+        assertTrue(breaker.allowRequest(HOST, false, later));
+        assertFalse(breaker.allowRequest(HOST, false, later));
+
+        breaker.onSuccess(HOST);
+        assertTrue(breaker.allowRequest(HOST, false, later));
+        assertTrue(breaker.allowRequest(HOST, false, later));
+    }
+
+    @Test
+    public void testCooldownDoublesAfterFailedTrial() {
+        HostCircuitBreaker breaker = openCircuit();
+        long trial = NOW + HostCircuitBreaker.INITIAL_COOLDOWN_MILLIS;
+        assertTrue(breaker.allowRequest(HOST, false, trial));
+        breaker.onFailure(HOST, trial);
+        long cooldown = 2 * HostCircuitBreaker.INITIAL_COOLDOWN_MILLIS;
+        assertFalse(breaker.allowRequest(HOST, false, trial + cooldown - 1));
+        assertTrue(breaker.allowRequest(HOST, false, trial + cooldown));
+    }
+
+    private static HostCircuitBreaker openCircuit() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker();
+        for (int i = 0; i < HostCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.onFailure(HOST, NOW);
+        }
+        return breaker;
+    }
+}
@@ -0,0 +1,85 @@
+package de.danoeh.antennapod.core.service;
+
+import de.danoeh.antennapod.core.service.download.DownloadRequest;
+import de.danoeh.antennapod.model.feed.Feed;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class RetryAfterInterceptorTest {
+
+    @Test
+    public void testParseSeconds() {
+        assertEquals(120000, RetryAfterInterceptor.parseRetryAfter("120", 0));
+        assertEquals(0, RetryAfterInterceptor.parseRetryAfter("0", 0));
+    }
+
+    @Test
+    public void testParseHttpDate() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        long now = 1445412480000L; // Wed, 21 Oct 2015 07:28:00 GMT
+        String header = format.format(new Date(now + 30000));
+        long delay = RetryAfterInterceptor.parseRetryAfter(header, now);
+        assertTrue("Delay was " + delay, delay > 29000 && delay <= 30000);
+        assertEquals(0, RetryAfterInterceptor.parseRetryAfter(format.format(new Date(now - 5000)), now));
+    }
+
+    @Test
+    public void testParseHugeValueIsClamped() {
+        assertEquals(TimeUnit.DAYS.toMillis(1), RetryAfterInterceptor.parseRetryAfter("9223372036854775", 0));
+    }
+
+    @Test
+    public void testParseInvalid() {
+        assertEquals(-1, RetryAfterInterceptor.parseRetryAfter(null, 0));
+        assertEquals(-1, RetryAfterInterceptor.parseRetryAfter("", 0));
+        assertEquals(-1, RetryAfterInterceptor.parseRetryAfter("soon", 0));
+    }
+
+    @Test
+    public void testOnlyDownloadsAreRetried() throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        server.enqueue(new MockResponse().setBody("feed"));
+        server.start();
+        try {
+            OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new RetryAfterInterceptor()).build();
+            Request post = new Request.Builder().url(server.url("/sync"))
+                    .post(RequestBody.create(MediaType.parse("text/plain"), "actions")).build();
+            try (Response response = client.newCall(post).execute()) {
+                assertEquals(429, response.code());
+            }
+
+            String url = server.url("/feed").toString();
+            DownloadRequest download = new DownloadRequest.Builder("/tmp/feed.xml", new Feed(url, null)).build();
+            Request get = new Request.Builder().url(url).tag(download).build();
+            try (Response response = client.newCall(get).execute()) {
+                assertEquals(200, response.code());
+            }
+            assertEquals(3, server.getRequestCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package de.danoeh.antennapod.core.service.download;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class DownloadFileWriterTest {
+    private static final int SIZE = 3 * DownloadFileWriter.BUFFER_SIZE + 1234;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] content;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[SIZE];
+        new Random(7).nextBytes(content);
+        file = folder.newFile();
+    }
+
+    @Test
+    public void testTransfer() throws IOException {
+        long[] progress = {-1};
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            DownloadFileWriter writer = new DownloadFileWriter(out.getChannel(), DownloadFileWriter.NO_SYNC);
+            long soFar = writer.transfer(Channels.newChannel(new ByteArrayInputStream(content)), 0,
+                    value -> progress[0] = value);
+            assertEquals(SIZE, soFar);
+        }
+        assertEquals(SIZE, progress[0]);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        int alreadyDownloaded = 1000;
+        Files.write(file.toPath(), Arrays.copyOf(content, alreadyDownloaded));
+        byte[] rest = Arrays.copyOfRange(content, alreadyDownloaded, SIZE);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(alreadyDownloaded);
+            DownloadFileWriter writer = new DownloadFileWriter(out.getChannel(),
+                    DownloadFileWriter.SYNC_INTERVAL_BYTES);
+            assertEquals(SIZE, writer.transfer(Channels.newChannel(new ByteArrayInputStream(rest)),
+                    alreadyDownloaded, value -> { }));
+        }
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void testKeepsDataReceivedBeforeError() throws IOException {
+        int failAfter = DownloadFileWriter.BUFFER_SIZE / 2;
+        ReadableByteChannel source = new ReadableByteChannel() {
+            private int position = 0;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (position >= failAfter) {
+                    throw new IOException("Connection reset");
+                }
+                int count = Math.min(dst.remaining(), Math.min(1000, failAfter - position));
+                dst.put(content, position, count);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        long[] progress = {-1};
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            DownloadFileWriter writer = new DownloadFileWriter(out.getChannel(), DownloadFileWriter.NO_SYNC);
+            writer.transfer(source, 0, value -> progress[0] = value);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Connection reset", e.getMessage());
+        }
+        assertEquals(failAfter, progress[0]);
+        assertArrayEquals(Arrays.copyOf(content, failAfter), Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void testCancel() throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            DownloadFileWriter writer = new DownloadFileWriter(out.getChannel(), DownloadFileWriter.NO_SYNC);
+            writer.cancel();
+            assertEquals(0, writer.transfer(Channels.newChannel(new ByteArrayInputStream(content)), 0,
+                    value -> { }));
+        }
+        assertEquals(0, file.length());
+    }
+}
@@ -0,0 +1,69 @@
+package de.danoeh.antennapod.core.service.download;
+
+import de.danoeh.antennapod.core.service.download.handler.DownloadProgressTracker;
+import de.danoeh.antennapod.model.feed.FeedMedia;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class DownloadProgressTrackerTest {
+
+    @Test
+    public void testOnlyChangedDownloadsAreReported() {
+        DownloadProgressTracker tracker = new DownloadProgressTracker();
+        Downloader first = createDownloader(1);
+        Downloader second = createDownloader(2);
+        List<Downloader> downloads = Arrays.asList(first, second);
+        assertEquals(2, tracker.update(downloads).size());
+
+        // Idle: nothing to publish
+        assertTrue(tracker.update(downloads).isEmpty());
+
+        // Bytes that do not change the percentage are not reported
+        second.getDownloadRequest().setSoFar(100);
+        assertTrue(tracker.update(downloads).isEmpty());
+
+        second.getDownloadRequest().setProgressPercent(10);
+        List<Downloader> changed = tracker.update(downloads);
+        assertEquals(1, changed.size());
+        assertSame(second, changed.get(0));
+    }
+
+    @Test
+    public void testFinishedDownloadsAreReported() {
+        DownloadProgressTracker tracker = new DownloadProgressTracker();
+        Downloader first = createDownloader(1);
+        Downloader second = createDownloader(2);
+        tracker.update(Arrays.asList(first, second));
+
+        List<Downloader> changed = tracker.update(Collections.singletonList(second));
+        assertEquals(1, changed.size());
+        assertSame(first, changed.get(0));
+
+        second.cancel();
+        changed = tracker.update(Collections.singletonList(second));
+        assertEquals(1, changed.size());
+        assertSame(second, changed.get(0));
+        assertTrue(tracker.update(Collections.emptyList()).isEmpty());
+    }
+
+    private static Downloader createDownloader(long mediaId) {
+        FeedMedia media = new FeedMedia(mediaId, null, 0, 0, 0, "", "",
+                "http://example.com/episode" + mediaId + ".mp3", false, null, 0, 0);
+        DownloadRequest request = new DownloadRequest.Builder("/tmp/episode" + mediaId + ".mp3", media).build();
+        return new Downloader(request) {
+            @Override
+            protected void download() {
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package de.danoeh.antennapod.core.service.download;
+
+import de.danoeh.antennapod.model.feed.FeedMedia;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class DownloadRegistryTest {
+
+    @Test
+    public void testLookup() {
+        DownloadRegistry registry = new DownloadRegistry();
+        Downloader first = createDownloader(1);
+        Downloader second = createDownloader(2);
+        registry.add(first);
+        registry.add(second);
+
+        assertEquals(2, registry.size());
+        assertSame(first, registry.getBySource("http://example.com/episode1.mp3"));
+        assertSame(second, registry.getByMediaId(2));
+        assertTrue(registry.isDestinationTaken("/tmp/episode2.mp3"));
+
+        registry.remove(first);
+        assertNull(registry.getBySource("http://example.com/episode1.mp3"));
+        assertNull(registry.getByMediaId(1));
+        assertFalse(registry.isDestinationTaken("/tmp/episode1.mp3"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testSnapshotDoesNotChange() {
+        DownloadRegistry registry = new DownloadRegistry();
+        Downloader first = createDownloader(1);
+        registry.add(first);
+        List<Downloader> snapshot = registry.snapshot();
+        registry.add(createDownloader(2));
+        registry.remove(first);
+        assertEquals(1, snapshot.size());
+        assertSame(first, snapshot.get(0));
+    }
+
+    @Test
+    public void testRestartAfterCancel() {
+        DownloadRegistry registry = new DownloadRegistry();
+        Downloader cancelled = createDownloader(1);
+        cancelled.cancel();
+        registry.add(cancelled);
+        Downloader restarted = createDownloader(1);
+        registry.add(restarted);
+        assertSame(restarted, registry.getByMediaId(1));
+
+        // The cancelled download finishing must not remove the new one from the indexes
+        registry.remove(cancelled);
+        assertSame(restarted, registry.getBySource("http://example.com/episode1.mp3"));
+        assertSame(restarted, registry.getByMediaId(1));
+        assertEquals(1, registry.size());
+    }
+
+    private static Downloader createDownloader(long mediaId) {
+        FeedMedia media = new FeedMedia(mediaId, null, 0, 0, 0, "", "",
+                "http://example.com/episode" + mediaId + ".mp3", false, null, 0, 0);
+        DownloadRequest request = new DownloadRequest.Builder("/tmp/episode" + mediaId + ".mp3", media).build();
+        return new Downloader(request) {
+            @Override
+            protected void download() {
+            }
+        };
+    }
+}
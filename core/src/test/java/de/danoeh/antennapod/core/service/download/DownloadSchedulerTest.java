@@ -0,0 +1,177 @@
+package de.danoeh.antennapod.core.service.download;
+
+import de.danoeh.antennapod.model.feed.Feed;
+import de.danoeh.antennapod.model.feed.FeedMedia;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class DownloadSchedulerTest {
+    private DownloadScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new DownloadScheduler(1, Integer.MAX_VALUE);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testPriority() {
+        assertEquals(DownloadScheduler.PRIORITY_USER, DownloadScheduler.getPriority(mediaRequest(true)));
+        assertEquals(DownloadScheduler.PRIORITY_AUTO_DOWNLOAD, DownloadScheduler.getPriority(mediaRequest(false)));
+        assertEquals(DownloadScheduler.PRIORITY_USER, DownloadScheduler.getPriority(feedRequest(true)));
+        assertEquals(DownloadScheduler.PRIORITY_BACKGROUND_REFRESH,
+                DownloadScheduler.getPriority(feedRequest(false)));
+    }
+
+    @Test
+    public void testUserInitiatedRunsFirst() throws InterruptedException {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        scheduler.execute(mediaRequest(true), () -> awaitQuietly(blocker));
+        scheduler.execute(mediaRequest(false), () -> {
+            order.add("auto1");
+            done.countDown();
+        });
+        scheduler.execute(mediaRequest(false), () -> {
+            order.add("auto2");
+            done.countDown();
+        });
+        scheduler.execute(mediaRequest(true), () -> {
+            order.add("user");
+            done.countDown();
+        });
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, order.size());
+        assertEquals("user", order.get(0));
+        assertEquals("auto1", order.get(1));
+        assertEquals("auto2", order.get(2));
+    }
+
+    @Test
+    public void testFeedsDoNotWaitForMedia() throws InterruptedException {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch feedDone = new CountDownLatch(1);
+        scheduler.execute(mediaRequest(true), () -> awaitQuietly(blocker));
+        scheduler.execute(feedRequest(false), feedDone::countDown);
+        assertTrue(feedDone.await(5, TimeUnit.SECONDS));
+        blocker.countDown();
+    }
+
+    @Test
+    public void testResize() throws InterruptedException {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        scheduler.execute(mediaRequest(true), () -> {
+            started.countDown();
+            awaitQuietly(blocker);
+        });
+        scheduler.execute(mediaRequest(true), () -> {
+            started.countDown();
+            awaitQuietly(blocker);
+        });
+        scheduler.setParallelDownloads(2);
+        assertEquals(2, scheduler.getParallelDownloads());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        blocker.countDown();
+    }
+
+    @Test
+    public void testHostLimitDoesNotBlockOtherHosts() throws InterruptedException {
+        DownloadScheduler limited = new DownloadScheduler(2, 1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch otherHostDone = new CountDownLatch(1);
+        AtomicInteger sameHostRunning = new AtomicInteger();
+        AtomicInteger maxSameHostRunning = new AtomicInteger();
+        CountDownLatch sameHostDone = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            limited.execute(feedRequest("http://a.example.com/feed" + i), () -> {
+                int running = sameHostRunning.incrementAndGet();
+                maxSameHostRunning.set(Math.max(maxSameHostRunning.get(), running));
+                awaitQuietly(blocker);
+                sameHostRunning.decrementAndGet();
+                sameHostDone.countDown();
+            });
+        }
+        limited.execute(feedRequest("http://b.example.com/feed"), otherHostDone::countDown);
+        assertTrue(otherHostDone.await(5, TimeUnit.SECONDS));
+        blocker.countDown();
+        assertTrue(sameHostDone.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxSameHostRunning.get());
+        limited.shutdownNow();
+    }
+
+    @Test
+    public void testMediaDownloadsAreNotLimitedPerHost() throws InterruptedException {
+        DownloadScheduler limited = new DownloadScheduler(2, 1);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            limited.execute(mediaRequest(false), () -> {
+                bothRunning.countDown();
+                try {
+                    if (bothRunning.await(5, TimeUnit.SECONDS)) {
+                        done.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        limited.shutdownNow();
+    }
+
+    @Test
+    public void testGetHost() {
+        assertEquals("example.com:80", DownloadScheduler.getHost(feedRequest("http://example.com/feed")));
+        assertEquals("example.com:8443", DownloadScheduler.getHost(feedRequest("https://example.com:8443/feed")));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static DownloadRequest mediaRequest(boolean initiatedByUser) {
+        FeedMedia media = new FeedMedia(1, null, 0, 0, 0, "", "", "http://example.com/episode", false, null, 0, 0);
+        DownloadRequest.Builder builder = new DownloadRequest.Builder("/tmp/episode.mp3", media);
+        builder.setInitiatedByUser(initiatedByUser);
+        return builder.build();
+    }
+
+    private static DownloadRequest feedRequest(String url) {
+        DownloadRequest.Builder builder = new DownloadRequest.Builder("/tmp/feed.xml", new Feed(url, null));
+        builder.setInitiatedByUser(false);
+        return builder.build();
+    }
+
+    private static DownloadRequest feedRequest(boolean initiatedByUser) {
+        Feed feed = new Feed("http://example.com/feed", null);
+        DownloadRequest.Builder builder = new DownloadRequest.Builder("/tmp/feed.xml", feed);
+        builder.setInitiatedByUser(initiatedByUser);
+        return builder.build();
+    }
+}
@@ -0,0 +1,182 @@
+package de.danoeh.antennapod.core.service.download;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import de.danoeh.antennapod.core.ApplicationCallbacks;
+import de.danoeh.antennapod.core.ClientConfig;
+import de.danoeh.antennapod.core.preferences.PlaybackPreferences;
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.core.service.download.handler.FeedSyncTask;
+import de.danoeh.antennapod.core.storage.DBWriter;
+import de.danoeh.antennapod.model.feed.Feed;
+import de.danoeh.antennapod.storage.database.PodDBAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowStatFs;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Refreshes a feed from a mock server that supports RFC 3229 feed deltas.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FeedDeltaTest {
+    private static final int FULL_FEED_EPISODES = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private DeltaDispatcher dispatcher;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        UserPreferences.init(context);
+        PlaybackPreferences.init(context);
+        ClientConfig.applicationCallbacks = mock(ApplicationCallbacks.class);
+        when(ClientConfig.applicationCallbacks.getApplicationInstance()).thenReturn((Application) context);
+        // Robolectric reports no free space unless told otherwise, which fails downloads of a known size
+        ShadowStatFs.registerStats(UserPreferences.getDataFolder(null), 100_000, 100_000, 100_000);
+
+        PodDBAdapter.init(context);
+        PodDBAdapter.deleteDatabase();
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.close();
+
+        dispatcher = new DeltaDispatcher();
+        server = new MockWebServer();
+        server.setDispatcher(dispatcher);
+        server.start();
+        url = server.url("/feed.xml").toString();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        DBWriter.tearDownTests();
+        PodDBAdapter.tearDownTests();
+    }
+
+    @Test
+    public void testDeltaKeepsExistingEpisodes() throws IOException {
+        Feed feed = refresh(new Feed(url, null), true);
+        assertEquals(FULL_FEED_EPISODES, feed.getItems().size());
+        assertEquals("\"v1\"", feed.getEtag());
+        long fullBytes = dispatcher.lastResponseBytes;
+
+        dispatcher.publishEpisode();
+        DownloadRequest request = createRequest(feed, true);
+        feed = sync(request);
+        assertTrue(request.getArguments().getBoolean(DownloadRequest.REQUEST_ARG_IS_FEED_DELTA));
+        assertEquals(FULL_FEED_EPISODES + 1, feed.getItems().size());
+        assertEquals("\"v2\"", feed.getEtag());
+        long deltaBytes = dispatcher.lastResponseBytes;
+        assertTrue(deltaBytes * 10 < fullBytes);
+    }
+
+    @Test
+    public void testNoDeltaWithoutOptIn() throws IOException {
+        Feed feed = refresh(new Feed(url, null), false);
+        dispatcher.publishEpisode();
+        DownloadRequest request = createRequest(feed, false);
+        feed = sync(request);
+        assertFalse(request.getArguments().getBoolean(DownloadRequest.REQUEST_ARG_IS_FEED_DELTA));
+        assertNull(dispatcher.lastRequest.getHeader("A-IM"));
+        assertEquals(FULL_FEED_EPISODES + 1, feed.getItems().size());
+    }
+
+    private Feed refresh(Feed feed, boolean acceptDelta) throws IOException {
+        return sync(createRequest(feed, acceptDelta));
+    }
+
+    private DownloadRequest createRequest(Feed feed, boolean acceptDelta) throws IOException {
+        File destination = new File(folder.getRoot(), "feed" + System.nanoTime() + ".xml");
+        DownloadRequest.Builder builder = new DownloadRequest.Builder(destination.getAbsolutePath(), feed)
+                .lastModified(feed.getLastUpdate())
+                .etag(feed.getEtag());
+        builder.acceptFeedDelta(acceptDelta);
+        return builder.build();
+    }
+
+    private Feed sync(DownloadRequest request) {
+        HttpDownloader downloader = new HttpDownloader(request);
+        downloader.call();
+        assertTrue(downloader.getResult().isSuccessful());
+        FeedSyncTask task = new FeedSyncTask(InstrumentationRegistry.getInstrumentation().getTargetContext(), request);
+        assertTrue(task.parse());
+        task.merge();
+        return task.getSavedFeed();
+    }
+
+    /**
+     * Serves a feed that grows by one episode per version. It answers requests with "A-IM: feed"
+     * and a known ETag with "226 IM Used" and only the episodes added since that version.
+     */
+    private static class DeltaDispatcher extends Dispatcher {
+        private volatile int version = 1;
+        volatile long lastResponseBytes;
+        volatile RecordedRequest lastRequest;
+
+        void publishEpisode() {
+            version++;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            lastRequest = request;
+            int episodes = FULL_FEED_EPISODES + version - 1;
+            int firstEpisode = 0;
+            MockResponse response = new MockResponse()
+                    .setHeader("Content-Type", "application/rss+xml")
+                    .setHeader("ETag", "\"v" + version + "\"");
+            String knownEtag = request.getHeader("If-None-Match");
+            if ("feed".equals(request.getHeader("A-IM")) && knownEtag != null) {
+                int knownVersion = Integer.parseInt(knownEtag.replace("\"", "").substring(1));
+                firstEpisode = FULL_FEED_EPISODES + knownVersion - 1;
+                response.setStatus("HTTP/1.1 226 IM Used").setHeader("IM", "feed");
+            }
+            Buffer body = new Buffer().writeUtf8(createFeed(firstEpisode, episodes));
+            lastResponseBytes = body.size();
+            return response.setBody(body);
+        }
+
+        private static String createFeed(int firstEpisode, int episodes) {
+            StringBuilder feed = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<rss version=\"2.0\"><channel><title>Delta feed</title><link>http://example.com</link>");
+            for (int i = episodes - 1; i >= firstEpisode; i--) {
+                feed.append("<item><title>Episode ").append(i).append("</title>")
+                        .append("<guid>episode-").append(i).append("</guid>")
+                        .append("<description>A description that makes the episode a bit longer, like in real feeds.")
+                        .append("</description>")
+                        .append("<enclosure url=\"http://example.com/").append(i)
+                        .append(".mp3\" length=\"1000\" type=\"audio/mpeg\"/></item>");
+            }
+            return feed.append("</channel></rss>").toString();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.danoeh.antennapod.core.service.download;
+
+import de.danoeh.antennapod.model.feed.Feed;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class FeedImportQueueTest {
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    public void testWindow() {
+        FeedImportQueue<String> queue = new FeedImportQueue<>();
+        queue.add(createRequests(0, 5), NOW);
+        queue.add(createRequests(3, 6), NOW); // Duplicates are ignored
+        assertEquals(3, queue.startNext(3).size());
+        assertEquals(0, queue.startNext(3).size());
+
+        queue.onFinished("http://example.com/feed0");
+        List<DownloadRequest> next = queue.startNext(3);
+        assertEquals(1, next.size());
+        assertEquals("http://example.com/feed3", next.get(0).getSource());
+        assertEquals(6, queue.getProgress(NOW).getTotal());
+    }
+
+    @Test
+    public void testBatchCompletesWhenAllRunningFeedsAreParsed() {
+        FeedImportQueue<String> queue = new FeedImportQueue<>();
+        queue.add(createRequests(0, 3), NOW);
+        queue.startNext(10);
+        assertNull(queue.addToBatch("feed0"));
+        assertNull(queue.addToBatch("feed1"));
+
+        // The last feed fails, so the other two do not have to wait for it
+        List<String> batch = queue.onFinished("http://example.com/feed2");
+        assertNotNull(batch);
+        assertEquals(Arrays.asList("feed0", "feed1"), batch);
+    }
+
+    @Test
+    public void testBatchSize() {
+        FeedImportQueue<String> queue = new FeedImportQueue<>();
+        queue.add(createRequests(0, 2 * FeedImportQueue.BATCH_SIZE), NOW);
+        queue.startNext(2 * FeedImportQueue.BATCH_SIZE);
+        for (int i = 0; i < FeedImportQueue.BATCH_SIZE - 1; i++) {
+            assertNull(queue.addToBatch("feed" + i));
+        }
+        assertEquals(FeedImportQueue.BATCH_SIZE, queue.addToBatch("last").size());
+    }
+
+    @Test
+    public void testProgress() {
+        FeedImportQueue<String> queue = new FeedImportQueue<>();
+        assertNull(queue.getProgress(NOW));
+        queue.add(createRequests(0, 20), NOW);
+        queue.startNext(20);
+        assertEquals(FeedImportProgress.UNKNOWN, queue.getProgress(NOW).getRemainingMillis());
+
+        for (int i = 0; i < 5; i++) {
+            queue.onFinished("http://example.com/feed" + i);
+        }
+        FeedImportProgress progress = queue.getProgress(NOW + 5000);
+        assertEquals(5, progress.getFinished());
+        assertEquals(15000, progress.getRemainingMillis());
+
+        for (int i = 5; i < 20; i++) {
+            queue.onFinished("http://example.com/feed" + i);
+        }
+        assertNull(queue.getProgress(NOW + 20000));
+    }
+
+    private static List<DownloadRequest> createRequests(int from, int to) {
+        List<DownloadRequest> requests = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Feed feed = new Feed("http://example.com/feed" + i, null);
+            requests.add(new DownloadRequest.Builder("/tmp/feed" + i, feed).build());
+        }
+        return requests;
+    }
+}
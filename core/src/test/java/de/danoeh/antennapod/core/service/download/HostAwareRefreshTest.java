@@ -0,0 +1,150 @@
+package de.danoeh.antennapod.core.service.download;
+
+import de.danoeh.antennapod.core.service.RetryAfterInterceptor;
+import de.danoeh.antennapod.model.feed.Feed;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Refreshes feeds from several stand-in hosts that only accept a few parallel requests.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HostAwareRefreshTest {
+    private static final int PARALLEL_DOWNLOADS = 6;
+    private static final int HOST_CAPACITY = 2;
+    private static final int RESPONSE_MILLIS = 100;
+    private static final int[] FEEDS_PER_HOST = {12, 4, 4};
+
+    private final List<MockWebServer> servers = new ArrayList<>();
+    private final List<LimitedHost> hosts = new ArrayList<>();
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < FEEDS_PER_HOST.length; i++) {
+            LimitedHost host = new LimitedHost(HOST_CAPACITY, RESPONSE_MILLIS);
+            MockWebServer server = new MockWebServer();
+            server.setDispatcher(host);
+            server.start();
+            hosts.add(host);
+            servers.add(server);
+        }
+        client = new OkHttpClient.Builder().addInterceptor(new RetryAfterInterceptor()).build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (MockWebServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testRefreshWithHostLimit() throws InterruptedException {
+        assertEquals(0, refreshAll(new DownloadScheduler(PARALLEL_DOWNLOADS, HOST_CAPACITY)));
+        for (LimitedHost host : hosts) {
+            assertEquals(0, host.rejected.get());
+        }
+    }
+
+    @Test
+    public void testRefreshWithoutHostLimit() throws InterruptedException {
+        refreshAll(new DownloadScheduler(PARALLEL_DOWNLOADS, Integer.MAX_VALUE));
+        int rejected = 0;
+        for (LimitedHost host : hosts) {
+            rejected += host.rejected.get();
+        }
+        assertTrue(rejected > 0);
+    }
+
+    /**
+     * @return The number of failed refreshes.
+     */
+    private int refreshAll(DownloadScheduler scheduler) throws InterruptedException {
+        int total = 0;
+        for (int feeds : FEEDS_PER_HOST) {
+            total += feeds;
+        }
+        CountDownLatch done = new CountDownLatch(total);
+        AtomicInteger failed = new AtomicInteger();
+        for (int h = 0; h < FEEDS_PER_HOST.length; h++) {
+            for (int i = 0; i < FEEDS_PER_HOST[h]; i++) {
+                String url = servers.get(h).url("/feed" + i).toString();
+                DownloadRequest downloadRequest = feedRequest(url);
+                scheduler.execute(downloadRequest, () -> {
+                    Request request = new Request.Builder().url(url).tag(downloadRequest).build();
+                    try (Response response = client.newCall(request).execute()) {
+                        if (!response.isSuccessful()) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    }
+                    done.countDown();
+                });
+            }
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        scheduler.shutdownNow();
+        return failed.get();
+    }
+
+    private static DownloadRequest feedRequest(String url) {
+        DownloadRequest.Builder builder = new DownloadRequest.Builder("/tmp/feed.xml", new Feed(url, null));
+        builder.setInitiatedByUser(false);
+        return builder.build();
+    }
+
+    /**
+     * Answers with 429 and Retry-After when it gets too many parallel requests.
+     */
+    private static class LimitedHost extends Dispatcher {
+        private final int capacity;
+        private final int responseMillis;
+        private final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+
+        LimitedHost(int capacity, int responseMillis) {
+            this.capacity = capacity;
+            this.responseMillis = responseMillis;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            if (running.incrementAndGet() > capacity) {
+                running.decrementAndGet();
+                rejected.incrementAndGet();
+                return new MockResponse().setResponseCode(429).setHeader("Retry-After", "1");
+            }
+            try {
+                Thread.sleep(responseMillis);
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/rss+xml")
+                        .setBody("<rss version=\"2.0\"><channel></channel></rss>");
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
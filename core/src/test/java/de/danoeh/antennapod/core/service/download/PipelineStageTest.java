@@ -0,0 +1,90 @@
+package de.danoeh.antennapod.core.service.download;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineStageTest {
+    private PipelineStage stage;
+
+    @Before
+    public void setUp() {
+        stage = new PipelineStage("Test", 1, 1);
+    }
+
+    @After
+    public void tearDown() {
+        stage.shutdownNow();
+    }
+
+    @Test
+    public void testSubmitBlocksWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        stage.submit(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        stage.submit(() -> { }); // Fills the queue
+        assertEquals(1, stage.getQueueDepth());
+
+        CountDownLatch thirdSubmitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                stage.submit(thirdSubmitted::countDown);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        producer.start();
+        assertFalse("Producer should be blocked", thirdSubmitted.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(thirdSubmitted.await(5, TimeUnit.SECONDS));
+        producer.join(5000);
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            stage.submit(() -> {
+                sleepQuietly(20);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stage.getCompletedTaskCount() < 3 && System.currentTimeMillis() < deadline) {
+            sleepQuietly(10);
+        }
+        assertEquals(3, stage.getCompletedTaskCount());
+        assertEquals(0, stage.getQueueDepth());
+        assertTrue(stage.getAverageLatencyMillis() >= 20);
+        assertTrue(stage.getMaxLatencyMillis() >= stage.getAverageLatencyMillis());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
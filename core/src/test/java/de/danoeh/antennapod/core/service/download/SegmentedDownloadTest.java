@@ -0,0 +1,248 @@
+package de.danoeh.antennapod.core.service.download;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import de.danoeh.antennapod.core.ApplicationCallbacks;
+import de.danoeh.antennapod.core.ClientConfig;
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.model.feed.FeedMedia;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowStatFs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class SegmentedDownloadTest {
+    private static final int FILE_SIZE = 512 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] content;
+    private RangeDispatcher dispatcher;
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        dispatcher = new RangeDispatcher(content);
+        server = new MockWebServer();
+        server.setDispatcher(dispatcher);
+        server.start();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testSplit() {
+        List<SegmentedDownload.Segment> segments = SegmentedDownload.split(10, 3);
+        assertEquals(3, segments.size());
+        assertEquals(0, segments.get(0).start);
+        assertEquals(3, segments.get(0).end);
+        assertEquals(8, segments.get(2).start);
+        assertEquals(9, segments.get(2).end);
+    }
+
+    @Test
+    public void testParseTotalSize() {
+        assertEquals(1234, SegmentedDownload.parseTotalSize("bytes 0-0/1234"));
+        assertEquals(-1, SegmentedDownload.parseTotalSize("bytes 0-0/*"));
+        assertEquals(-1, SegmentedDownload.parseTotalSize(null));
+    }
+
+    @Test
+    public void testDownloadInSegments() throws IOException {
+        File destination = folder.newFile();
+        SegmentedDownload download = new SegmentedDownload(client, request(), destination, FILE_SIZE, "v1", 4);
+        download.run(soFar -> { }, null);
+        assertTrue(download.isComplete());
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertFalse(SegmentedDownload.hasState(destination));
+        assertEquals(4, dispatcher.rangeRequestCount.get());
+    }
+
+    @Test
+    public void testSegmentsUseParallelConnections() throws IOException {
+        // Every segment request waits until all segments are requested, which only happens if they run in parallel
+        dispatcher.awaitParallelRequests(4);
+        File destination = folder.newFile();
+        SegmentedDownload download = new SegmentedDownload(client, request(), destination, FILE_SIZE, "v1", 4);
+        download.run(soFar -> { }, null);
+        assertTrue(dispatcher.parallelRequestsArrived);
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+    }
+
+    @Test
+    public void testFirstResponseIsReused() throws IOException {
+        File destination = folder.newFile();
+        Request first = request().newBuilder().header("Range", "bytes=0-").build();
+        try (Response response = client.newCall(first).execute()) {
+            SegmentedDownload download = new SegmentedDownload(client, request(), destination, FILE_SIZE, "v1", 4);
+            download.run(soFar -> { }, response);
+        }
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void testHttpDownloaderUsesSegmentsForNewFile() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        UserPreferences.init(context);
+        ClientConfig.applicationCallbacks = mock(ApplicationCallbacks.class);
+        when(ClientConfig.applicationCallbacks.getApplicationInstance()).thenReturn((Application) context);
+        ShadowStatFs.registerStats(UserPreferences.getDataFolder(null), 100_000, 100_000, 100_000);
+
+        byte[] largeContent = new byte[(int) SegmentedDownload.MIN_SIZE + 1024];
+        new Random(42).nextBytes(largeContent);
+        RangeDispatcher largeFile = new RangeDispatcher(largeContent);
+        server.setDispatcher(largeFile);
+
+        // DownloadService creates an empty destination file before the download starts
+        File destination = folder.newFile();
+        FeedMedia media = new FeedMedia(1, null, 0, 0, 0, "", "", server.url("/file").toString(),
+                false, null, 0, 0);
+        HttpDownloader downloader = new HttpDownloader(
+                new DownloadRequest.Builder(destination.getAbsolutePath(), media).build());
+        downloader.call();
+
+        assertTrue(downloader.getResult().isSuccessful());
+        assertTrue(largeFile.rangeRequestCount.get() > 1);
+        assertArrayEquals(largeContent, Files.readAllBytes(destination.toPath()));
+        assertFalse(SegmentedDownload.hasState(destination));
+    }
+
+    @Test
+    public void testResumeAfterCancel() throws IOException {
+        File destination = folder.newFile();
+        SegmentedDownload first = new SegmentedDownload(client, request(), destination, FILE_SIZE, "v1", 4);
+        first.run(soFar -> {
+            if (soFar > FILE_SIZE / 4) {
+                first.cancel();
+            }
+        }, null);
+        assertFalse(first.isComplete());
+        assertTrue(SegmentedDownload.hasState(destination));
+
+        SegmentedDownload second = new SegmentedDownload(client, request(), destination, FILE_SIZE, "v1", 4);
+        assertEquals(first.getSoFar(), second.getSoFar());
+        second.run(soFar -> { }, null);
+        assertTrue(second.isComplete());
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+    }
+
+    @Test
+    public void testStateOfOtherVersionIsIgnored() throws IOException {
+        File destination = folder.newFile();
+        SegmentedDownload first = new SegmentedDownload(client, request(), destination, FILE_SIZE, "v1", 4);
+        first.run(soFar -> first.cancel(), null);
+        assertTrue(first.getSoFar() > 0);
+
+        SegmentedDownload second = new SegmentedDownload(client, request(), destination, FILE_SIZE, "v2", 4);
+        assertEquals(0, second.getSoFar());
+    }
+
+    @Test
+    public void testServerIgnoringRangeFails() throws IOException {
+        dispatcher.rangeSupported = false;
+        File destination = folder.newFile();
+        SegmentedDownload download = new SegmentedDownload(client, request(), destination, FILE_SIZE, "v1", 4);
+        try {
+            download.run(soFar -> { }, null);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertFalse(download.isComplete());
+        }
+    }
+
+    private Request request() {
+        return new Request.Builder().url(server.url("/file")).build();
+    }
+
+    /**
+     * Serves a file and answers range requests with the requested part of it.
+     */
+    private static class RangeDispatcher extends Dispatcher {
+        private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+        private final byte[] content;
+        final AtomicInteger rangeRequestCount = new AtomicInteger();
+        volatile boolean rangeSupported = true;
+        volatile boolean parallelRequestsArrived = false;
+        private volatile CountDownLatch parallelRequests;
+
+        RangeDispatcher(byte[] content) {
+            this.content = content;
+        }
+
+        void awaitParallelRequests(int count) {
+            parallelRequests = new CountDownLatch(count);
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            String range = request.getHeader("Range");
+            Matcher matcher = range != null ? RANGE.matcher(range) : null;
+            if (matcher == null || !matcher.matches() || !rangeSupported) {
+                return new MockResponse().setBody(new Buffer().write(content));
+            }
+            rangeRequestCount.incrementAndGet();
+            CountDownLatch latch = parallelRequests;
+            if (latch != null) {
+                latch.countDown();
+                if (latch.await(10, TimeUnit.SECONDS)) {
+                    parallelRequestsArrived = true;
+                }
+            }
+            int start = Integer.parseInt(matcher.group(1));
+            int end = content.length - 1;
+            if (!matcher.group(2).isEmpty()) {
+                end = Math.min(end, Integer.parseInt(matcher.group(2)));
+            }
+            return new MockResponse()
+                    .setResponseCode(206)
+                    .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length)
+                    .setBody(new Buffer().write(content, start, end - start + 1));
+        }
+    }
+}
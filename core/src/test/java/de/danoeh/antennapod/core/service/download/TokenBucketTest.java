@@ -0,0 +1,58 @@
+package de.danoeh.antennapod.core.service.download;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+    private static final long RATE = 100 * 1024;
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testUnlimited() {
+        TokenBucket bucket = new TokenBucket(TokenBucket.UNLIMITED);
+        assertEquals(0, bucket.reserve(Long.MAX_VALUE / 2, System.nanoTime()));
+    }
+
+    @Test
+    public void testBurstIsFree() {
+        TokenBucket bucket = new TokenBucket(RATE);
+        assertEquals(0, bucket.reserve(RATE / 4, System.nanoTime()));
+    }
+
+    @Test
+    public void testDebtIsPaidOffAtRate() {
+        TokenBucket bucket = new TokenBucket(RATE);
+        long now = System.nanoTime();
+        bucket.reserve(RATE / 4, now);
+        long wait = bucket.reserve(RATE, now);
+        assertEquals(SECOND, wait, SECOND / 100);
+        // A second reader sharing the bucket has to wait for both transfers
+        wait = bucket.reserve(RATE, now);
+        assertEquals(2 * SECOND, wait, SECOND / 100);
+    }
+
+    @Test
+    public void testRefill() {
+        TokenBucket bucket = new TokenBucket(RATE);
+        long now = System.nanoTime();
+        bucket.reserve(RATE / 4, now);
+        assertEquals(0, bucket.reserve(RATE / 4, now + SECOND / 4));
+        // Idle time does not accumulate more than the burst
+        assertTrue(bucket.reserve(RATE, now + 10 * SECOND) > 0);
+    }
+
+    @Test
+    public void testSetRate() {
+        TokenBucket bucket = new TokenBucket(RATE);
+        long now = System.nanoTime();
+        bucket.reserve(RATE / 4, now);
+        bucket.setRate(2 * RATE);
+        assertEquals(RATE, bucket.getRate() / 2);
+        bucket.setRate(TokenBucket.UNLIMITED);
+        assertEquals(0, bucket.reserve(10 * RATE, System.nanoTime()));
+    }
+}
@@ -0,0 +1,75 @@
+package de.danoeh.antennapod.core.storage;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.storage.database.PodDBAdapter;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static de.danoeh.antennapod.core.storage.DbTestUtils.saveFeedlist;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link DatabaseExporter}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseExporterTest {
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getContext();
+        UserPreferences.init(context);
+
+        PodDBAdapter.init(context);
+        PodDBAdapter.deleteDatabase();
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.close();
+    }
+
+    @After
+    public void tearDown() {
+        PodDBAdapter.tearDownTests();
+        DBWriter.tearDownTests();
+    }
+
+    @Test
+    public void testCompressedBackup() throws Exception {
+        saveFeedlist(3, 2, false);
+        ByteArrayOutputStream backup = new ByteArrayOutputStream();
+        DatabaseExporter.exportToStream(backup, context);
+        byte[] bytes = backup.toByteArray();
+        assertEquals(0x1f, bytes[0] & 0xff);
+        assertEquals(0x8b, bytes[1] & 0xff);
+
+        restore(bytes);
+        assertEquals(3, DBReader.getFeedList().size());
+    }
+
+    @Test
+    public void testRestoreUncompressedBackup() throws Exception {
+        saveFeedlist(2, 1, false);
+        byte[] bytes = FileUtils.readFileToByteArray(context.getDatabasePath(PodDBAdapter.DATABASE_NAME));
+
+        restore(bytes);
+        assertEquals(2, DBReader.getFeedList().size());
+    }
+
+    private void restore(byte[] backup) throws Exception {
+        PodDBAdapter.deleteDatabase(); // The feeds must come from the backup
+        PodDBAdapter.tearDownTests();
+        DBWriter.tearDownTests();
+        DatabaseExporter.importFromStream(new ByteArrayInputStream(backup), context);
+        PodDBAdapter.init(context);
+    }
+}
@@ -17,6 +17,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import de.danoeh.antennapod.core.ApplicationCallbacks;
 import de.danoeh.antennapod.core.ClientConfig;
@@ -88,6 +91,62 @@ public class DbTasksTest {
         }
     }
 
+    @Test
+    public void testUpdateFeedConcurrently() throws Exception {
+        final int numFeeds = 200;
+        List<String> parallelResult = mergeTestFeeds(numFeeds, 8);
+
+        PodDBAdapter.deleteDatabase();
+        List<String> serialResult = mergeTestFeeds(numFeeds, 1);
+
+        assertEquals(numFeeds, serialResult.size());
+        assertEquals(serialResult, parallelResult);
+    }
+
+    /**
+     * Subscribes to numFeeds feeds and then refreshes each of them with a partly overlapping item list.
+     *
+     * @return A description of every feed in the database, sorted by download URL
+     */
+    private List<String> mergeTestFeeds(int numFeeds, int numThreads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < numFeeds; i++) {
+            final int feedNr = i;
+            futures.add(executor.submit(() -> {
+                DBTasks.updateFeed(context, createUnsavedFeed(feedNr, 0, 5), false);
+                DBTasks.updateFeed(context, createUnsavedFeed(feedNr, 3, 8), false);
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<String> result = new ArrayList<>();
+        for (Feed feed : DBReader.getFeedList()) {
+            StringBuilder description = new StringBuilder(feed.getDownload_url() + " " + feed.getTitle());
+            List<FeedItem> items = DBReader.getFeedItemList(feed);
+            Collections.sort(items, (a, b) -> a.getItemIdentifier().compareTo(b.getItemIdentifier()));
+            for (FeedItem item : items) {
+                description.append(" | ").append(item.getItemIdentifier()).append(" ").append(item.getPlayState());
+            }
+            result.add(description.toString());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static Feed createUnsavedFeed(int feedNr, int firstItem, int lastItem) {
+        Feed feed = new Feed("url" + feedNr, null, "feed " + feedNr);
+        feed.setItems(new ArrayList<>());
+        for (int i = lastItem; i >= firstItem; i--) {
+            feed.getItems().add(new FeedItem(0, "item " + i, "feed " + feedNr + " id " + i, "link " + i,
+                    new Date(i * 1000L), FeedItem.UNPLAYED, feed));
+        }
+        return feed;
+    }
+
     /** Two feeds with the same title, but different download URLs should be treated as different feeds. */
     @Test
     public void testUpdateFeedSameTitle() {
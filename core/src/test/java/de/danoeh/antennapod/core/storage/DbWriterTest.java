@@ -25,9 +25,13 @@ import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import de.danoeh.antennapod.core.ApplicationCallbacks;
 import de.danoeh.antennapod.core.ClientConfig;
+import de.danoeh.antennapod.model.download.DownloadHistogram;
+import de.danoeh.antennapod.model.download.DownloadJournalEntry;
+import de.danoeh.antennapod.model.download.DownloadTiming;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.model.feed.FeedMedia;
@@ -835,6 +839,102 @@ public class DbWriterTest {
         }
     }
 
+    @Test
+    public void testDownloadJournal() throws Exception {
+        DBWriter.setDownloadJournalEntry(new DownloadJournalEntry(1, "http://example.com/1.mp3", "/tmp/1.mp3",
+                true, 0, -1, null, null)).get(TIMEOUT, TimeUnit.SECONDS);
+        DBWriter.setDownloadJournalEntry(new DownloadJournalEntry(2, "http://example.com/2.mp3", "/tmp/2.mp3",
+                false, 0, -1, null, null)).get(TIMEOUT, TimeUnit.SECONDS);
+        // Progress replaces the entry of the same media
+        DBWriter.setDownloadJournalEntry(new DownloadJournalEntry(1, "http://example.com/1.mp3", "/tmp/1.mp3",
+                true, 1000, 5000, "\"abc\"", null)).get(TIMEOUT, TimeUnit.SECONDS);
+        DBWriter.removeDownloadJournalEntry(2).get(TIMEOUT, TimeUnit.SECONDS);
+
+        List<DownloadJournalEntry> journal = DBReader.getDownloadJournal();
+        assertEquals(1, journal.size());
+        DownloadJournalEntry entry = journal.get(0);
+        assertEquals(1, entry.getMediaId());
+        assertEquals("/tmp/1.mp3", entry.getDestination());
+        assertTrue(entry.isInitiatedByUser());
+        assertEquals(1000, entry.getSoFar());
+        assertEquals(5000, entry.getSize());
+        assertEquals("\"abc\"", entry.getEtag());
+        assertNull(entry.getLastModified());
+    }
+
+    @Test
+    public void testJournalUpdateAfterCancelIsSkipped() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        DownloadJournalEntry entry = new DownloadJournalEntry(1, "http://example.com/1.mp3", "/tmp/1.mp3",
+                true, 1000, 5000, null, null);
+        DBWriter.setDownloadJournalEntry(entry).get(TIMEOUT, TimeUnit.SECONDS);
+
+        // The periodic update saw a running download, but the download is cancelled and its
+        // entry removed before the update reaches the database
+        running.set(false);
+        DBWriter.removeDownloadJournalEntry(1);
+        DBWriter.updateDownloadJournalEntry(entry, running::get).get(TIMEOUT, TimeUnit.SECONDS);
+        assertTrue(DBReader.getDownloadJournal().isEmpty());
+    }
+
+    @Test
+    public void testFeedRefreshSchedule() throws Exception {
+        Feed feed = createTestFeed(3);
+        long newest = 0;
+        for (FeedItem item : feed.getItems()) {
+            newest = Math.max(newest, item.getPubDate().getTime());
+        }
+
+        // Not waiting in between, every update has to see the result of the previous one
+        DBWriter.updateFeedRefreshSchedule(feed);
+        DBWriter.updateFeedRefreshScheduleNotModified(feed.getId());
+        DBWriter.updateFeedRefreshSchedule(feed).get(TIMEOUT, TimeUnit.SECONDS);
+
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getFeedRefreshScheduleCursor(feed.getId())) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(newest, cursor.getLong(0));
+            assertEquals(2, cursor.getInt(1));
+        } finally {
+            adapter.close();
+        }
+    }
+
+    @Test
+    public void testDownloadTiming() throws Exception {
+        Feed feed = createTestFeed(0);
+        long now = System.currentTimeMillis();
+        DBWriter.addDownloadTiming(new DownloadTiming(feed.getId(), Feed.FEEDFILETYPE_FEED, "example.com", now,
+                10, 20, 30, 100, 50, 1000)).get(TIMEOUT, TimeUnit.SECONDS);
+        DBWriter.addDownloadTiming(new DownloadTiming(feed.getId(), Feed.FEEDFILETYPE_FEED, "example.com", now,
+                DownloadTiming.NOT_MEASURED, DownloadTiming.NOT_MEASURED, DownloadTiming.NOT_MEASURED,
+                300, 50, 1000)).get(TIMEOUT, TimeUnit.SECONDS);
+        // Unknown media only counts for the host
+        DBWriter.addDownloadTiming(new DownloadTiming(999, FeedMedia.FEEDFILETYPE_FEEDMEDIA, "cdn.example.com", now,
+                5, 5, 5, 40, 2000, 2 * 1024 * 1024)).get(TIMEOUT, TimeUnit.SECONDS);
+        // Too old to be kept
+        DBWriter.addDownloadTiming(new DownloadTiming(feed.getId(), Feed.FEEDFILETYPE_FEED, "old.example.com",
+                now - TimeUnit.DAYS.toMillis(365), 1, 1, 1, 1, 1, 1)).get(TIMEOUT, TimeUnit.SECONDS);
+
+        DBReader.DownloadPerformanceResult result = DBReader.getDownloadPerformance();
+        assertEquals(2, result.hosts.size());
+        assertEquals(1, result.feeds.size());
+        DownloadPerformanceItem feedItem = result.feeds.get(0);
+        assertEquals(feed.getId(), feedItem.feed.getId());
+        assertEquals(2, feedItem.getRecentCount());
+        assertEquals(1, feedItem.recent[DownloadHistogram.METRIC_DNS].getCount());
+        assertEquals(0, feedItem.recent[DownloadHistogram.METRIC_THROUGHPUT].getCount());
+        for (DownloadPerformanceItem hostItem : result.hosts) {
+            if ("cdn.example.com".equals(hostItem.host)) {
+                assertEquals(1, hostItem.recent[DownloadHistogram.METRIC_THROUGHPUT].getCount());
+            } else {
+                assertEquals("example.com", hostItem.host);
+                assertEquals(2, hostItem.getRecentCount());
+            }
+        }
+    }
+
     private static Feed createTestFeed(int numItems) {
         Feed feed = new Feed("url", null, "title");
         feed.setItems(new ArrayList<>());
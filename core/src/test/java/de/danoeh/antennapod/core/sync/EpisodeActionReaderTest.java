@@ -0,0 +1,70 @@
+package de.danoeh.antennapod.core.sync;
+
+import android.util.JsonReader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import de.danoeh.antennapod.net.sync.model.EpisodeAction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for {@link EpisodeAction#readFromJsonReader}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EpisodeActionReaderTest {
+
+    @Test
+    public void testRead() throws IOException {
+        EpisodeAction action = read("{\"podcast\": \"http://example.com/feed\","
+                + " \"episode\": \"http://example.com/1.mp3\", \"action\": \"play\","
+                + " \"timestamp\": \"2021-01-01T08:00:00\", \"guid\": \"1\","
+                + " \"started\": 10, \"position\": \"20\", \"total\": 30.0, \"device\": {\"id\": \"skipped\"}}");
+        assertNotNull(action);
+        assertEquals(EpisodeAction.PLAY, action.getAction());
+        assertEquals("1", action.getGuid());
+        assertEquals(10, action.getStarted());
+        assertEquals(20, action.getPosition());
+        assertEquals(30, action.getTotal());
+    }
+
+    @Test
+    public void testValuesOfUnexpectedTypeAreSkipped() throws IOException {
+        JsonReader reader = new JsonReader(new StringReader("["
+                + "{\"podcast\": \"http://example.com/feed\", \"episode\": \"http://example.com/1.mp3\","
+                + " \"action\": \"play\", \"guid\": true, \"started\": null, \"position\": true,"
+                + " \"total\": [100]},"
+                + "{\"podcast\": \"http://example.com/feed\", \"episode\": \"http://example.com/2.mp3\","
+                + " \"action\": \"download\", \"timestamp\": {\"utc\": true}}"
+                + "]"));
+        reader.beginArray();
+        EpisodeAction first = EpisodeAction.readFromJsonReader(reader);
+        EpisodeAction second = EpisodeAction.readFromJsonReader(reader);
+        reader.endArray();
+
+        assertNotNull(first);
+        assertNull(first.getGuid());
+        assertEquals(-1, first.getPosition());
+        assertEquals(-1, first.getTotal());
+        assertNotNull(second);
+        assertEquals("http://example.com/2.mp3", second.getEpisode());
+        assertNull(second.getTimestamp());
+    }
+
+    @Test
+    public void testMandatoryValueOfUnexpectedType() throws IOException {
+        assertNull(read("{\"podcast\": null, \"episode\": \"http://example.com/1.mp3\", \"action\": \"play\"}"));
+        assertNull(read("{\"podcast\": \"http://example.com/feed\", \"episode\": false, \"action\": \"play\"}"));
+    }
+
+    private static EpisodeAction read(String json) throws IOException {
+        return EpisodeAction.readFromJsonReader(new JsonReader(new StringReader(json)));
+    }
+}
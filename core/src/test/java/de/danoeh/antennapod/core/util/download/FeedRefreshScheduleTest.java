@@ -0,0 +1,75 @@
+package de.danoeh.antennapod.core.util.download;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FeedRefreshScheduleTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long NOW = 1600000000000L;
+
+    @Test
+    public void testDailyFeedIsCheckedOften() {
+        List<Long> pubDates = publishedEvery(DAY, 20, NOW - 2 * HOUR);
+        assertEquals(6 * HOUR, FeedRefreshSchedule.computeInterval(pubDates, 0, NOW, HOUR));
+    }
+
+    @Test
+    public void testNeverShorterThanRefreshInterval() {
+        List<Long> pubDates = publishedEvery(HOUR, 20, NOW);
+        assertEquals(4 * HOUR, FeedRefreshSchedule.computeInterval(pubDates, 0, NOW, 4 * HOUR));
+    }
+
+    @Test
+    public void testDormantFeedIsCheckedRarely() {
+        List<Long> pubDates = publishedEvery(7 * DAY, 20, NOW - 700 * DAY);
+        assertEquals(FeedRefreshSchedule.MAX_INTERVAL, FeedRefreshSchedule.computeInterval(pubDates, 0, NOW, HOUR));
+    }
+
+    @Test
+    public void testUnchangedRefreshesBackOff() {
+        List<Long> pubDates = publishedEvery(DAY, 20, NOW - 2 * HOUR);
+        long fresh = FeedRefreshSchedule.computeInterval(pubDates, 0, NOW, HOUR);
+        long unchanged = FeedRefreshSchedule.computeInterval(pubDates, 2, NOW, HOUR);
+        assertEquals(2 * fresh, unchanged);
+        assertEquals(unchanged * 3 / 2, FeedRefreshSchedule.computeInterval(pubDates, 100, NOW, HOUR));
+    }
+
+    @Test
+    public void testNotEnoughEpisodes() {
+        assertEquals(HOUR, FeedRefreshSchedule.computeInterval(Collections.emptyList(), 0, NOW, HOUR));
+        assertEquals(HOUR, FeedRefreshSchedule.computeInterval(Collections.singletonList(NOW), 3, NOW, HOUR));
+    }
+
+    @Test
+    public void testIsDue() {
+        long dueBefore = FeedRefreshSchedule.getDueBefore(NOW, HOUR);
+        assertTrue(0 < dueBefore);
+        assertTrue(NOW + HOUR / 4 < dueBefore);
+        assertFalse(NOW + HOUR < dueBefore);
+    }
+
+    @Test
+    public void testFailureBackoff() {
+        assertEquals(0, FeedRefreshSchedule.computeFailureBackoff(1, HOUR));
+        assertEquals(HOUR, FeedRefreshSchedule.computeFailureBackoff(2, HOUR));
+        assertEquals(4 * HOUR, FeedRefreshSchedule.computeFailureBackoff(4, HOUR));
+        assertEquals(FeedRefreshSchedule.MAX_INTERVAL, FeedRefreshSchedule.computeFailureBackoff(100, HOUR));
+    }
+
+    private static List<Long> publishedEvery(long gap, int count, long newest) {
+        List<Long> pubDates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pubDates.add(newest - i * gap);
+        }
+        return pubDates;
+    }
+}
@@ -195,6 +195,26 @@ public class TimelineTest {
         checkLinkCorrect(res, new long[0], new String[0]);
     }
 
+    @Test
+    public void testProcessShownotesCachedResultMatches() {
+        String shownotes = "<p> Some test text with a timecode 10:11 here.</p>";
+        String first = new Timeline(context, shownotes, Integer.MAX_VALUE).processShownotes();
+        String second = new Timeline(context, shownotes, Integer.MAX_VALUE).processShownotes();
+        assertEquals(first, second);
+        Document d = Jsoup.parse(second);
+        assertEquals(1, d.head().getElementsByTag("style").size());
+        checkLinkCorrect(second, new long[]{3600 * 1000 * 10 + 60 * 1000 * 11}, new String[]{"10:11"});
+    }
+
+    @Test
+    public void testProcessShownotesCacheRespectsDuration() {
+        String shownotes = "<p> Some test text with a timecode 10:11 here.</p>";
+        String withoutDuration = new Timeline(context, shownotes, Integer.MAX_VALUE).processShownotes();
+        String shortEpisode = new Timeline(context, shownotes, 60 * 60 * 1000).processShownotes();
+        checkLinkCorrect(withoutDuration, new long[]{3600 * 1000 * 10 + 60 * 1000 * 11}, new String[]{"10:11"});
+        checkLinkCorrect(shortEpisode, new long[]{60 * 1000 * 10 + 11 * 1000}, new String[]{"10:11"});
+    }
+
     private void checkLinkCorrect(String res, long[] timecodes, String[] timecodeStr) {
         assertNotNull(res);
         Document d = Jsoup.parse(res);
@@ -75,7 +75,7 @@ public class FeedDiscovererTest {
             FileOutputStream out = new FileOutputStream(testFile);
             IOUtils.write(html, out, StandardCharsets.UTF_8);
             out.close();
-            res = fd.findLinks(testFile, base);
+            res = fd.findLinks(testFile, base, null);
         }
 
         assertNotNull(res);
@@ -125,4 +125,57 @@ public class FeedDiscovererTest {
     public void testAlternateRSSWithTitleAbsoluteFromFile() throws Exception {
         checkFindUrls(true, true, true, true, false);
     }
+
+    @Test
+    public void testOnlyHeadIsRead() {
+        String html = "<!DOCTYPE html><html><head><title>a <link> in the title</title>"
+                + "<!-- <link rel=\"alternate\" type=\"application/rss+xml\" href=\"http://example.com/comment\"> -->"
+                + "<script>var s = '<link rel=\"alternate\" type=\"application/rss+xml\" href=\"/script\">';</script>"
+                + "<LINK REL=alternate TYPE=\"application/rss+xml\" HREF='http://example.com/feed?a=1&amp;b=2'/>"
+                + "</head><body><link rel=\"alternate\" type=\"application/rss+xml\" href=\"http://example.com/body\">"
+                + "</body></html>";
+        Map<String, String> res = fd.findLinks(html, "http://example.com");
+        assertEquals(1, res.size());
+        assertTrue(res.containsKey("http://example.com/feed?a=1&b=2"));
+    }
+
+    @Test
+    public void testDocumentEndsAfterHead() {
+        String html = "<html><head><link rel=\"feed\" type=\"application/atom+xml\" href=\"http://example.com/feed\""
+                + " title=\"Caf&eacute; &#8211; News\"></head";
+        Map<String, String> res = fd.findLinks(html, "http://example.com");
+        assertEquals("Caf\u00e9 \u2013 News", res.get("http://example.com/feed"));
+    }
+
+    @Test
+    public void testCharsetFromMetaElement() throws Exception {
+        String html = "<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=ISO-8859-1\">"
+                + "<link rel=\"alternate\" type=\"application/rss+xml\" href=\"http://example.com/feed\""
+                + " title=\"Caf\u00e9\"></head></html>";
+        File testFile = new File(testDir, "feed");
+        FileUtils.writeStringToFile(testFile, html, StandardCharsets.ISO_8859_1);
+        Map<String, String> res = fd.findLinks(testFile, "http://example.com", "text/html");
+        assertEquals("Caf\u00e9", res.get("http://example.com/feed"));
+    }
+
+    @Test
+    public void testCharsetFromContentType() throws Exception {
+        String html = "<html><head><meta charset=\"utf-8\">"
+                + "<link rel=\"alternate\" type=\"application/rss+xml\" href=\"http://example.com/feed\""
+                + " title=\"Caf\u00e9\"></head></html>";
+        File testFile = new File(testDir, "feed");
+        FileUtils.writeStringToFile(testFile, html, StandardCharsets.ISO_8859_1);
+        Map<String, String> res = fd.findLinks(testFile, "http://example.com", "text/html; charset=iso-8859-1");
+        assertEquals("Caf\u00e9", res.get("http://example.com/feed"));
+    }
+
+    @Test
+    public void testByteOrderMarkIsSkipped() throws Exception {
+        String html = "\uFEFF<html><head><link rel=\"alternate\" type=\"application/rss+xml\""
+                + " href=\"http://example.com/feed\" title=\"Caf\u00e9\"></head></html>";
+        File testFile = new File(testDir, "feed");
+        FileUtils.writeStringToFile(testFile, html, StandardCharsets.UTF_16LE);
+        Map<String, String> res = fd.findLinks(testFile, "http://example.com", "text/html; charset=iso-8859-1");
+        assertEquals("Caf\u00e9", res.get("http://example.com/feed"));
+    }
 }
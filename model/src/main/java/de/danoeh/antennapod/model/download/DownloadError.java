@@ -24,7 +24,10 @@ public enum DownloadError {
     ERROR_UNSUPPORTED_TYPE_HTML(19),
     ERROR_NOT_FOUND(20),
     ERROR_CERTIFICATE(21),
-    ERROR_PARSER_EXCEPTION_DUPLICATE(22);
+    ERROR_PARSER_EXCEPTION_DUPLICATE(22),
+    NOT_MODIFIED(23),
+    /** Not attempted because the host failed repeatedly, see HostCircuitBreaker. Not a failure of the feed. */
+    ERROR_HOST_SKIPPED(24);
 
     private final int code;
 
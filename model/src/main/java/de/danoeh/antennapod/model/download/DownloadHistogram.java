@@ -0,0 +1,81 @@
+package de.danoeh.antennapod.model.download;
+
+/**
+ * Distribution of one download metric, with buckets that grow exponentially. Bucket 0 holds the value 0,
+ * bucket b holds values from 2^(b-1) (inclusive) to 2^b (exclusive). This keeps the histogram small while
+ * covering everything from a few milliseconds to minutes, or from bytes to megabytes per second.
+ */
+public class DownloadHistogram {
+    public static final int METRIC_DNS = 0;
+    public static final int METRIC_CONNECT = 1;
+    public static final int METRIC_TLS = 2;
+    public static final int METRIC_FIRST_BYTE = 3;
+    public static final int METRIC_TRANSFER = 4;
+    public static final int METRIC_THROUGHPUT = 5;
+    public static final int METRIC_BYTES = 6;
+    public static final int METRIC_COUNT = 7;
+
+    public static final int BUCKET_COUNT = 48;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long total = 0;
+
+    public static int getBucket(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    private static long getLowerBound(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+
+    private static long getUpperBound(int bucket) {
+        return bucket == 0 ? 0 : 1L << bucket;
+    }
+
+    public void add(long value) {
+        addToBucket(getBucket(value), 1);
+    }
+
+    public void addToBucket(int bucket, long count) {
+        counts[Math.max(0, Math.min(BUCKET_COUNT - 1, bucket))] += count;
+        total += count;
+    }
+
+    public void addAll(DownloadHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Estimates the value below which the given fraction of the samples lies,
+     * interpolating linearly within the bucket.
+     *
+     * @param fraction Between 0 and 1, for example 0.5 for the median
+     * @return The estimate, or -1 if the histogram is empty
+     */
+    public long getPercentile(double fraction) {
+        if (total == 0) {
+            return -1;
+        }
+        double rank = fraction * total;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] > 0 && seen + counts[i] >= rank) {
+                double withinBucket = (rank - seen) / counts[i];
+                long lower = getLowerBound(i);
+                return lower + (long) ((getUpperBound(i) - lower) * withinBucket);
+            }
+            seen += counts[i];
+        }
+        return getUpperBound(BUCKET_COUNT - 1);
+    }
+}
@@ -0,0 +1,74 @@
+package de.danoeh.antennapod.model.download;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Media download that was started but has not finished yet. Entries are stored while the download
+ * runs, so that it can be resumed if the app is killed in the meantime.
+ */
+public class DownloadJournalEntry {
+    private final long mediaId;
+    private final String source;
+    private final String destination;
+    private final boolean initiatedByUser;
+    private final long soFar;
+    private final long size;
+    private final String etag;
+    private final String lastModified;
+
+    public DownloadJournalEntry(long mediaId, @NonNull String source, @NonNull String destination,
+                                boolean initiatedByUser, long soFar, long size,
+                                @Nullable String etag, @Nullable String lastModified) {
+        this.mediaId = mediaId;
+        this.source = source;
+        this.destination = destination;
+        this.initiatedByUser = initiatedByUser;
+        this.soFar = soFar;
+        this.size = size;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    public long getMediaId() {
+        return mediaId;
+    }
+
+    @NonNull
+    public String getSource() {
+        return source;
+    }
+
+    @NonNull
+    public String getDestination() {
+        return destination;
+    }
+
+    public boolean isInitiatedByUser() {
+        return initiatedByUser;
+    }
+
+    /**
+     * Number of bytes that were written to the destination when the entry was stored.
+     */
+    public long getSoFar() {
+        return soFar;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * ETag of the file on the server, used to check that a resumed download continues the same file.
+     */
+    @Nullable
+    public String getEtag() {
+        return etag;
+    }
+
+    @Nullable
+    public String getLastModified() {
+        return lastModified;
+    }
+}
@@ -144,6 +144,19 @@ public class DownloadStatus {
         this.done = true;
     }
 
+    /**
+     * The server answered "304 Not Modified", so there is nothing new to process.
+     */
+    public void setNotModified() {
+        this.successful = true;
+        this.reason = DownloadError.NOT_MODIFIED;
+        this.done = true;
+    }
+
+    public boolean isNotModified() {
+        return reason == DownloadError.NOT_MODIFIED;
+    }
+
     public void setCancelled() {
         this.successful = false;
         this.reason = DownloadError.ERROR_DOWNLOAD_CANCELLED;
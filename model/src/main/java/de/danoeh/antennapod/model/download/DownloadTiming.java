@@ -0,0 +1,110 @@
+package de.danoeh.antennapod.model.download;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing of a single HTTP request made for a download. Phases that did not happen, for example
+ * DNS and connect on a reused connection, are {@link #NOT_MEASURED}.
+ */
+public class DownloadTiming {
+    public static final long NOT_MEASURED = -1;
+    /** Transfers smaller than this finish too quickly to tell something about the throughput. */
+    private static final long MIN_THROUGHPUT_BYTES = 64 * 1024;
+    private static final long PERIOD_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private final long feedfileId;
+    private final int feedfileType;
+    private final String host;
+    private final long completionDate;
+    private final long dnsMillis;
+    private final long connectMillis;
+    private final long tlsMillis;
+    private final long firstByteMillis;
+    private final long transferMillis;
+    private final long bytes;
+
+    public DownloadTiming(long feedfileId, int feedfileType, @NonNull String host, long completionDate,
+                          long dnsMillis, long connectMillis, long tlsMillis,
+                          long firstByteMillis, long transferMillis, long bytes) {
+        this.feedfileId = feedfileId;
+        this.feedfileType = feedfileType;
+        this.host = host;
+        this.completionDate = completionDate;
+        this.dnsMillis = dnsMillis;
+        this.connectMillis = connectMillis;
+        this.tlsMillis = tlsMillis;
+        this.firstByteMillis = firstByteMillis;
+        this.transferMillis = transferMillis;
+        this.bytes = bytes;
+    }
+
+    public long getFeedfileId() {
+        return feedfileId;
+    }
+
+    public int getFeedfileType() {
+        return feedfileType;
+    }
+
+    @NonNull
+    public String getHost() {
+        return host;
+    }
+
+    public long getCompletionDate() {
+        return completionDate;
+    }
+
+    /**
+     * Samples are aggregated per week, so that recent performance can be compared to earlier weeks.
+     */
+    public long getPeriod() {
+        return getPeriod(completionDate);
+    }
+
+    public static long getPeriod(long time) {
+        return time / PERIOD_MILLIS;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @param metric One of the METRIC constants of {@link DownloadHistogram}
+     * @return The value in milliseconds, bytes per second (throughput) or bytes, or {@link #NOT_MEASURED}
+     */
+    public long getValue(int metric) {
+        switch (metric) {
+            case DownloadHistogram.METRIC_DNS:
+                return dnsMillis;
+            case DownloadHistogram.METRIC_CONNECT:
+                return connectMillis;
+            case DownloadHistogram.METRIC_TLS:
+                return tlsMillis;
+            case DownloadHistogram.METRIC_FIRST_BYTE:
+                return firstByteMillis;
+            case DownloadHistogram.METRIC_TRANSFER:
+                return transferMillis;
+            case DownloadHistogram.METRIC_THROUGHPUT:
+                if (bytes < MIN_THROUGHPUT_BYTES || transferMillis <= 0) {
+                    return NOT_MEASURED;
+                }
+                return bytes * 1000 / transferMillis;
+            case DownloadHistogram.METRIC_BYTES:
+                return bytes;
+            default:
+                return NOT_MEASURED;
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "DownloadTiming{host=" + host + ", dns=" + dnsMillis + "ms, connect=" + connectMillis
+                + "ms, tls=" + tlsMillis + "ms, firstByte=" + firstByteMillis + "ms, transfer=" + transferMillis
+                + "ms, bytes=" + bytes + "}";
+    }
+}
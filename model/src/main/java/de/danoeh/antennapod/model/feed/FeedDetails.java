@@ -33,9 +33,13 @@ public class FeedDetails {
     private String author;
     private String imageUrl;
     /**
-     * String that identifies the last update (adopted from Last-Modified or ETag header).
+     * Value of the Last-Modified header of the last download.
      */
     private String lastUpdate;
+    /**
+     * Value of the ETag header of the last download.
+     */
+    private String etag;
     /**
      * Feed type, for example RSS 2 or Atom.
      */
@@ -139,6 +143,14 @@ public class FeedDetails {
         this.lastUpdate = lastModified;
     }
 
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
     public String getType() {
         return type;
     }
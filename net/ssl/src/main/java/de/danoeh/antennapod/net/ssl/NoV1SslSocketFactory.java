@@ -29,6 +29,7 @@ public class NoV1SslSocketFactory extends SSLSocketFactory {
             }
 
             sslContext.init(null, new TrustManager[] {trustManager}, null);
+            sslContext.getClientSessionContext().setSessionCacheSize(SslClientSetup.SESSION_CACHE_SIZE);
             factory = sslContext.getSocketFactory();
         } catch (GeneralSecurityException e) {
             e.printStackTrace();
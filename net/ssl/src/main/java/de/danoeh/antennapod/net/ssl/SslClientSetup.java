@@ -1,26 +1,54 @@
 package de.danoeh.antennapod.net.ssl;
 
 import android.os.Build;
+import android.util.Log;
 import okhttp3.CipherSuite;
 import okhttp3.ConnectionSpec;
 import okhttp3.OkHttpClient;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 public class SslClientSetup {
-    public static void installCertificates(OkHttpClient.Builder builder) {
+    private static final String TAG = "SslClientSetup";
+
+    /**
+     * Number of TLS sessions that are kept for resumption. Some Android versions only keep 10,
+     * which is not enough for a refresh of feeds from a few dozen hosts.
+     */
+    static final int SESSION_CACHE_SIZE = 256;
+
+    private static SSLSocketFactory sslSocketFactory;
+    private static X509TrustManager trustManager;
+
+    /**
+     * Configures TLS for the client. All clients share one SSL context, so TLS sessions can be resumed
+     * by a client that was created later, for example after the proxy settings changed.
+     */
+    public static synchronized void installCertificates(OkHttpClient.Builder builder) {
         if (BuildConfig.FLAVOR.equals("free")) {
             // The Free flavor bundles a modern conscrypt (security provider), so CustomSslSocketFactory
             // is only used to make sure that modern protocols (TLSv1.3 and TLSv1.2) are enabled and
             // that old, deprecated, protocols (like SSLv3, TLSv1.0 and TLSv1.1) are disabled.
-            X509TrustManager trustManager = BackportTrustManager.create();
-            builder.sslSocketFactory(new NoV1SslSocketFactory(trustManager), trustManager);
+            if (sslSocketFactory == null) {
+                trustManager = BackportTrustManager.create();
+                sslSocketFactory = new NoV1SslSocketFactory(trustManager);
+            }
+            builder.sslSocketFactory(sslSocketFactory, trustManager);
         } else if (Build.VERSION.SDK_INT < 21) {
-            X509TrustManager trustManager = BackportTrustManager.create();
-            builder.sslSocketFactory(new NoV1SslSocketFactory(trustManager), trustManager);
+            if (sslSocketFactory == null) {
+                trustManager = BackportTrustManager.create();
+                sslSocketFactory = new NoV1SslSocketFactory(trustManager);
+            }
+            builder.sslSocketFactory(sslSocketFactory, trustManager);
 
             // workaround for Android 4.x for certain web sites.
             // see: https://github.com/square/okhttp/issues/4053#issuecomment-402579554
@@ -32,6 +60,32 @@ public class SslClientSetup {
                     .cipherSuites(cipherSuites.toArray(new CipherSuite[0]))
                     .build();
             builder.connectionSpecs(Arrays.asList(legacyTls, ConnectionSpec.CLEARTEXT));
+        } else {
+            if (sslSocketFactory == null) {
+                try {
+                    createPlatformSocketFactory();
+                } catch (GeneralSecurityException | ClassCastException e) {
+                    // OkHttp creates its own SSL context for every client then
+                    Log.e(TAG, Log.getStackTraceString(e));
+                    return;
+                }
+            }
+            builder.sslSocketFactory(sslSocketFactory, trustManager);
         }
     }
+
+    /**
+     * Uses the platform's default TLS provider and trust store, like OkHttp does by default,
+     * but with a larger session cache.
+     */
+    private static void createPlatformSocketFactory() throws GeneralSecurityException {
+        TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init((KeyStore) null);
+        X509TrustManager platformTrustManager = (X509TrustManager) factory.getTrustManagers()[0];
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[] {platformTrustManager}, null);
+        sslContext.getClientSessionContext().setSessionCacheSize(SESSION_CACHE_SIZE);
+        trustManager = platformTrustManager;
+        sslSocketFactory = sslContext.getSocketFactory();
+    }
 }
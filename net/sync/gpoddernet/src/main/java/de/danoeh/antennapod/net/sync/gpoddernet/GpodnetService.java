@@ -1,5 +1,6 @@
 package de.danoeh.antennapod.net.sync.gpoddernet;
 
+import android.util.JsonReader;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -412,15 +413,18 @@ public class GpodnetService implements ISyncService {
         String path = String.format("/api/2/episodes/%s.json", username);
         try {
             URL url = new URI(baseScheme, null, baseHost, basePort, path, params, null).toURL();
-            Request.Builder request = new Request.Builder().url(url);
+            Request request = new Request.Builder().url(url).build();
 
-            String response = executeRequest(request);
-            JSONObject json = new JSONObject(response);
-            return ResponseMapper.readEpisodeActionsFromJsonObject(json);
+            // A first sync can return tens of thousands of actions, so they are read while downloading
+            try (Response response = httpClient.newCall(request).execute()) {
+                checkStatusCode(response);
+                JsonReader reader = new JsonReader(response.body().charStream());
+                return ResponseMapper.readEpisodeActionsFromJsonReader(reader);
+            }
         } catch (URISyntaxException e) {
             e.printStackTrace();
             throw new IllegalStateException(e);
-        } catch (JSONException | MalformedURLException e) {
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
             e.printStackTrace();
             throw new SyncServiceException(e);
         }
@@ -1,11 +1,14 @@
 package de.danoeh.antennapod.net.sync.gpoddernet.mapper;
 
+import android.util.JsonReader;
+
 import androidx.annotation.NonNull;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -41,20 +44,39 @@ public class ResponseMapper {
         return new SubscriptionChanges(added, removed, timestamp);
     }
 
-    public static EpisodeActionChanges readEpisodeActionsFromJsonObject(@NonNull JSONObject object)
-            throws JSONException {
+    /**
+     * Reads episode actions from a stream. Each action is decoded as soon as it is read,
+     * so the response does not need to be held in memory as a string or JSON tree.
+     */
+    public static EpisodeActionChanges readEpisodeActionsFromJsonReader(@NonNull JsonReader reader)
+            throws IOException {
 
         List<EpisodeAction> episodeActions = new ArrayList<>();
+        Long timestamp = null;
 
-        long timestamp = object.getLong("timestamp");
-        JSONArray jsonActions = object.getJSONArray("actions");
-        for (int i = 0; i < jsonActions.length(); i++) {
-            JSONObject jsonAction = jsonActions.getJSONObject(i);
-            EpisodeAction episodeAction = EpisodeAction.readFromJsonObject(jsonAction);
-            if (episodeAction != null) {
-                episodeActions.add(episodeAction);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("timestamp".equals(name)) {
+                timestamp = reader.nextLong();
+            } else if ("actions".equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    EpisodeAction episodeAction = EpisodeAction.readFromJsonReader(reader);
+                    if (episodeAction != null) {
+                        episodeActions.add(episodeAction);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
             }
         }
+        reader.endObject();
+
+        if (timestamp == null) {
+            throw new IOException("Episode action response has no timestamp");
+        }
         return new EpisodeActionChanges(episodeActions, timestamp);
     }
 }
@@ -1,5 +1,7 @@
 package de.danoeh.antennapod.net.sync.nextcloud;
 
+import android.util.JsonReader;
+
 import de.danoeh.antennapod.net.sync.HostnameParser;
 import de.danoeh.antennapod.net.sync.gpoddernet.mapper.ResponseMapper;
 import de.danoeh.antennapod.net.sync.gpoddernet.model.GpodnetUploadChangesResponse;
@@ -91,10 +93,12 @@ public class NextcloudSyncService implements ISyncService {
         try {
             HttpUrl.Builder uri = makeUrl("/index.php/apps/gpoddersync/episode_action");
             uri.addQueryParameter("since", "" + timestamp);
-            String responseString = performRequest(uri, "GET", null);
-            JSONObject json = new JSONObject(responseString);
-            return ResponseMapper.readEpisodeActionsFromJsonObject(json);
-        } catch (JSONException | MalformedURLException e) {
+            // A first sync can return tens of thousands of actions, so they are read while downloading
+            try (Response response = openRequest(uri, "GET", null)) {
+                JsonReader reader = new JsonReader(response.body().charStream());
+                return ResponseMapper.readEpisodeActionsFromJsonReader(reader);
+            }
+        } catch (IOException e) {
             e.printStackTrace();
             throw new SyncServiceException(e);
         } catch (Exception e) {
@@ -135,6 +139,16 @@ public class NextcloudSyncService implements ISyncService {
     }
 
     private String performRequest(HttpUrl.Builder url, String method, RequestBody body) throws IOException {
+        try (Response response = openRequest(url, method, body)) {
+            return response.body().string();
+        }
+    }
+
+    /**
+     * Executes the request and returns the response, so that the body can be read as a stream.
+     * The caller needs to close the response.
+     */
+    private Response openRequest(HttpUrl.Builder url, String method, RequestBody body) throws IOException {
         Request request = new Request.Builder()
                 .url(url.build())
                 .header("Authorization", Credentials.basic(username, password))
@@ -143,9 +157,10 @@ public class NextcloudSyncService implements ISyncService {
                 .build();
         Response response = httpClient.newCall(request).execute();
         if (response.code() != 200) {
+            response.close();
             throw new IOException("Response code: " + response.code());
         }
-        return response.body().string();
+        return response;
     }
 
     private HttpUrl.Builder makeUrl(String path) {
@@ -1,6 +1,8 @@
 package de.danoeh.antennapod.net.sync.model;
 
 import android.text.TextUtils;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -8,6 +10,7 @@ import androidx.annotation.NonNull;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -53,9 +56,102 @@ public class EpisodeAction {
      * @return episode action object, or null if mandatory values are missing
      */
     public static EpisodeAction readFromJsonObject(JSONObject object) {
-        String podcast = object.optString("podcast", null);
-        String episode = object.optString("episode", null);
-        String actionString = object.optString("action", null);
+        return create(object.optString("podcast", null), object.optString("episode", null),
+                object.optString("action", null), object.optString("timestamp", null),
+                object.optString("guid", null), object.optInt("started", -1),
+                object.optInt("position", -1), object.optInt("total", -1));
+    }
+
+    /**
+     * Reads the next JSON object of the reader as an episode action, without building a JSON tree.
+     * Mandatory fields are "podcast", "episode" and "action".
+     *
+     * @param reader JSON reader that is positioned before an object
+     * @return episode action object, or null if mandatory values are missing
+     */
+    public static EpisodeAction readFromJsonReader(JsonReader reader) throws IOException {
+        String podcast = null;
+        String episode = null;
+        String actionString = null;
+        String utcTimestamp = null;
+        String guid = null;
+        int started = -1;
+        int position = -1;
+        int total = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "podcast":
+                    podcast = readString(reader);
+                    break;
+                case "episode":
+                    episode = readString(reader);
+                    break;
+                case "action":
+                    actionString = readString(reader);
+                    break;
+                case "timestamp":
+                    utcTimestamp = readString(reader);
+                    break;
+                case "guid":
+                    guid = readString(reader);
+                    break;
+                case "started":
+                    started = readInt(reader);
+                    break;
+                case "position":
+                    position = readInt(reader);
+                    break;
+                case "total":
+                    total = readInt(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return create(podcast, episode, actionString, utcTimestamp, guid, started, position, total);
+    }
+
+    /**
+     * Reads a number like {@link JSONObject#optInt}: numbers in strings are accepted,
+     * other values are skipped.
+     *
+     * @return The number, or -1 if the value is not a number
+     */
+    private static int readInt(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            reader.skipValue();
+            return -1;
+        }
+        try {
+            return (int) reader.nextDouble();
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return The string or number as text, or null for other values, which are skipped
+     */
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+            reader.skipValue();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static EpisodeAction create(String podcast, String episode, String actionString, String utcTimestamp,
+                                        String guid, int started, int position, int total) {
         if (TextUtils.isEmpty(podcast) || TextUtils.isEmpty(episode) || TextUtils.isEmpty(actionString)) {
             return null;
         }
@@ -66,7 +162,6 @@ public class EpisodeAction {
             return null;
         }
         EpisodeAction.Builder builder = new EpisodeAction.Builder(podcast, episode, action);
-        String utcTimestamp = object.optString("timestamp", null);
         if (!TextUtils.isEmpty(utcTimestamp)) {
             try {
                 SimpleDateFormat parser = new SimpleDateFormat(PATTERN_ISO_DATEFORMAT, Locale.US);
@@ -76,14 +171,10 @@ public class EpisodeAction {
                 e.printStackTrace();
             }
         }
-        String guid = object.optString("guid", null);
         if (!TextUtils.isEmpty(guid)) {
             builder.guid(guid);
         }
         if (action == EpisodeAction.Action.PLAY) {
-            int started = object.optInt("started", -1);
-            int position = object.optInt("position", -1);
-            int total = object.optInt("total", -1);
             if (started >= 0 && position > 0 && total > 0) {
                 builder
                         .started(started)
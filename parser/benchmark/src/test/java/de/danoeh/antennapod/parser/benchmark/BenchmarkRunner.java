@@ -0,0 +1,111 @@
+package de.danoeh.antennapod.parser.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Minimal benchmark harness. Runs an operation a number of times after warming up
+ * and reports throughput, allocated bytes per item and p50/p99 run time.
+ */
+public class BenchmarkRunner {
+    private static final int WARMUP_ITERATIONS = 5;
+
+    /**
+     * A single benchmark run. Returns the number of items that were processed, which is used to
+     * calculate throughput and allocations per item. The return value also keeps the JIT from
+     * removing the work as dead code.
+     */
+    public interface Operation {
+        long run() throws Exception;
+    }
+
+    public static class Result {
+        public final String name;
+        public final long items;
+        public final double itemsPerSecond;
+        public final double bytesPerItem;
+        public final double p50Millis;
+        public final double p99Millis;
+
+        Result(String name, long items, double itemsPerSecond, double bytesPerItem,
+               double p50Millis, double p99Millis) {
+            this.name = name;
+            this.items = items;
+            this.itemsPerSecond = itemsPerSecond;
+            this.bytesPerItem = bytesPerItem;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-45s items/run=%8d  %12.0f items/s  %10.1f B/item"
+                    + "  p50=%9.3f ms  p99=%9.3f ms", name, items, itemsPerSecond, bytesPerItem, p50Millis, p99Millis);
+        }
+    }
+
+    private final int iterations;
+
+    public BenchmarkRunner() {
+        this(Integer.parseInt(System.getProperty("benchmark.iterations", "20")));
+    }
+
+    public BenchmarkRunner(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public static int getMaxItems() {
+        return Integer.parseInt(System.getProperty("benchmark.maxItems", "50000"));
+    }
+
+    public Result run(String name, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+
+        long[] durations = new long[iterations];
+        long totalItems = 0;
+        long totalAllocated = 0;
+        long totalNanos = 0;
+        long itemsPerRun = 0;
+        for (int i = 0; i < iterations; i++) {
+            long allocatedBefore = getAllocatedBytes();
+            long start = System.nanoTime();
+            itemsPerRun = operation.run();
+            durations[i] = System.nanoTime() - start;
+            totalAllocated += getAllocatedBytes() - allocatedBefore;
+            totalNanos += durations[i];
+            totalItems += itemsPerRun;
+        }
+
+        Arrays.sort(durations);
+        Result result = new Result(name, itemsPerRun,
+                totalItems / (totalNanos / 1e9),
+                totalItems > 0 ? (double) totalAllocated / totalItems : 0,
+                percentile(durations, 0.50) / 1e6,
+                percentile(durations, 0.99) / 1e6);
+        System.out.println("[Benchmark] " + result);
+        return result;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or 0 if the JVM cannot measure it.
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return 0;
+    }
+}
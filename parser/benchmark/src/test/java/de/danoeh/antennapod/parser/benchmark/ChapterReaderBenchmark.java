@@ -0,0 +1,44 @@
+package de.danoeh.antennapod.parser.benchmark;
+
+import de.danoeh.antennapod.parser.media.id3.ChapterReader;
+import de.danoeh.antennapod.parser.media.vorbis.VorbisCommentChapterReader;
+import org.apache.commons.io.input.CountingInputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class ChapterReaderBenchmark {
+    private static final int[] ID3_CHAPTER_COUNTS = {10, 100, 1000};
+
+    @Test
+    public void benchmarkId3Chapters() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        for (int numChapters : ID3_CHAPTER_COUNTS) {
+            byte[] data = SyntheticMediaGenerator.generateId3WithChapters(numChapters);
+            runner.run("ChapterReader ID3, " + numChapters + " chapters", () -> {
+                ChapterReader reader = new ChapterReader(new CountingInputStream(new ByteArrayInputStream(data)));
+                reader.readInputStream();
+                assertEquals(numChapters, reader.getChapters().size());
+                return numChapters;
+            });
+        }
+    }
+
+    @Test
+    public void benchmarkVorbisChapters() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        int numChapters = SyntheticMediaGenerator.MAX_VORBIS_CHAPTERS;
+        byte[] data = SyntheticMediaGenerator.generateOggWithChapters(numChapters);
+        runner.run("VorbisCommentChapterReader, " + numChapters + " chapters", () -> {
+            VorbisCommentChapterReader reader = new VorbisCommentChapterReader(new ByteArrayInputStream(data));
+            reader.readInputStream();
+            assertEquals(numChapters, reader.getChapters().size());
+            return numChapters;
+        });
+    }
+}
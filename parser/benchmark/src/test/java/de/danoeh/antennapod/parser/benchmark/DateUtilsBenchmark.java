@@ -0,0 +1,48 @@
+package de.danoeh.antennapod.parser.benchmark;
+
+import de.danoeh.antennapod.parser.feed.util.DateUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class DateUtilsBenchmark {
+    private static final int DATES_PER_RUN = 10000;
+
+    /**
+     * Formats that are commonly found in feeds, including some that need the slower fallback patterns.
+     */
+    private static final String[] DATES = {
+        "Sat, 01 Jan 2022 10:15:30 GMT",
+        "Sat, 01 Jan 2022 10:15:30 +0100",
+        "01 Jan 2022 10:15:30 -0500",
+        "Sat, 1 Jan 2022 10:15 EST",
+        "2022-01-01T10:15:30Z",
+        "2022-01-01T10:15:30.123+01:00",
+        "2022-01-01",
+        "Saturday, 01 January 2022 10:15:30 GMT",
+    };
+
+    @Test
+    public void benchmarkParse() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        for (String date : DATES) {
+            runner.run("DateUtils.parse(\"" + date + "\")", () -> parse(date));
+        }
+        runner.run("DateUtils.parse mixed", () -> {
+            for (int i = 0; i < DATES_PER_RUN; i++) {
+                assertNotNull(DateUtils.parse(DATES[i % DATES.length]));
+            }
+            return DATES_PER_RUN;
+        });
+    }
+
+    private static long parse(String date) {
+        for (int i = 0; i < DATES_PER_RUN; i++) {
+            assertNotNull(DateUtils.parse(date));
+        }
+        return DATES_PER_RUN;
+    }
+}
@@ -0,0 +1,26 @@
+package de.danoeh.antennapod.parser.benchmark;
+
+import de.danoeh.antennapod.parser.feed.util.DurationParser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class DurationParserBenchmark {
+    private static final int DURATIONS_PER_RUN = 100000;
+    private static final String[] DURATIONS = {"3600", "59:59", "1:02:03", "01:02:03.456"};
+
+    @Test
+    public void benchmarkInMillis() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        for (String duration : DURATIONS) {
+            runner.run("DurationParser.inMillis(\"" + duration + "\")", () -> {
+                long sum = 0;
+                for (int i = 0; i < DURATIONS_PER_RUN; i++) {
+                    sum += DurationParser.inMillis(duration);
+                }
+                return sum > 0 ? DURATIONS_PER_RUN : 0;
+            });
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package de.danoeh.antennapod.parser.benchmark;
+
+import de.danoeh.antennapod.model.feed.Feed;
+import de.danoeh.antennapod.parser.feed.FeedHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class FeedHandlerBenchmark {
+    private static final int[] FEED_SIZES = {50, 500, 5000, 50000};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void benchmarkRss() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        for (int numItems : FEED_SIZES) {
+            if (numItems > BenchmarkRunner.getMaxItems()) {
+                break;
+            }
+            File file = SyntheticFeedGenerator.writeRss(folder.getRoot(), numItems);
+            runner.run("FeedHandler RSS 2.0, " + numItems + " items", () -> parse(file, numItems));
+        }
+    }
+
+    @Test
+    public void benchmarkAtom() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        for (int numItems : FEED_SIZES) {
+            if (numItems > BenchmarkRunner.getMaxItems()) {
+                break;
+            }
+            File file = SyntheticFeedGenerator.writeAtom(folder.getRoot(), numItems);
+            runner.run("FeedHandler Atom, " + numItems + " items", () -> parse(file, numItems));
+        }
+    }
+
+    private static long parse(File file, int expectedItems) throws Exception {
+        Feed feed = new Feed("https://example.com/feed.xml", null);
+        feed.setFile_url(file.getAbsolutePath());
+        feed.setDownloaded(true);
+        new FeedHandler().parseFeed(feed);
+        assertEquals(expectedItems, feed.getItems().size());
+        return feed.getItems().size();
+    }
+}
@@ -0,0 +1,103 @@
+package de.danoeh.antennapod.parser.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Writes feeds that look like the ones produced by common podcast hosting platforms.
+ */
+public class SyntheticFeedGenerator {
+    private static final String NAMESPACES = "xmlns:atom=\"http://www.w3.org/2005/Atom\""
+            + " xmlns:itunes=\"http://www.itunes.com/dtds/podcast-1.0.dtd\""
+            + " xmlns:podcast=\"https://podcastindex.org/namespace/1.0\""
+            + " xmlns:content=\"http://purl.org/rss/1.0/modules/content/\"";
+    private static final long START_DATE = 1262304000000L; // 2010-01-01
+    private static final long ONE_DAY = 24L * 60 * 60 * 1000;
+
+    private SyntheticFeedGenerator() {
+
+    }
+
+    public static File writeRss(File directory, int numItems) throws IOException {
+        File file = new File(directory, "feed-rss-" + numItems + ".xml");
+        SimpleDateFormat rfc822 = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss Z", Locale.US);
+        rfc822.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try (Writer out = openWriter(file)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<rss version=\"2.0\" " + NAMESPACES + "><channel>");
+            out.write("<title>Synthetic RSS feed</title><link>https://example.com</link><language>en</language>");
+            out.write("<description>A feed with " + numItems + " items</description>");
+            out.write("<itunes:author>Example Author</itunes:author>");
+            out.write("<itunes:image href=\"https://example.com/cover.jpg\"/>");
+            out.write("<itunes:category text=\"Technology\"><itunes:category text=\"Podcasting\"/></itunes:category>");
+            out.write("<podcast:funding url=\"https://example.com/donate\">Support the show</podcast:funding>");
+            out.write("<atom:link rel=\"self\" href=\"https://example.com/feed.xml\" type=\"application/rss+xml\"/>");
+            for (int i = 0; i < numItems; i++) {
+                String pubDate = rfc822.format(new Date(START_DATE + i * ONE_DAY));
+                out.write("<item><title>Episode " + i + ": A title of typical length</title>");
+                out.write("<link>https://example.com/episodes/" + i + "</link>");
+                out.write("<guid isPermaLink=\"false\">urn:uuid:episode-" + i + "</guid>");
+                out.write("<pubDate>" + pubDate + "</pubDate>");
+                out.write("<description><![CDATA[" + description(i) + "]]></description>");
+                out.write("<content:encoded><![CDATA[" + description(i) + "]]></content:encoded>");
+                out.write("<itunes:duration>" + (i % 3) + ":" + (10 + i % 50) + ":" + (10 + i % 49)
+                        + "</itunes:duration>");
+                out.write("<itunes:episode>" + i + "</itunes:episode><itunes:explicit>no</itunes:explicit>");
+                out.write("<itunes:image href=\"https://example.com/episodes/" + i + ".jpg\"/>");
+                out.write("<podcast:chapters url=\"https://example.com/episodes/" + i + ".json\""
+                        + " type=\"application/json+chapters\"/>");
+                out.write("<enclosure url=\"https://example.com/media/" + i + ".mp3\" length=\"52428800\""
+                        + " type=\"audio/mpeg\"/>");
+                out.write("</item>");
+            }
+            out.write("</channel></rss>");
+        }
+        return file;
+    }
+
+    public static File writeAtom(File directory, int numItems) throws IOException {
+        File file = new File(directory, "feed-atom-" + numItems + ".xml");
+        SimpleDateFormat rfc3339 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        rfc3339.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try (Writer out = openWriter(file)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<feed xmlns=\"http://www.w3.org/2005/Atom\">");
+            out.write("<title>Synthetic Atom feed</title><subtitle>A feed with " + numItems + " entries</subtitle>");
+            out.write("<id>urn:uuid:synthetic-atom-feed</id><updated>2020-01-01T00:00:00Z</updated>");
+            out.write("<link href=\"https://example.com\"/><logo>https://example.com/cover.jpg</logo>");
+            out.write("<author><name>Example Author</name></author>");
+            for (int i = 0; i < numItems; i++) {
+                String date = rfc3339.format(new Date(START_DATE + i * ONE_DAY));
+                out.write("<entry><title>Episode " + i + ": A title of typical length</title>");
+                out.write("<id>urn:uuid:entry-" + i + "</id>");
+                out.write("<published>" + date + "</published><updated>" + date + "</updated>");
+                out.write("<link rel=\"alternate\" href=\"https://example.com/episodes/" + i + "\"/>");
+                out.write("<link rel=\"enclosure\" href=\"https://example.com/media/" + i + ".mp3\""
+                        + " type=\"audio/mpeg\" length=\"52428800\"/>");
+                out.write("<content type=\"html\"><![CDATA[" + description(i) + "]]></content>");
+                out.write("</entry>");
+            }
+            out.write("</feed>");
+        }
+        return file;
+    }
+
+    private static String description(int i) {
+        return "<p>In episode " + i + " we talk about things.</p><ul>"
+                + "<li>00:00 Intro</li><li>05:23 Topic one</li><li>01:02:03 Topic two</li></ul>"
+                + "<p>Links: <a href=\"https://example.com/a\">one</a>, <a href=\"https://example.com/b\">two</a></p>";
+    }
+
+    private static Writer openWriter(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+    }
+}
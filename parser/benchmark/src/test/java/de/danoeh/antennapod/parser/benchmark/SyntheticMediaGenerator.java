@@ -0,0 +1,117 @@
+package de.danoeh.antennapod.parser.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Creates the tag sections of media files with many chapters.
+ * Only the bytes that the chapter readers look at are generated, the audio data is omitted.
+ */
+public class SyntheticMediaGenerator {
+    /**
+     * VorbisCommentChapterReader reads two digit chapter ids.
+     */
+    public static final int MAX_VORBIS_CHAPTERS = 99;
+
+    private SyntheticMediaGenerator() {
+
+    }
+
+    /**
+     * ID3v2.3 tag with CHAP frames that each contain a TIT2 and a WXXX sub frame.
+     */
+    public static byte[] generateId3WithChapters(int numChapters) throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        for (int i = 0; i < numChapters; i++) {
+            ByteArrayOutputStream chapter = new ByteArrayOutputStream();
+            chapter.write(("ch" + i).getBytes(StandardCharsets.ISO_8859_1));
+            chapter.write(0);
+            writeInt(chapter, i * 60000); // Start time
+            writeInt(chapter, (i + 1) * 60000); // End time
+            writeInt(chapter, 0xFFFFFFFF); // Start offset
+            writeInt(chapter, 0xFFFFFFFF); // End offset
+
+            byte[] title = ("\u0003Chapter " + i + " - a title of typical length\u0000")
+                    .getBytes(StandardCharsets.UTF_8);
+            writeFrame(chapter, "TIT2", title);
+            byte[] link = ("\u0000\u0000https://example.com/chapters/" + i + "\u0000")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            writeFrame(chapter, "WXXX", link);
+
+            writeFrame(frames, "CHAP", chapter.toByteArray());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {'I', 'D', '3', 3, 0, 0});
+        writeInt(out, synchsafe(frames.size()));
+        frames.writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * First two pages of an Ogg/Vorbis file with CHAPTERxxx comments.
+     */
+    public static byte[] generateOggWithChapters(int numChapters) throws IOException {
+        if (numChapters > MAX_VORBIS_CHAPTERS) {
+            throw new IllegalArgumentException("Vorbis chapter ids only have two digits");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // First page with the identification header. The reader only looks for the header packet.
+        byte[] firstPage = new byte[58];
+        System.arraycopy(new byte[] {'O', 'g', 'g', 'S'}, 0, firstPage, 0, 4);
+        System.arraycopy(new byte[] {1, 'v', 'o', 'r', 'b', 'i', 's'}, 0, firstPage, 28, 7);
+        out.write(firstPage);
+
+        // Second page: page header, one segment, comment header
+        out.write(new byte[] {'O', 'g', 'g', 'S'});
+        out.write(new byte[22]);
+        out.write(1); // Number of segments
+        out.write(255); // Segment table
+        out.write(new byte[] {3, 'v', 'o', 'r', 'b', 'i', 's'});
+        byte[] vendor = "AntennaPod benchmark".getBytes(StandardCharsets.UTF_8);
+        writeIntLittleEndian(out, vendor.length);
+        out.write(vendor);
+        writeIntLittleEndian(out, 3 * numChapters);
+        for (int i = 1; i <= numChapters; i++) {
+            String id = String.format(Locale.US, "CHAPTER%03d", i);
+            writeComment(out, id + "=" + String.format(Locale.US, "%02d:%02d:00.000", i / 60, i % 60));
+            writeComment(out, id + "NAME=Chapter " + i + " - a title of typical length");
+            writeComment(out, id + "URL=https://example.com/chapters/" + i);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeFrame(ByteArrayOutputStream out, String id, byte[] content) throws IOException {
+        out.write(id.getBytes(StandardCharsets.ISO_8859_1));
+        writeInt(out, content.length);
+        out.write(0); // Flags
+        out.write(0);
+        out.write(content);
+    }
+
+    private static void writeComment(ByteArrayOutputStream out, String comment) throws IOException {
+        byte[] bytes = comment.getBytes(StandardCharsets.UTF_8);
+        writeIntLittleEndian(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >> 24);
+        out.write(value >> 16);
+        out.write(value >> 8);
+        out.write(value);
+    }
+
+    private static void writeIntLittleEndian(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >> 8);
+        out.write(value >> 16);
+        out.write(value >> 24);
+    }
+
+    private static int synchsafe(int value) {
+        return (value & 0x7F) | ((value & 0x3F80) << 1) | ((value & 0x1FC000) << 2) | ((value & 0xFE00000) << 3);
+    }
+}
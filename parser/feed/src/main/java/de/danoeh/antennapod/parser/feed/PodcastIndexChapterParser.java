@@ -1,31 +1,117 @@
 package de.danoeh.antennapod.parser.feed;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
 import de.danoeh.antennapod.model.feed.Chapter;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Reads Podcasting 2.0 JSON chapters. The document is read as a stream,
+ * so only the chapters and not the whole document are held in memory.
+ */
 public class PodcastIndexChapterParser {
     public static List<Chapter> parse(String jsonStr) {
-        try {
-            List<Chapter> chapters = new ArrayList<>();
-            JSONObject obj = new JSONObject(jsonStr);
-            JSONArray objChapters = obj.getJSONArray("chapters");
-            for (int i = 0; i < objChapters.length(); i++) {
-                JSONObject jsonObject = objChapters.getJSONObject(i);
-                int startTime = jsonObject.optInt("startTime", 0);
-                String title = jsonObject.optString("title");
-                String link = jsonObject.optString("url");
-                String img = jsonObject.optString("img");
-                chapters.add(new Chapter(startTime * 1000L, title, link, img));
+        return parse(new StringReader(jsonStr));
+    }
+
+    /**
+     * @return The chapters, or null if the document is invalid
+     */
+    public static List<Chapter> parse(Reader in) {
+        List<Chapter> chapters = null;
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("chapters".equals(reader.nextName())) {
+                    chapters = readChapters(reader);
+                } else {
+                    reader.skipValue();
+                }
             }
-            return chapters;
-        } catch (JSONException e) {
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
             e.printStackTrace();
+            return null;
+        }
+        return chapters;
+    }
+
+    private static List<Chapter> readChapters(JsonReader reader) throws IOException {
+        List<Chapter> chapters = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            chapters.add(readChapter(reader));
+        }
+        reader.endArray();
+        return chapters;
+    }
+
+    private static Chapter readChapter(JsonReader reader) throws IOException {
+        int startTime = 0;
+        String title = "";
+        String link = "";
+        String img = "";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "startTime":
+                    startTime = readInt(reader);
+                    break;
+                case "title":
+                    title = readString(reader);
+                    break;
+                case "url":
+                    link = readString(reader);
+                    break;
+                case "img":
+                    img = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new Chapter(startTime * 1000L, title, link, img);
+    }
+
+    /**
+     * Values of an unexpected type are skipped, so that one odd chapter does not drop all of them.
+     *
+     * @return The number, or 0 if the value is not a number
+     */
+    private static int readInt(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            reader.skipValue();
+            return 0;
+        }
+        try {
+            return (int) reader.nextDouble();
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return The string or number as text, or an empty string for other values, which are skipped
+     */
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+            reader.skipValue();
+            return "";
         }
-        return null;
+        return reader.nextString();
     }
 }
@@ -4,7 +4,6 @@ import android.util.Log;
 
 import de.danoeh.antennapod.parser.feed.UnsupportedFeedtypeException;
 import org.apache.commons.io.input.XmlStreamReader;
-import org.jsoup.Jsoup;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
@@ -83,15 +82,9 @@ public class TypeGetter {
                 }
             } catch (XmlPullParserException e) {
                 e.printStackTrace();
-                // XML document might actually be a HTML document -> try to parse as HTML
-                String rootElement = null;
-                try {
-                    if (Jsoup.parse(new File(feed.getFile_url()), null) != null) {
-                        rootElement = "html";
-                    }
-                } catch (IOException e1) {
-                    e1.printStackTrace();
-                }
+                // XML document might actually be a HTML document. Whether it links to feeds is decided
+                // by the feed discovery, which only reads the head, so the document is not parsed here.
+                String rootElement = new File(feed.getFile_url()).canRead() ? "html" : null;
                 throw new UnsupportedFeedtypeException(Type.INVALID, rootElement);
 
             } catch (IOException e) {
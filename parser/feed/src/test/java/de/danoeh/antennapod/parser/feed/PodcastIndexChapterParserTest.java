@@ -0,0 +1,62 @@
+package de.danoeh.antennapod.parser.feed;
+
+import de.danoeh.antennapod.model.feed.Chapter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class PodcastIndexChapterParserTest {
+
+    @Test
+    public void testParse() {
+        String json = "{\"version\": \"1.2.0\", \"author\": {\"name\": \"skipped\"}, \"chapters\": ["
+                + "{\"startTime\": 0, \"title\": \"Intro\", \"img\": \"https://example.com/1.jpg\"},"
+                + "{\"startTime\": 65.5, \"title\": \"Topic\", \"url\": \"https://example.com\", \"toc\": false},"
+                + "{\"startTime\": 120, \"title\": null, \"location\": {\"name\": \"skipped\"}}"
+                + "]}";
+        List<Chapter> chapters = PodcastIndexChapterParser.parse(json);
+
+        assertEquals(3, chapters.size());
+        assertEquals(0, chapters.get(0).getStart());
+        assertEquals("Intro", chapters.get(0).getTitle());
+        assertEquals("https://example.com/1.jpg", chapters.get(0).getImageUrl());
+        assertEquals(65000, chapters.get(1).getStart());
+        assertEquals("https://example.com", chapters.get(1).getLink());
+        assertEquals(120000, chapters.get(2).getStart());
+        assertEquals("", chapters.get(2).getTitle());
+    }
+
+    @Test
+    public void testValuesOfUnexpectedTypeAreSkipped() {
+        String json = "{\"chapters\": ["
+                + "{\"startTime\": null, \"title\": true},"
+                + "{\"startTime\": true, \"title\": {\"text\": \"Object\"}, \"url\": [1, 2]},"
+                + "{\"startTime\": \"abc\", \"title\": 42},"
+                + "{\"startTime\": \"90\", \"title\": \"Last\"}"
+                + "]}";
+        List<Chapter> chapters = PodcastIndexChapterParser.parse(json);
+
+        assertEquals(4, chapters.size());
+        assertEquals(0, chapters.get(0).getStart());
+        assertEquals("", chapters.get(0).getTitle());
+        assertEquals(0, chapters.get(1).getStart());
+        assertEquals("", chapters.get(1).getTitle());
+        assertEquals("", chapters.get(1).getLink());
+        assertEquals(0, chapters.get(2).getStart());
+        assertEquals("42", chapters.get(2).getTitle());
+        assertEquals(90000, chapters.get(3).getStart());
+        assertEquals("Last", chapters.get(3).getTitle());
+    }
+
+    @Test
+    public void testParseInvalid() {
+        assertNull(PodcastIndexChapterParser.parse("{\"chapters\": [{\"startTime\": "));
+        assertNull(PodcastIndexChapterParser.parse("[]"));
+    }
+}
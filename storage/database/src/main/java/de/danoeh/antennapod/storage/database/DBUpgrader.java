@@ -330,6 +330,35 @@ class DBUpgrader {
             db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEED_ITEMS
                     + " ADD COLUMN " + PodDBAdapter.KEY_PODCASTINDEX_CHAPTER_URL + " TEXT");
         }
+        if (oldVersion < 2060001) {
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
+                    + " ADD COLUMN " + PodDBAdapter.KEY_ETAG + " TEXT");
+        }
+        if (oldVersion < 2060002) {
+            db.execSQL(PodDBAdapter.CREATE_TABLE_DOWNLOAD_JOURNAL);
+        }
+        if (oldVersion < 2060003) {
+            db.execSQL(PodDBAdapter.CREATE_TABLE_DOWNLOAD_METRICS);
+        }
+        if (oldVersion < 2060004) {
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
+                    + " ADD COLUMN " + PodDBAdapter.KEY_FAILED_REFRESHES + " INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
+                    + " ADD COLUMN " + PodDBAdapter.KEY_NEXT_REFRESH_ATTEMPT + " INTEGER DEFAULT 0");
+        }
+        if (oldVersion < 2060005) {
+            db.execSQL(PodDBAdapter.CREATE_TABLE_PENDING_IMPORTS);
+        }
+        if (oldVersion < 2060006) {
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
+                    + " ADD COLUMN " + PodDBAdapter.KEY_NEXT_SCHEDULED_REFRESH + " INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
+                    + " ADD COLUMN " + PodDBAdapter.KEY_NEWEST_EPISODE_DATE + " INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
+                    + " ADD COLUMN " + PodDBAdapter.KEY_UNCHANGED_REFRESHES + " INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
+                    + " ADD COLUMN " + PodDBAdapter.KEY_REFRESH_INTERVAL + " INTEGER DEFAULT 0");
+        }
     }
 
 }
@@ -35,6 +35,10 @@ import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.model.feed.FeedItemFilter;
 import de.danoeh.antennapod.model.feed.FeedMedia;
 import de.danoeh.antennapod.model.feed.FeedPreferences;
+import de.danoeh.antennapod.model.download.DownloadError;
+import de.danoeh.antennapod.model.download.DownloadHistogram;
+import de.danoeh.antennapod.model.download.DownloadJournalEntry;
+import de.danoeh.antennapod.model.download.DownloadTiming;
 import de.danoeh.antennapod.model.download.DownloadStatus;
 import de.danoeh.antennapod.model.feed.SortOrder;
 import de.danoeh.antennapod.storage.database.mapper.FeedItemFilterQuery;
@@ -50,7 +54,7 @@ public class PodDBAdapter {
 
     private static final String TAG = "PodDBAdapter";
     public static final String DATABASE_NAME = "Antennapod.db";
-    public static final int VERSION = 2060000;
+    public static final int VERSION = 2060006;
 
     /**
      * Maximum number of arguments for IN-operator.
@@ -76,6 +80,15 @@ public class PodDBAdapter {
     public static final String KEY_MEDIA = "media";
     public static final String KEY_DOWNLOADED = "downloaded";
     public static final String KEY_LASTUPDATE = "last_update";
+    public static final String KEY_ETAG = "etag";
+    public static final String KEY_LAST_MODIFIED = "last_modified";
+    public static final String KEY_INITIATED_BY_USER = "initiated_by_user";
+    public static final String KEY_SO_FAR = "so_far";
+    public static final String KEY_HOST = "host";
+    public static final String KEY_PERIOD = "period";
+    public static final String KEY_METRIC = "metric";
+    public static final String KEY_BUCKET = "bucket";
+    public static final String KEY_COUNT = "count";
     public static final String KEY_FEEDFILE = "feedfile";
     public static final String KEY_REASON = "reason";
     public static final String KEY_SUCCESSFUL = "successful";
@@ -106,6 +119,12 @@ public class PodDBAdapter {
     public static final String KEY_HIDE = "hide";
     public static final String KEY_SORT_ORDER = "sort_order";
     public static final String KEY_LAST_UPDATE_FAILED = "last_update_failed";
+    public static final String KEY_FAILED_REFRESHES = "failed_refreshes";
+    public static final String KEY_NEXT_REFRESH_ATTEMPT = "next_refresh_attempt";
+    public static final String KEY_NEXT_SCHEDULED_REFRESH = "next_scheduled_refresh";
+    public static final String KEY_NEWEST_EPISODE_DATE = "newest_episode_date";
+    public static final String KEY_UNCHANGED_REFRESHES = "unchanged_refreshes";
+    public static final String KEY_REFRESH_INTERVAL = "refresh_interval";
     public static final String KEY_HAS_EMBEDDED_PICTURE = "has_embedded_picture";
     public static final String KEY_LAST_PLAYED_TIME = "last_played_time";
     public static final String KEY_INCLUDE_FILTER = "include_filter";
@@ -124,6 +143,9 @@ public class PodDBAdapter {
     public static final String TABLE_NAME_FEED_IMAGES = "FeedImages";
     public static final String TABLE_NAME_FEED_MEDIA = "FeedMedia";
     public static final String TABLE_NAME_DOWNLOAD_LOG = "DownloadLog";
+    public static final String TABLE_NAME_DOWNLOAD_JOURNAL = "DownloadJournal";
+    public static final String TABLE_NAME_DOWNLOAD_METRICS = "DownloadMetrics";
+    public static final String TABLE_NAME_PENDING_IMPORTS = "PendingImports";
     public static final String TABLE_NAME_QUEUE = "Queue";
     public static final String TABLE_NAME_SIMPLECHAPTERS = "SimpleChapters";
     public static final String TABLE_NAME_FAVORITES = "Favorites";
@@ -137,7 +159,7 @@ public class PodDBAdapter {
             + " TEXT," + KEY_CUSTOM_TITLE + " TEXT," + KEY_FILE_URL + " TEXT," + KEY_DOWNLOAD_URL + " TEXT,"
             + KEY_DOWNLOADED + " INTEGER," + KEY_LINK + " TEXT,"
             + KEY_DESCRIPTION + " TEXT," + KEY_PAYMENT_LINK + " TEXT,"
-            + KEY_LASTUPDATE + " TEXT," + KEY_LANGUAGE + " TEXT," + KEY_AUTHOR
+            + KEY_LASTUPDATE + " TEXT," + KEY_ETAG + " TEXT," + KEY_LANGUAGE + " TEXT," + KEY_AUTHOR
             + " TEXT," + KEY_IMAGE_URL + " TEXT," + KEY_TYPE + " TEXT,"
             + KEY_FEED_IDENTIFIER + " TEXT," + KEY_AUTO_DOWNLOAD_ENABLED + " INTEGER DEFAULT 1,"
             + KEY_USERNAME + " TEXT,"
@@ -157,7 +179,13 @@ public class PodDBAdapter {
             + KEY_FEED_TAGS + " TEXT,"
             + KEY_FEED_SKIP_INTRO + " INTEGER DEFAULT 0,"
             + KEY_FEED_SKIP_ENDING + " INTEGER DEFAULT 0,"
-            + KEY_EPISODE_NOTIFICATION + " INTEGER DEFAULT 0)";
+            + KEY_EPISODE_NOTIFICATION + " INTEGER DEFAULT 0,"
+            + KEY_FAILED_REFRESHES + " INTEGER DEFAULT 0,"
+            + KEY_NEXT_REFRESH_ATTEMPT + " INTEGER DEFAULT 0,"
+            + KEY_NEXT_SCHEDULED_REFRESH + " INTEGER DEFAULT 0,"
+            + KEY_NEWEST_EPISODE_DATE + " INTEGER DEFAULT 0,"
+            + KEY_UNCHANGED_REFRESHES + " INTEGER DEFAULT 0,"
+            + KEY_REFRESH_INTERVAL + " INTEGER DEFAULT 0)";
 
     private static final String CREATE_TABLE_FEED_ITEMS = "CREATE TABLE "
             + TABLE_NAME_FEED_ITEMS + " (" + TABLE_PRIMARY_KEY
@@ -188,6 +216,23 @@ public class PodDBAdapter {
             + " INTEGER," + KEY_REASON_DETAILED + " TEXT,"
             + KEY_DOWNLOADSTATUS_TITLE + " TEXT)";
 
+    static final String CREATE_TABLE_DOWNLOAD_JOURNAL = "CREATE TABLE "
+            + TABLE_NAME_DOWNLOAD_JOURNAL + " (" + KEY_FEEDFILE + " INTEGER PRIMARY KEY,"
+            + KEY_DOWNLOAD_URL + " TEXT," + KEY_FILE_URL + " TEXT,"
+            + KEY_INITIATED_BY_USER + " INTEGER," + KEY_SO_FAR + " INTEGER,"
+            + KEY_SIZE + " INTEGER," + KEY_ETAG + " TEXT," + KEY_LAST_MODIFIED + " TEXT)";
+
+    static final String CREATE_TABLE_DOWNLOAD_METRICS = "CREATE TABLE "
+            + TABLE_NAME_DOWNLOAD_METRICS + " (" + KEY_HOST + " TEXT NOT NULL," + KEY_FEED + " INTEGER NOT NULL,"
+            + KEY_PERIOD + " INTEGER NOT NULL," + KEY_METRIC + " INTEGER NOT NULL,"
+            + KEY_BUCKET + " INTEGER NOT NULL," + KEY_COUNT + " INTEGER NOT NULL,"
+            + "PRIMARY KEY (" + KEY_HOST + "," + KEY_FEED + "," + KEY_PERIOD + "," + KEY_METRIC + ","
+            + KEY_BUCKET + "))";
+
+    static final String CREATE_TABLE_PENDING_IMPORTS = "CREATE TABLE "
+            + TABLE_NAME_PENDING_IMPORTS + " (" + TABLE_PRIMARY_KEY
+            + KEY_DOWNLOAD_URL + " TEXT UNIQUE," + KEY_TITLE + " TEXT)";
+
     private static final String CREATE_TABLE_QUEUE = "CREATE TABLE "
             + TABLE_NAME_QUEUE + "(" + KEY_ID + " INTEGER PRIMARY KEY,"
             + KEY_FEEDITEM + " INTEGER," + KEY_FEED + " INTEGER)";
@@ -240,6 +285,7 @@ public class PodDBAdapter {
             TABLE_NAME_FEEDS + "." + KEY_DESCRIPTION,
             TABLE_NAME_FEEDS + "." + KEY_PAYMENT_LINK,
             TABLE_NAME_FEEDS + "." + KEY_LASTUPDATE,
+            TABLE_NAME_FEEDS + "." + KEY_ETAG,
             TABLE_NAME_FEEDS + "." + KEY_LANGUAGE,
             TABLE_NAME_FEEDS + "." + KEY_AUTHOR,
             TABLE_NAME_FEEDS + "." + KEY_IMAGE_URL,
@@ -274,6 +320,9 @@ public class PodDBAdapter {
             TABLE_NAME_FEED_ITEMS,
             TABLE_NAME_FEED_MEDIA,
             TABLE_NAME_DOWNLOAD_LOG,
+            TABLE_NAME_DOWNLOAD_JOURNAL,
+            TABLE_NAME_DOWNLOAD_METRICS,
+            TABLE_NAME_PENDING_IMPORTS,
             TABLE_NAME_QUEUE,
             TABLE_NAME_SIMPLECHAPTERS,
             TABLE_NAME_FAVORITES
@@ -384,6 +433,26 @@ public class PodDBAdapter {
         instance = null;
     }
 
+    /**
+     * Writes a consistent copy of the database to the given file. The database has a single connection and does
+     * not use write-ahead logging, so all other database access waits until the copy is written. A plain file copy
+     * is used because it blocks for less time than VACUUM INTO, which rebuilds the whole database. Must not be
+     * called on the main thread, and anything slow that is done with the copy should happen afterwards.
+     */
+    public void createSnapshot(@NonNull File destination) throws IOException {
+        if (destination.exists() && !destination.delete()) {
+            throw new IOException("Unable to delete old snapshot " + destination);
+        }
+        // Without write-ahead logging, the database file only changes when a transaction is committed.
+        // Holding a write transaction keeps everyone else from committing while the file is copied.
+        db.beginTransactionNonExclusive();
+        try {
+            FileUtils.copyFile(new File(db.getPath()), destination);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
     public static boolean deleteDatabase() {
         PodDBAdapter adapter = getInstance();
         adapter.open();
@@ -416,6 +485,7 @@ public class PodDBAdapter {
         values.put(KEY_DOWNLOAD_URL, feed.getDownload_url());
         values.put(KEY_DOWNLOADED, feed.isDownloaded());
         values.put(KEY_LASTUPDATE, feed.getLastUpdate());
+        values.put(KEY_ETAG, feed.getEtag());
         values.put(KEY_TYPE, feed.getType());
         values.put(KEY_FEED_IDENTIFIER, feed.getFeedIdentifier());
 
@@ -428,6 +498,10 @@ public class PodDBAdapter {
         }
         values.put(KEY_SORT_ORDER, toCodeString(feed.getSortOrder()));
         values.put(KEY_LAST_UPDATE_FAILED, feed.hasLastUpdateFailed());
+        if (!feed.hasLastUpdateFailed()) {
+            values.put(KEY_FAILED_REFRESHES, 0);
+            values.put(KEY_NEXT_REFRESH_ATTEMPT, 0);
+        }
         if (feed.getId() == 0) {
             // Create new entry
             Log.d(this.toString(), "Inserting new Feed into db");
@@ -732,10 +806,63 @@ public class PodDBAdapter {
     }
 
     public void setFeedLastUpdateFailed(long feedId, boolean failed) {
-        final String sql = "UPDATE " + TABLE_NAME_FEEDS
-                + " SET " + KEY_LAST_UPDATE_FAILED + "=" + (failed ? "1" : "0")
-                + " WHERE " + KEY_ID + "=" + feedId;
-        db.execSQL(sql);
+        String sql = "UPDATE " + TABLE_NAME_FEEDS
+                + " SET " + KEY_LAST_UPDATE_FAILED + "=" + (failed ? "1" : "0");
+        if (!failed) {
+            sql += "," + KEY_FAILED_REFRESHES + "=0," + KEY_NEXT_REFRESH_ATTEMPT + "=0";
+        }
+        db.execSQL(sql + " WHERE " + KEY_ID + "=" + feedId);
+    }
+
+    /**
+     * Marks the last update of the feed as failed and counts the failure.
+     *
+     * @return The number of updates in a row that failed
+     */
+    public int addFeedRefreshFailure(long feedId) {
+        db.execSQL("UPDATE " + TABLE_NAME_FEEDS + " SET " + KEY_LAST_UPDATE_FAILED + "=1,"
+                + KEY_FAILED_REFRESHES + "=" + KEY_FAILED_REFRESHES + "+1"
+                + " WHERE " + KEY_ID + "=" + feedId);
+        try (Cursor cursor = db.query(TABLE_NAME_FEEDS, new String[]{KEY_FAILED_REFRESHES}, KEY_ID + "=?",
+                new String[]{String.valueOf(feedId)}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    public void setFeedNextRefreshAttempt(long feedId, long time) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_NEXT_REFRESH_ATTEMPT, time);
+        db.update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(feedId)});
+    }
+
+    /**
+     * Returns the IDs of feeds that should not be refreshed automatically before the given time,
+     * either because they failed to update or because they are not expected to have new episodes.
+     */
+    public final Cursor getFeedsNotDueForRefreshCursor(long time) {
+        return db.query(TABLE_NAME_FEEDS, new String[]{KEY_ID},
+                KEY_NEXT_REFRESH_ATTEMPT + ">? OR " + KEY_NEXT_SCHEDULED_REFRESH + ">?",
+                new String[]{String.valueOf(time), String.valueOf(time)}, null, null, null);
+    }
+
+    /**
+     * Returns the newest episode date, the number of unchanged refreshes and the estimated
+     * refresh interval of the feed, in this order.
+     */
+    public final Cursor getFeedRefreshScheduleCursor(long feedId) {
+        return db.query(TABLE_NAME_FEEDS,
+                new String[]{KEY_NEWEST_EPISODE_DATE, KEY_UNCHANGED_REFRESHES, KEY_REFRESH_INTERVAL},
+                KEY_ID + "=?", new String[]{String.valueOf(feedId)}, null, null, null);
+    }
+
+    public void setFeedRefreshSchedule(long feedId, long nextRefresh, long newestEpisodeDate,
+                                       int unchangedRefreshes, long refreshInterval) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_NEXT_SCHEDULED_REFRESH, nextRefresh);
+        values.put(KEY_NEWEST_EPISODE_DATE, newestEpisodeDate);
+        values.put(KEY_UNCHANGED_REFRESHES, unchangedRefreshes);
+        values.put(KEY_REFRESH_INTERVAL, refreshInterval);
+        db.update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(feedId)});
     }
 
     public void setFeedCustomTitle(long feedId, String customTitle) {
@@ -908,6 +1035,113 @@ public class PodDBAdapter {
         db.delete(TABLE_NAME_DOWNLOAD_LOG, null, null);
     }
 
+    /**
+     * Inserts or replaces the journal entry of a running media download.
+     */
+    public void setDownloadJournalEntry(DownloadJournalEntry entry) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_FEEDFILE, entry.getMediaId());
+        values.put(KEY_DOWNLOAD_URL, entry.getSource());
+        values.put(KEY_FILE_URL, entry.getDestination());
+        values.put(KEY_INITIATED_BY_USER, entry.isInitiatedByUser());
+        values.put(KEY_SO_FAR, entry.getSoFar());
+        values.put(KEY_SIZE, entry.getSize());
+        values.put(KEY_ETAG, entry.getEtag());
+        values.put(KEY_LAST_MODIFIED, entry.getLastModified());
+        db.insertWithOnConflict(TABLE_NAME_DOWNLOAD_JOURNAL, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public void removeDownloadJournalEntry(long mediaId) {
+        db.delete(TABLE_NAME_DOWNLOAD_JOURNAL, KEY_FEEDFILE + "=?", new String[]{String.valueOf(mediaId)});
+    }
+
+    public final Cursor getDownloadJournalCursor() {
+        return db.query(TABLE_NAME_DOWNLOAD_JOURNAL, null, null, null, null, null, null);
+    }
+
+    /**
+     * Remembers feeds that are being imported, so that an import can continue after the app was killed.
+     * Feeds that are already pending are not added twice.
+     *
+     * @param titlesByUrl The titles of the feeds by download URL, in the order in which they should be imported.
+     */
+    public void addPendingImports(Map<String, String> titlesByUrl) {
+        try {
+            db.beginTransactionNonExclusive();
+            for (Map.Entry<String, String> entry : titlesByUrl.entrySet()) {
+                ContentValues values = new ContentValues();
+                values.put(KEY_DOWNLOAD_URL, entry.getKey());
+                values.put(KEY_TITLE, entry.getValue());
+                db.insertWithOnConflict(TABLE_NAME_PENDING_IMPORTS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void removePendingImport(String downloadUrl) {
+        db.delete(TABLE_NAME_PENDING_IMPORTS, KEY_DOWNLOAD_URL + "=?", new String[]{downloadUrl});
+    }
+
+    public void clearPendingImports() {
+        db.delete(TABLE_NAME_PENDING_IMPORTS, null, null);
+    }
+
+    public final Cursor getPendingImportsCursor() {
+        return db.query(TABLE_NAME_PENDING_IMPORTS, null, null, null, null, null, KEY_ID);
+    }
+
+    /**
+     * Adds the timing of a download request to the histograms of its host and feed.
+     * Histograms of periods before oldestPeriod are removed.
+     */
+    public void addDownloadTiming(DownloadTiming timing, long oldestPeriod) {
+        long feedId = timing.getFeedfileId();
+        if (timing.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA) {
+            feedId = 0;
+            try (Cursor cursor = db.rawQuery("SELECT " + KEY_FEED + " FROM " + TABLE_NAME_FEED_ITEMS
+                    + " INNER JOIN " + TABLE_NAME_FEED_MEDIA + " ON " + TABLE_NAME_FEED_MEDIA + "." + KEY_FEEDITEM
+                    + "=" + TABLE_NAME_FEED_ITEMS + "." + KEY_ID
+                    + " WHERE " + TABLE_NAME_FEED_MEDIA + "." + KEY_ID + "=?",
+                    new String[]{String.valueOf(timing.getFeedfileId())})) {
+                if (cursor.moveToFirst()) {
+                    feedId = cursor.getLong(0);
+                }
+            }
+        }
+        try {
+            db.beginTransactionNonExclusive();
+            for (int metric = 0; metric < DownloadHistogram.METRIC_COUNT; metric++) {
+                long value = timing.getValue(metric);
+                if (value == DownloadTiming.NOT_MEASURED) {
+                    continue;
+                }
+                Object[] key = {timing.getHost(), feedId, timing.getPeriod(), metric,
+                        DownloadHistogram.getBucket(value)};
+                db.execSQL("INSERT OR IGNORE INTO " + TABLE_NAME_DOWNLOAD_METRICS + " (" + KEY_HOST + "," + KEY_FEED
+                        + "," + KEY_PERIOD + "," + KEY_METRIC + "," + KEY_BUCKET + "," + KEY_COUNT
+                        + ") VALUES (?,?,?,?,?,0)", key);
+                db.execSQL("UPDATE " + TABLE_NAME_DOWNLOAD_METRICS + " SET " + KEY_COUNT + "=" + KEY_COUNT + "+1"
+                        + " WHERE " + KEY_HOST + "=? AND " + KEY_FEED + "=? AND " + KEY_PERIOD + "=? AND "
+                        + KEY_METRIC + "=? AND " + KEY_BUCKET + "=?", key);
+            }
+            db.delete(TABLE_NAME_DOWNLOAD_METRICS, KEY_PERIOD + "<?", new String[]{String.valueOf(oldestPeriod)});
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public final Cursor getDownloadMetricsCursor(long oldestPeriod) {
+        return db.query(TABLE_NAME_DOWNLOAD_METRICS, null, KEY_PERIOD + ">=?",
+                new String[]{String.valueOf(oldestPeriod)}, null, null, null);
+    }
+
     /**
      * Get all Feeds from the Feed Table.
      *
@@ -962,8 +1196,9 @@ public class PodDBAdapter {
     }
 
     public final Cursor getDownloadLogCursor(final int limit) {
-        return db.query(TABLE_NAME_DOWNLOAD_LOG, null, null, null, null,
-                null, KEY_COMPLETION_DATE + " DESC LIMIT " + limit);
+        // "Not modified" answers are only shown in the log of the feed
+        return db.query(TABLE_NAME_DOWNLOAD_LOG, null, KEY_REASON + " != " + DownloadError.NOT_MODIFIED.getCode(),
+                null, null, null, KEY_COMPLETION_DATE + " DESC LIMIT " + limit);
     }
 
     /**
@@ -1004,6 +1239,19 @@ public class PodDBAdapter {
         return db.rawQuery(query, null);
     }
 
+    /**
+     * Returns a cursor with all favorite items, grouped by feed and sorted by publishing date in descending
+     * order within each feed.
+     */
+    public final Cursor getFavoritesByFeedCursor() {
+        final String query = SELECT_FEED_ITEMS_AND_MEDIA
+                + " INNER JOIN " + TABLE_NAME_FAVORITES
+                + " ON " + SELECT_KEY_ITEM_ID + " = " + TABLE_NAME_FAVORITES + "." + KEY_FEEDITEM
+                + " ORDER BY " + TABLE_NAME_FEED_ITEMS + "." + KEY_FEED + " ASC, "
+                + TABLE_NAME_FEED_ITEMS + "." + KEY_PUBDATE + " DESC";
+        return db.rawQuery(query, null);
+    }
+
     public void setFeedItems(int state) {
         setFeedItems(Integer.MIN_VALUE, state, 0);
     }
@@ -1413,6 +1661,9 @@ public class PodDBAdapter {
             db.execSQL(CREATE_TABLE_FEED_ITEMS);
             db.execSQL(CREATE_TABLE_FEED_MEDIA);
             db.execSQL(CREATE_TABLE_DOWNLOAD_LOG);
+            db.execSQL(CREATE_TABLE_DOWNLOAD_JOURNAL);
+            db.execSQL(CREATE_TABLE_DOWNLOAD_METRICS);
+            db.execSQL(CREATE_TABLE_PENDING_IMPORTS);
             db.execSQL(CREATE_TABLE_QUEUE);
             db.execSQL(CREATE_TABLE_SIMPLECHAPTERS);
             db.execSQL(CREATE_TABLE_FAVORITES);
@@ -0,0 +1,31 @@
+package de.danoeh.antennapod.storage.database.mapper;
+
+import android.database.Cursor;
+import androidx.annotation.NonNull;
+import de.danoeh.antennapod.model.download.DownloadJournalEntry;
+import de.danoeh.antennapod.storage.database.PodDBAdapter;
+
+/**
+ * Converts a {@link Cursor} to a {@link DownloadJournalEntry} object.
+ */
+public abstract class DownloadJournalCursorMapper {
+    /**
+     * Create a {@link DownloadJournalEntry} instance from a database row (cursor).
+     */
+    @NonNull
+    public static DownloadJournalEntry convert(@NonNull Cursor cursor) {
+        int indexFeedFile = cursor.getColumnIndex(PodDBAdapter.KEY_FEEDFILE);
+        int indexDownloadUrl = cursor.getColumnIndex(PodDBAdapter.KEY_DOWNLOAD_URL);
+        int indexFileUrl = cursor.getColumnIndex(PodDBAdapter.KEY_FILE_URL);
+        int indexInitiatedByUser = cursor.getColumnIndex(PodDBAdapter.KEY_INITIATED_BY_USER);
+        int indexSoFar = cursor.getColumnIndex(PodDBAdapter.KEY_SO_FAR);
+        int indexSize = cursor.getColumnIndex(PodDBAdapter.KEY_SIZE);
+        int indexEtag = cursor.getColumnIndex(PodDBAdapter.KEY_ETAG);
+        int indexLastModified = cursor.getColumnIndex(PodDBAdapter.KEY_LAST_MODIFIED);
+
+        return new DownloadJournalEntry(cursor.getLong(indexFeedFile), cursor.getString(indexDownloadUrl),
+                cursor.getString(indexFileUrl), cursor.getInt(indexInitiatedByUser) > 0,
+                cursor.getLong(indexSoFar), cursor.getLong(indexSize),
+                cursor.getString(indexEtag), cursor.getString(indexLastModified));
+    }
+}
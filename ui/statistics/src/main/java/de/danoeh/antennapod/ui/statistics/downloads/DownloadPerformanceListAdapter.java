@@ -0,0 +1,129 @@
+package de.danoeh.antennapod.ui.statistics.downloads;
+
+import android.content.Context;
+import android.text.format.Formatter;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import de.danoeh.antennapod.core.storage.DownloadPerformanceItem;
+import de.danoeh.antennapod.model.download.DownloadHistogram;
+import de.danoeh.antennapod.ui.statistics.R;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lists the hosts that downloads were made from, slowest first, so that slow servers and
+ * regressions stand out.
+ */
+public class DownloadPerformanceListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    private static final int TYPE_HEADER = 0;
+    private static final int TYPE_HOST = 1;
+    /** Hosts whose median time to first byte grew by this factor are marked as slower than before. */
+    private static final double REGRESSION_FACTOR = 1.5;
+
+    private final Context context;
+    private List<DownloadPerformanceItem> hosts = new ArrayList<>();
+
+    public DownloadPerformanceListAdapter(Context context) {
+        this.context = context;
+    }
+
+    public void update(List<DownloadPerformanceItem> performance) {
+        hosts = new ArrayList<>();
+        for (DownloadPerformanceItem item : performance) {
+            if (item.getRecentCount() > 0) {
+                hosts.add(item);
+            }
+        }
+        Collections.sort(hosts, (item1, item2) -> Long.compare(getMedian(item2, DownloadHistogram.METRIC_FIRST_BYTE),
+                getMedian(item1, DownloadHistogram.METRIC_FIRST_BYTE)));
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getItemCount() {
+        return hosts.isEmpty() ? 0 : hosts.size() + 1;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return position == 0 ? TYPE_HEADER : TYPE_HOST;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        if (viewType == TYPE_HEADER) {
+            return new HeaderHolder(inflater.inflate(R.layout.download_performance_header, parent, false));
+        }
+        return new HostHolder(inflater.inflate(R.layout.download_performance_listitem, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder h, int position) {
+        if (getItemViewType(position) == TYPE_HEADER) {
+            ((HeaderHolder) h).header.setText(R.string.download_performance_hosts);
+            return;
+        }
+        HostHolder holder = (HostHolder) h;
+        DownloadPerformanceItem item = hosts.get(position - 1);
+        holder.title.setText(item.host);
+
+        long firstByte = getMedian(item, DownloadHistogram.METRIC_FIRST_BYTE);
+        StringBuilder value = new StringBuilder(context.getString(R.string.download_performance_first_byte,
+                context.getString(R.string.download_performance_millis, (int) firstByte)));
+        String throughput = formatThroughput(context, item);
+        if (throughput != null) {
+            value.append(" • ").append(throughput);
+        }
+        value.append(" • ").append(context.getString(R.string.download_performance_requests,
+                (int) item.getRecentCount()));
+        long previousFirstByte = item.previous[DownloadHistogram.METRIC_FIRST_BYTE].getPercentile(0.5);
+        if (previousFirstByte > 0 && firstByte > REGRESSION_FACTOR * previousFirstByte) {
+            value.append(" • ").append(context.getString(R.string.download_performance_slower));
+        }
+        holder.value.setText(value.toString());
+    }
+
+    /**
+     * Formats the median throughput of the recent weeks, or returns null if it is not known.
+     */
+    static String formatThroughput(Context context, DownloadPerformanceItem item) {
+        long throughput = getMedian(item, DownloadHistogram.METRIC_THROUGHPUT);
+        if (throughput < 0) {
+            return null;
+        }
+        return context.getString(R.string.download_performance_throughput,
+                Formatter.formatShortFileSize(context, throughput));
+    }
+
+    private static long getMedian(DownloadPerformanceItem item, int metric) {
+        return item.recent[metric].getPercentile(0.5);
+    }
+
+    static class HeaderHolder extends RecyclerView.ViewHolder {
+        final TextView header;
+
+        HeaderHolder(View itemView) {
+            super(itemView);
+            header = itemView.findViewById(R.id.txtvHeader);
+        }
+    }
+
+    static class HostHolder extends RecyclerView.ViewHolder {
+        final TextView title;
+        final TextView value;
+
+        HostHolder(View itemView) {
+            super(itemView);
+            title = itemView.findViewById(R.id.txtvTitle);
+            value = itemView.findViewById(R.id.txtvValue);
+        }
+    }
+}
@@ -11,10 +11,12 @@ import android.widget.ProgressBar;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import de.danoeh.antennapod.core.storage.DBReader;
+import de.danoeh.antennapod.core.storage.DownloadPerformanceItem;
 import de.danoeh.antennapod.ui.statistics.R;
 import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
@@ -22,6 +24,8 @@ import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Displays the 'download statistics' screen
@@ -33,6 +37,7 @@ public class DownloadStatisticsFragment extends Fragment {
     private RecyclerView downloadStatisticsList;
     private ProgressBar progressBar;
     private DownloadStatisticsListAdapter listAdapter;
+    private DownloadPerformanceListAdapter performanceAdapter;
 
     @Nullable
     @Override
@@ -42,8 +47,9 @@ public class DownloadStatisticsFragment extends Fragment {
         downloadStatisticsList = root.findViewById(R.id.statistics_list);
         progressBar = root.findViewById(R.id.progressBar);
         listAdapter = new DownloadStatisticsListAdapter(getContext());
+        performanceAdapter = new DownloadPerformanceListAdapter(getContext());
         downloadStatisticsList.setLayoutManager(new LinearLayoutManager(getContext()));
-        downloadStatisticsList.setAdapter(listAdapter);
+        downloadStatisticsList.setAdapter(new ConcatAdapter(listAdapter, performanceAdapter));
         return root;
     }
 
@@ -77,14 +83,30 @@ public class DownloadStatisticsFragment extends Fragment {
                     DBReader.StatisticsResult statisticsData = DBReader.getStatistics(false, 0, Long.MAX_VALUE);
                     Collections.sort(statisticsData.feedTime, (item1, item2) ->
                             Long.compare(item2.totalDownloadSize, item1.totalDownloadSize));
-                    return statisticsData;
+                    return new Statistics(statisticsData, DBReader.getDownloadPerformance());
                 })
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(result -> {
-                    listAdapter.update(result.feedTime);
+                    Map<Long, DownloadPerformanceItem> feedPerformance = new HashMap<>();
+                    for (DownloadPerformanceItem item : result.performance.feeds) {
+                        feedPerformance.put(item.feed.getId(), item);
+                    }
+                    listAdapter.setPerformance(feedPerformance);
+                    listAdapter.update(result.statistics.feedTime);
+                    performanceAdapter.update(result.performance.hosts);
                     progressBar.setVisibility(View.GONE);
                     downloadStatisticsList.setVisibility(View.VISIBLE);
                 }, error -> Log.e(TAG, Log.getStackTraceString(error)));
     }
+
+    private static class Statistics {
+        final DBReader.StatisticsResult statistics;
+        final DBReader.DownloadPerformanceResult performance;
+
+        Statistics(DBReader.StatisticsResult statistics, DBReader.DownloadPerformanceResult performance) {
+            this.statistics = statistics;
+            this.performance = performance;
+        }
+    }
 }
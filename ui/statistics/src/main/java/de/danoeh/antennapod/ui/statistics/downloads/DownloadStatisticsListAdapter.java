@@ -2,23 +2,34 @@ package de.danoeh.antennapod.ui.statistics.downloads;
 
 import android.content.Context;
 import android.text.format.Formatter;
+import de.danoeh.antennapod.core.storage.DownloadPerformanceItem;
 import de.danoeh.antennapod.core.storage.StatisticsItem;
 import de.danoeh.antennapod.ui.statistics.PieChartView;
 import de.danoeh.antennapod.ui.statistics.R;
 import de.danoeh.antennapod.ui.statistics.StatisticsListAdapter;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Adapter for the download statistics list.
  */
 public class DownloadStatisticsListAdapter extends StatisticsListAdapter {
+    private Map<Long, DownloadPerformanceItem> performance = Collections.emptyMap();
 
     public DownloadStatisticsListAdapter(Context context) {
         super(context);
     }
 
+    /**
+     * Sets the download performance of the feeds, shown next to their size. Call before {@link #update}.
+     */
+    public void setPerformance(Map<Long, DownloadPerformanceItem> performance) {
+        this.performance = performance;
+    }
+
     @Override
     protected String getHeaderCaption() {
         return context.getString(R.string.total_size_downloaded_podcasts);
@@ -41,10 +52,17 @@ public class DownloadStatisticsListAdapter extends StatisticsListAdapter {
 
     @Override
     protected void onBindFeedViewHolder(StatisticsHolder holder, StatisticsItem item) {
-        holder.value.setText(Formatter.formatShortFileSize(context, item.totalDownloadSize)
+        String value = Formatter.formatShortFileSize(context, item.totalDownloadSize)
                 + " • "
                 + String.format(Locale.getDefault(), "%d%s",
-                item.episodesDownloadCount, context.getString(R.string.episodes_suffix)));
+                item.episodesDownloadCount, context.getString(R.string.episodes_suffix));
+        DownloadPerformanceItem feedPerformance = performance.get(item.feed.getId());
+        String throughput = feedPerformance != null
+                ? DownloadPerformanceListAdapter.formatThroughput(context, feedPerformance) : null;
+        if (throughput != null) {
+            value += " • " + throughput;
+        }
+        holder.value.setText(value);
     }
 
 }